@@ -0,0 +1,111 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.repository.RoomRateRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability hot path of `BookingService`: the quote from the `RateCalendar`, the linear `Booking.overlaps` scan the
+ * database fallback does, the in-memory index lookup and the Redis key construction.
+ */
+@State(Scope.Benchmark)
+public class AvailabilityBenchmark {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+    @Param({"100", "10000"})
+    private int bookingCount;
+
+    private final RateCalendar rateCalendar = new RateCalendar();
+
+    private final Room room = new Room();
+
+    private final RoomAvailabilityIndex roomAvailabilityIndex = new RoomAvailabilityIndex();
+
+    private List<Booking> bookings;
+
+    private long checkInDate;
+
+    private long checkOutDate;
+
+    @Setup
+    public void setUp() {
+        setField(rateCalendar, "horizonDays", 730);
+        setField(rateCalendar, "maximumRooms", 100L);
+        setField(rateCalendar, "ttl", Duration.ofHours(1));
+        // a room without rates, so the calendar is built at the base price without a database
+        setField(rateCalendar, "roomRateRepo", Proxy.newProxyInstance(RoomRateRepo.class.getClassLoader(),
+                new Class<?>[]{RoomRateRepo.class}, (proxy, method, args) -> List.of()));
+        rateCalendar.init();
+        Hotel hotel = new Hotel(1L);
+        hotel.setTimeZone(ZONE.getId());
+        room.setId(1L);
+        room.setHotel(hotel);
+        room.setPricePerNight(120.5);
+
+        setField(roomAvailabilityIndex, "enabled", true);
+
+        // fixed seed so every run scans the same bookings
+        Random random = new Random(42);
+        long origin = 1_767_225_600_000L;
+        bookings = new ArrayList<>(bookingCount);
+        for (int i = 0; i < bookingCount; i++) {
+            long start = origin + i * 3 * DAY;
+            long end = start + (1 + random.nextInt(2)) * DAY;
+            Booking booking = new Booking();
+            booking.setCheckInDate(start);
+            booking.setCheckOutDate(end);
+            bookings.add(booking);
+            roomAvailabilityIndex.add(1L, start, end);
+        }
+        // a free gap after the last booking, the worst case for a linear scan
+        checkInDate = origin + bookingCount * 3L * DAY + DAY;
+        checkOutDate = checkInDate + 2 * DAY;
+    }
+
+    @Benchmark
+    public double quote() {
+        return rateCalendar.quote(room, checkInDate, checkOutDate);
+    }
+
+    @Benchmark
+    public boolean overlapsScan() {
+        long from = checkInDate;
+        long to = checkOutDate;
+        return bookings.stream().noneMatch(booking -> booking.overlaps(from, to));
+    }
+
+    @Benchmark
+    public boolean indexLookup() {
+        return !roomAvailabilityIndex.overlaps(1L, checkInDate, checkOutDate);
+    }
+
+    @Benchmark
+    public List<RoomNightAvailabilityStore.Segment> cacheKeySegments() {
+        return RoomNightAvailabilityStore.segments(1L, checkInDate, checkOutDate, ZONE);
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,176 @@
+package com.hotel.booking.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.config.BinaryBookingEventCodec;
+import com.hotel.booking.dtos.request.CreateBooking;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.User;
+import com.hotel.booking.repository.OutboxRepo;
+import com.hotel.booking.repository.RoomRateRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * `BookingService.bookHotel` under platform and virtual threads, with synthetic I/O. Every benchmark
+ * thread is a client waiting for its request, which runs on either a fixed pool sized like the default
+ * Tomcat pool or one virtual thread per request. The service and its in-memory collaborators are the
+ * real ones; Redis and Postgres are stand-ins that sleep for fixed latencies, the outbox insert while
+ * holding one of `poolSize` connections. The numbers compare the threading modes on this request
+ * shape, not the real stores.
+ * <p>
+ * The virtual mode needs a Java 21 runtime, run with `./gradlew jmh -PjavaVersion=21`.
+ */
+@State(Scope.Benchmark)
+@Threads(1000)
+public class BookHotelSyntheticLatencyBenchmark {
+
+    private static final long POSTGRES_MICROS = 2_000;
+
+    private static final long REDIS_MICROS = 300;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"200"})
+    private int platformThreads;
+
+    @Param({"10", "40"})
+    private int poolSize;
+
+    private ExecutorService executor;
+
+    private Semaphore connections;
+
+    private final BookingService bookingService = new BookingService();
+
+    private final CreateBooking createBooking = new CreateBooking();
+
+    @Setup
+    public void setUp() {
+        executor = "virtual".equals(mode) ? newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(platformThreads);
+        connections = new Semaphore(poolSize, true);
+
+        Room room = new Room();
+        room.setId(7L);
+        room.setHotel(new Hotel(3L));
+        room.setPricePerNight(120.5);
+        User user = new User();
+        user.setId(11L);
+        createBooking.setRoomId(room.getId());
+        createBooking.setUserId(user.getId());
+        createBooking.setCheckInDate(1_780_000_000_000L);
+        createBooking.setCheckOutDate(1_780_259_200_000L);
+        createBooking.setTotalPrice(361.5);
+
+        // a room without rates, so the calendar is built at the base price without a database
+        RateCalendar rateCalendar = new RateCalendar();
+        setField(rateCalendar, "horizonDays", 730);
+        setField(rateCalendar, "maximumRooms", 100L);
+        setField(rateCalendar, "ttl", Duration.ofHours(1));
+        setField(rateCalendar, "roomRateRepo", Proxy.newProxyInstance(RoomRateRepo.class.getClassLoader(),
+                new Class<?>[]{RoomRateRepo.class}, (proxy, method, args) -> List.of()));
+        rateCalendar.init();
+
+        setField(bookingService, "objectMapper", new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        setField(bookingService, "bookingEventCodec", new BinaryBookingEventCodec());
+        setField(bookingService, "meterRegistry", new SimpleMeterRegistry());
+        setField(bookingService, "rateCalendar", rateCalendar);
+        // not loaded, so every availability check goes to the bitmaps as on a node that just started
+        setField(bookingService, "roomAvailabilityIndex", new RoomAvailabilityIndex());
+        setField(bookingService, "entityCache", new EntityCache() {
+            @Override
+            public Optional<Room> findRoom(Long roomId) {
+                return Optional.of(room);
+            }
+
+            @Override
+            public Optional<User> findUser(Long userId) {
+                return Optional.of(user);
+            }
+        });
+        setField(bookingService, "roomNightAvailabilityStore", new RoomNightAvailabilityStore() {
+            @Override
+            public boolean isAvailable(Long roomId, long checkInDate, long checkOutDate) {
+                sleep(REDIS_MICROS);
+                return true;
+            }
+
+            @Override
+            public boolean hold(Booking booking) {
+                sleep(REDIS_MICROS);
+                return true;
+            }
+        });
+        setField(bookingService, "outboxEnabled", true);
+        setField(bookingService, "bookingTopic", "booking");
+        setField(bookingService, "outboxRepo", Proxy.newProxyInstance(OutboxRepo.class.getClassLoader(),
+                new Class<?>[]{OutboxRepo.class}, (proxy, method, args) -> {
+                    if (!"saveAll".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    connections.acquireUninterruptibly();
+                    try {
+                        sleep(POSTGRES_MICROS);
+                    } finally {
+                        connections.release();
+                    }
+                    return args[0];
+                }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Booking bookHotel() throws Exception {
+        return executor.submit(() -> bookingService.bookHotel(createBooking)).get();
+    }
+
+    private static void sleep(long micros) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    /**
+     * Looked up reflectively so that the benchmarks still compile for Java 17.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads need a Java 21 runtime", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.hotel.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.config.BinaryBookingEventCodec;
+import com.hotel.booking.config.BookingEventCodec;
+import com.hotel.booking.config.JsonBookingEventCodec;
+import com.hotel.booking.dtos.request.CreateBooking;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.User;
+import com.hotel.booking.enums.BookingStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+
+/**
+ * Serialization work done for a booking: mapping the request to the entity in `BookingService.bookHotel`,
+ * writing the entity, whose room and user are reduced to their ids, and encoding and decoding the Kafka
+ * event in the JSON and in the binary format. The payload sizes are checked by `BookingEventCodecTest`.
+ */
+@State(Scope.Benchmark)
+public class BookingSerializationBenchmark {
+
+    // same lenient mapping Spring Boot applies to its auto-configured ObjectMapper
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final BookingEventCodec jsonCodec = new JsonBookingEventCodec(objectMapper);
+
+    private final BookingEventCodec binaryCodec = new BinaryBookingEventCodec();
+
+    private CreateBooking createBooking;
+
+    private Booking booking;
+
+    private byte[] jsonEvent;
+
+    private byte[] binaryEvent;
+
+    @Setup
+    public void setUp() {
+        createBooking = new CreateBooking();
+        createBooking.setRoomId(7L);
+        createBooking.setUserId(11L);
+        createBooking.setCheckInDate(1_780_000_000_000L);
+        createBooking.setCheckOutDate(1_780_259_200_000L);
+        createBooking.setTotalPrice(361.5);
+
+        // only the ids of the room and the user are written, as in the event `bookHotel` publishes
+        Room room = new Room();
+        room.setId(7L);
+        User user = new User();
+        user.setId(11L);
+
+        booking = objectMapper.convertValue(createBooking, Booking.class);
+        booking.setRoom(room);
+        booking.setUser(user);
+        booking.setStatus(BookingStatus.BOOKED);
+        booking.setEventId(UUID.fromString("5b3f8c9e-2d41-4a7e-9f0c-6e1d2a3b4c5d"));
+
+        jsonEvent = jsonCodec.encode(booking);
+        binaryEvent = binaryCodec.encode(booking);
+    }
+
+    @Benchmark
+    public Booking convertCreateBooking() {
+        return objectMapper.convertValue(createBooking, Booking.class);
+    }
+
+    @Benchmark
+    public String writeBookingMessage() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(booking);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonEvent() {
+        return jsonCodec.encode(booking);
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryEvent() {
+        return binaryCodec.encode(booking);
+    }
+
+    @Benchmark
+    public Booking decodeJsonEvent() {
+        return jsonCodec.decode(jsonEvent);
+    }
+
+    @Benchmark
+    public Booking decodeBinaryEvent() {
+        return binaryCodec.decode(binaryEvent);
+    }
+}
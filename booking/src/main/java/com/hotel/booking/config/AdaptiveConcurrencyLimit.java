@@ -0,0 +1,130 @@
+package com.hotel.booking.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit adjusted by additive increase and multiplicative decrease (AIMD). A request is
+ * admitted while fewer requests than the limit are in flight. Every request completing within the
+ * latency threshold raises the limit by one, as long as at least half of it was used, and a request
+ * that failed or exceeded the threshold cuts it by the backoff ratio. The requests in flight during an
+ * overload all tend to complete slowly, so the limit is cut at most once per latency threshold rather
+ * than once per slow request. When the database or Redis slows down the limit therefore shrinks to
+ * what they still serve in time, and the excess is rejected at once instead of queueing on the
+ * request threads.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile int limit;
+
+    private boolean decreased;
+
+    private long lastDecreaseNanos;
+
+    /**
+     * @param initialLimit          The limit used until the first requests completed.
+     * @param minLimit              The limit never goes below this value, however slow the requests are.
+     * @param maxLimit              The limit never goes above this value, e.g. the size of the request
+     *                              thread pool.
+     * @param latencyThresholdNanos Requests slower than this count as a sign of overload.
+     * @param backoffRatio          The factor, between 0 and 1, applied to the limit on overload.
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+        if (minLimit < 1 || minLimit > maxLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit settings");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * The function admits a request if the limit is not reached yet. An admitted request must be
+     * followed by exactly one call of `release`.
+     *
+     * @return true if the request may proceed, false if it must be rejected.
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * The function ends an admitted request and adjusts the limit from its outcome.
+     *
+     * @param latencyNanos How long the request took.
+     * @param failed       Whether the request failed on the server side, e.g. answered with a 5xx status.
+     */
+    public void release(long latencyNanos, boolean failed) {
+        release(latencyNanos, failed, System.nanoTime());
+    }
+
+    void release(long latencyNanos, boolean failed, long nowNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (failed || latencyNanos > latencyThresholdNanos) {
+                // the other requests caught in the same slowdown must not cut the limit again
+                if (!decreased || nowNanos - lastDecreaseNanos >= latencyThresholdNanos) {
+                    limit = Math.max(minLimit, (int) (limit * backoffRatio));
+                    decreased = true;
+                    lastDecreaseNanos = nowNanos;
+                }
+            } else if (inFlightBefore * 2 >= limit) {
+                // only grow a limit that is actually used, an idle node must not build up headroom
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    /**
+     * @return The largest number of requests currently admitted at the same time.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The number of admitted requests that have not completed yet.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The number of requests admitted since startup.
+     */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return The number of requests rejected since startup.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
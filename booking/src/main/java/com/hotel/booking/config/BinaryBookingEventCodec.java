@@ -0,0 +1,91 @@
+package com.hotel.booking.config;
+
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.User;
+import com.hotel.booking.enums.BookingStatus;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Fixed size binary booking event. Version 2 is laid out big endian as
+ * <pre>
+ * version:u8 flags:u8 id:i64 roomId:i64 userId:i64 checkInDate:i64 checkOutDate:i64 totalPrice:f64 status:u8
+ * eventId:u128
+ * </pre>
+ * where the flags tell whether the booking id and the event id are set, the booking id being only
+ * assigned once the consumer persisted the booking, and the status is 0 when unset and
+ * `ordinal + 1` otherwise. Version 1 is the same layout without the event id and is still read. A
+ * new version gets a new first byte, which is never `{` so JSON events are told apart from binary ones.
+ */
+public class BinaryBookingEventCodec implements BookingEventCodec {
+
+    public static final byte VERSION = 2;
+
+    public static final int SIZE = 2 + 7 * Long.BYTES + Double.BYTES + 1;
+
+    static final byte VERSION_1 = 1;
+
+    private static final int HAS_ID = 1;
+
+    private static final int HAS_EVENT_ID = 2;
+
+    // written by code, so BookingStatus constants may only ever be appended
+    private static final BookingStatus[] STATUSES = BookingStatus.values();
+
+    @Override
+    public byte[] encode(Booking booking) {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.put(VERSION);
+        buffer.put((byte) ((booking.getId() == null ? 0 : HAS_ID) | (booking.getEventId() == null ? 0 : HAS_EVENT_ID)));
+        buffer.putLong(booking.getId() == null ? 0 : booking.getId());
+        buffer.putLong(booking.getRoom().getId());
+        buffer.putLong(booking.getUser().getId());
+        buffer.putLong(booking.getCheckInDate());
+        buffer.putLong(booking.getCheckOutDate());
+        buffer.putDouble(booking.getTotalPrice());
+        buffer.put((byte) (booking.getStatus() == null ? 0 : booking.getStatus().ordinal() + 1));
+        UUID eventId = booking.getEventId();
+        buffer.putLong(eventId == null ? 0 : eventId.getMostSignificantBits());
+        buffer.putLong(eventId == null ? 0 : eventId.getLeastSignificantBits());
+        return buffer.array();
+    }
+
+    @Override
+    public Booking decode(byte[] payload) {
+        if (payload.length == 0 || (payload[0] != VERSION && payload[0] != VERSION_1)) {
+            throw new IllegalArgumentException("Unsupported booking event version " + (payload.length == 0 ? "none" : payload[0]));
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload, 1, payload.length - 1);
+            int flags = buffer.get();
+            long id = buffer.getLong();
+            Booking booking = new Booking();
+            booking.setId((flags & HAS_ID) != 0 ? id : null);
+            Room room = new Room();
+            room.setId(buffer.getLong());
+            booking.setRoom(room);
+            User user = new User();
+            user.setId(buffer.getLong());
+            booking.setUser(user);
+            booking.setCheckInDate(buffer.getLong());
+            booking.setCheckOutDate(buffer.getLong());
+            booking.setTotalPrice(buffer.getDouble());
+            int status = buffer.get();
+            if (status < 0 || status > STATUSES.length) {
+                throw new IllegalArgumentException("Unknown booking status code " + status);
+            }
+            booking.setStatus(status == 0 ? null : STATUSES[status - 1]);
+            if (payload[0] == VERSION) {
+                long mostSignificantBits = buffer.getLong();
+                long leastSignificantBits = buffer.getLong();
+                booking.setEventId((flags & HAS_EVENT_ID) != 0 ? new UUID(mostSignificantBits, leastSignificantBits) : null);
+            }
+            return booking;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated booking event of " + payload.length + " bytes");
+        }
+    }
+}
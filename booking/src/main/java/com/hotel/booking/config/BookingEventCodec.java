@@ -0,0 +1,28 @@
+package com.hotel.booking.config;
+
+import com.hotel.booking.entity.Booking;
+
+/**
+ * Serializer and deserializer pair of the booking events published on the booking topic. An event
+ * carries the ids, dates, price and status of a booking, never the room, hotel or user themselves.
+ */
+public interface BookingEventCodec {
+
+    /**
+     * The function writes a booking as an event payload.
+     *
+     * @param booking The booking, with its room and user set.
+     * @return The payload of the event.
+     */
+    byte[] encode(Booking booking);
+
+    /**
+     * The function reads a booking back from an event payload. The room and user of the booking
+     * only hold their ids.
+     *
+     * @param payload The payload of the event.
+     * @return The booking.
+     * @throws IllegalArgumentException If the payload is not a booking event this codec can read.
+     */
+    Booking decode(byte[] payload);
+}
@@ -0,0 +1,44 @@
+package com.hotel.booking.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.entity.Booking;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The booking event codec used by the producer side and the consumers. Events are written in the
+ * format of `booking.event.format`, `binary` by default or `json`, and read in either format whatever the
+ * setting, recognising JSON by its leading `{`. Producers can therefore switch format while
+ * consumers still drain the events of the other one.
+ */
+@Component
+public class BookingEvents implements BookingEventCodec {
+
+    private final BookingEventCodec binary = new BinaryBookingEventCodec();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${booking.event.format:binary}")
+    private String format;
+
+    private volatile BookingEventCodec json;
+
+    @Override
+    public byte[] encode(Booking booking) {
+        return "binary".equalsIgnoreCase(format) ? binary.encode(booking) : json().encode(booking);
+    }
+
+    @Override
+    public Booking decode(byte[] payload) {
+        return payload.length > 0 && payload[0] == '{' ? json().decode(payload) : binary.decode(payload);
+    }
+
+    private BookingEventCodec json() {
+        if (json == null) {
+            json = new JsonBookingEventCodec(objectMapper);
+        }
+        return json;
+    }
+}
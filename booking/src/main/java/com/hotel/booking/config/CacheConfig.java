@@ -0,0 +1,59 @@
+package com.hotel.booking.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hotel.booking.service.EntityCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * This function creates the cache manager of the room, hotel and user caches, bounded in size
+     * and time to live and recording hit and miss statistics.
+     *
+     * @param maximumSize The largest number of entries kept per cache.
+     * @param ttl         How long an entry is kept after it was loaded.
+     * @return A Caffeine backed `CacheManager` bean is being returned.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${entity.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${entity.cache.ttl:10m}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(EntityCache.ROOMS, EntityCache.HOTELS, EntityCache.USERS);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+
+    /**
+     * This function subscribes to the cache invalidation channel and evicts the local copy of every
+     * entity changed on any node.
+     *
+     * @param connectionFactory   The Redis connection factory.
+     * @param entityCache         The local entity cache.
+     * @param invalidationChannel The channel invalidations are published on.
+     * @return A `RedisMessageListenerContainer` bean is being returned.
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory, EntityCache entityCache,
+                                                                            @Value("${entity.cache.invalidation-channel:entity-cache-invalidation}") String invalidationChannel) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> entityCache.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(invalidationChannel));
+        return container;
+    }
+}
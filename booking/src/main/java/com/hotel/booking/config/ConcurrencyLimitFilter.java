@@ -0,0 +1,129 @@
+package com.hotel.booking.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sheds the requests of an endpoint group exceeding its adaptive concurrency limit with a 503 and a
+ * `Retry-After` header, before they take a database connection or wait on Redis. Requests outside of
+ * any group, e.g. the cheap reads, are not limited and keep being served while a group is overloaded.
+ */
+@Component
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * The single booking writes: creating a booking and cancelling one.
+     */
+    public static final String BOOKINGS_GROUP = "bookings";
+
+    /**
+     * The batch bookings, limited apart since a request holding many bookings takes longer than a
+     * single one without being a sign of overload.
+     */
+    public static final String BOOKINGS_BATCH_GROUP = "bookings-batch";
+
+    @Value("${booking.limiter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${booking.limiter.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${booking.limiter.min-limit:4}")
+    private int minLimit;
+
+    @Value("${booking.limiter.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${booking.limiter.latency-threshold:500ms}")
+    private Duration latencyThreshold;
+
+    @Value("${booking.limiter.batch-latency-threshold:5s}")
+    private Duration batchLatencyThreshold;
+
+    @Value("${booking.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${booking.limiter.retry-after:1}")
+    private int retryAfterSeconds;
+
+    private final Map<String, AdaptiveConcurrencyLimit> limits = new LinkedHashMap<>();
+
+    @PostConstruct
+    void init() {
+        limits.put(BOOKINGS_GROUP, new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyThreshold.toNanos(), backoffRatio));
+        limits.put(BOOKINGS_BATCH_GROUP, new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, batchLatencyThreshold.toNanos(), backoffRatio));
+    }
+
+    /**
+     * @return The limit of every endpoint group, by group name.
+     */
+    public Map<String, AdaptiveConcurrencyLimit> getLimits() {
+        return limits;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || groupOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String group = groupOf(request);
+        AdaptiveConcurrencyLimit limit = limits.get(group);
+        if (!limit.tryAcquire()) {
+            log.debug("rejected {} {} above the {} limit of {}", request.getMethod(), request.getRequestURI(), group, limit.getLimit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many " + group + " requests in progress, retry later");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            limit.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * The function tells which endpoint group a request belongs to.
+     *
+     * @param request The incoming request.
+     * @return The name of the group, or null for requests that are not limited.
+     */
+    static String groupOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if (HttpMethod.POST.matches(method) && path.equals("/bookings")) {
+            return BOOKINGS_GROUP;
+        }
+        if (HttpMethod.POST.matches(method) && path.equals("/bookings/batch")) {
+            return BOOKINGS_BATCH_GROUP;
+        }
+        if (HttpMethod.DELETE.matches(method) && path.startsWith("/bookings/")) {
+            return BOOKINGS_GROUP;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.hotel.booking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * This function creates the connection pool of the primary database from the
+     * `spring.datasource.*` properties, as Spring Boot would when no data source is declared.
+     *
+     * @param properties The `spring.datasource.*` properties.
+     * @return A Hikari `DataSource` bean of the primary is being returned.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * This function creates the data source routing the `@ReadReplica` reads to the replicas listed
+     * in `booking.datasource.replica.urls`, with one small read-only pool per replica. Without any
+     * replica every connection comes from the primary.
+     *
+     * @param primaryDataSource The connection pool of the primary.
+     * @param properties        The `spring.datasource.*` properties, whose driver is used for the replicas.
+     * @param urls              The JDBC urls of the replicas, empty to read from the primary only.
+     * @param username          The user of the replicas.
+     * @param password          The password of the replicas.
+     * @param poolSize          The largest number of connections kept per replica.
+     * @param connectionTimeout How long, in milliseconds, a read waits for a replica connection before
+     *                          the replica is marked down and the primary used.
+     * @param maxLagMillis      The largest replication lag, in milliseconds, of a replica in use; 0
+     *                          turns the lag check off.
+     * @return A `ReplicaRoutingDataSource` bean is being returned.
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                                             @Value("${booking.datasource.replica.urls:}") List<String> urls,
+                                                             @Value("${booking.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                                             @Value("${booking.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                                             @Value("${booking.datasource.replica.pool-size:5}") int poolSize,
+                                                             @Value("${booking.datasource.replica.connection-timeout:2000}") long connectionTimeout,
+                                                             @Value("${booking.datasource.replica.max-lag:10000}") long maxLagMillis) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.getDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setConnectionTimeout(connectionTimeout);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLagMillis, (int) Math.max(1, connectionTimeout / 1000));
+    }
+
+    /**
+     * This function creates the data source used by JPA and JDBC. Connections are only taken from the
+     * routing data source when the first statement runs, once the transaction, if any, has started and
+     * is known to be read-only or not.
+     *
+     * @param replicaRoutingDataSource The data source choosing between the primary and the replicas.
+     * @return A `LazyConnectionDataSourceProxy` bean is being returned.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * This function adds the advice marking the calls of `@ReadReplica` methods to every Spring Data
+     * repository, before the repository factories are initialized.
+     *
+     * @return A `BeanPostProcessor` bean is being returned.
+     */
+    @Bean
+    public static BeanPostProcessor readReplicaRepositoryPostProcessor() {
+        ReplicaRoutingDataSource.ReadReplicaInterceptor interceptor = new ReplicaRoutingDataSource.ReadReplicaInterceptor();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(interceptor)));
+                }
+                return bean;
+            }
+        };
+    }
+}
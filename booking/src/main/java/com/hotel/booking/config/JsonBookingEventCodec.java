@@ -0,0 +1,38 @@
+package com.hotel.booking.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.entity.Booking;
+
+import java.io.IOException;
+
+/**
+ * The JSON booking event, the `Booking` entity written by Jackson with only the ids of its room and
+ * user. Kept to read the events published before the binary format and for tooling that needs a
+ * readable payload.
+ */
+public class JsonBookingEventCodec implements BookingEventCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonBookingEventCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encode(Booking booking) {
+        try {
+            return objectMapper.writeValueAsBytes(booking);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Booking cannot be written as JSON", e);
+        }
+    }
+
+    @Override
+    public Booking decode(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, Booking.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON booking event : " + e.getMessage(), e);
+        }
+    }
+}
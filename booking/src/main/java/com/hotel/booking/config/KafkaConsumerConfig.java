@@ -0,0 +1,30 @@
+package com.hotel.booking.config;
+
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /**
+     * This function creates a listener container factory delivering each poll as one list of records,
+     * configured from the same `spring.kafka.*` properties as the default factory.
+     *
+     * @param configurer           The Spring Boot configurer applying the `spring.kafka.listener.*`
+     *                             properties to the factory.
+     * @param kafkaConsumerFactory The consumer factory auto-configured from `spring.kafka.consumer.*`.
+     * @return A batch enabled `ConcurrentKafkaListenerContainerFactory` bean is being returned.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(true);
+        return factory;
+    }
+}
@@ -1,7 +1,9 @@
 package com.hotel.booking.config;
 
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
@@ -16,18 +18,44 @@ import java.util.Map;
 @Configuration
 @EnableScheduling
 public class KafkaProducerConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${booking.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${booking.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${booking.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${booking.producer.acks:all}")
+    private String acks;
+
+    @Value("${booking.producer.enable-idempotence:true}")
+    private boolean enableIdempotence;
+
     /**
      * This function creates a Kafka producer factory with configuration properties for connecting to a
-     * Kafka broker.
+     * Kafka broker. Keys are strings and values raw bytes, as written by the `BookingEventCodec`.
+     * Batching, compression, acknowledgements and idempotence are read from the
+     * `booking.producer.*` properties.
      *
      * @return A `ProducerFactory` bean is being returned.
      */
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, byte[]> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, enableIdempotence);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -37,7 +65,7 @@ public class KafkaProducerConfig {
      * @return A KafkaTemplate object is being returned.
      */
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public KafkaTemplate<String, byte[]> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,65 @@
 package com.hotel.booking.config;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
 @Component
+@Slf4j
 public class MessageProducer {
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    private final LongAdder sentCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder sendLatencyNanos = new LongAdder();
+
+    private final LongAdder droppedCallbacks = new LongAdder();
+
+    @Value("${booking.producer.callback-threads:2}")
+    private int callbackThreads;
+
+    @Value("${booking.producer.callback-queue-capacity:10000}")
+    private int callbackQueueCapacity;
+
+    // failure callbacks go to Redis, which must not happen on the network thread of the producer
+    private Executor callbackExecutor;
+
+    @PostConstruct
+    void init() {
+        callbackExecutor = new ThreadPoolExecutor(callbackThreads, callbackThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(callbackQueueCapacity), new CustomizableThreadFactory("producer-callback-"),
+                (task, executor) -> {
+                    droppedCallbacks.increment();
+                    log.warn("failure callback queue is full, dropping a callback");
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (callbackExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
 
     /**
      * The `sendMessage` function sends a message to a specified topic using Kafka.
@@ -17,11 +68,87 @@ public class MessageProducer {
      *                which messages are received by the consumer. It acts as a channel for communication in Apache
      *                Kafka.
      * @param message The `message` parameter in the `sendMessage` method represents the actual content
-     *                or data that you want to send to the specified Kafka topic. It could be any information, text,
-     *                JSON, or binary data that you want to publish to the Kafka topic for consumption by subscribers.
+     *                or data that you want to send to the specified Kafka topic, e.g. an encoded booking event
+     *                or a record forwarded as is.
+     */
+    public void sendMessage(String topic, byte[] message) {
+        sendMessage(topic, null, message, null);
+    }
+
+    /**
+     * The `sendMessage` function sends a keyed message to a topic without waiting for the broker. All
+     * messages with the same key land on the same partition, which keeps them in order. The outcome is
+     * counted once the broker answers and failures are logged and handed to `onFailure`, which runs on
+     * a small bounded pool rather than on the producer's network thread. When that pool is saturated
+     * the callback is dropped and counted, e.g. a hold is then left to expire.
+     *
+     * @param topic     The topic the message is published to.
+     * @param key       The partitioning key, e.g. the room id of a booking; may be null.
+     * @param message   The content of the message.
+     * @param onFailure Called with the cause when the message could not be delivered; may be null.
+     */
+    public void sendMessage(String topic, String key, byte[] message, Consumer<Throwable> onFailure) {
+        CompletableFuture<SendResult<String, byte[]>> sent = send(topic, key, message);
+        if (onFailure == null) {
+            return;
+        }
+        sent.whenCompleteAsync((result, ex) -> {
+            if (ex != null) {
+                onFailure.accept(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        }, callbackExecutor);
+    }
+
+    /**
+     * The `send` function hands a keyed message to the producer and returns the pending outcome, for
+     * callers that wait for whole batches to be acknowledged. The outcome is counted and failures are
+     * logged like for `sendMessage`.
+     *
+     * @param topic   The topic the message is published to.
+     * @param key     The partitioning key; may be null.
+     * @param message The content of the message.
+     * @return A future completed once the broker acknowledged or rejected the message.
+     */
+    public CompletableFuture<SendResult<String, byte[]>> send(String topic, String key, byte[] message) {
+        long start = System.nanoTime();
+        return kafkaTemplate.send(topic, key, message).whenComplete((result, ex) -> {
+            sendLatencyNanos.add(System.nanoTime() - start);
+            if (ex == null) {
+                sentCount.increment();
+                return;
+            }
+            failedCount.increment();
+            log.error("failed to send message with key {} to topic {} : {}", key, topic, ex.getMessage());
+        });
+    }
+
+    /**
+     * @return The number of messages acknowledged by the broker since startup.
+     */
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * @return The number of messages that could not be delivered since startup.
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * @return The total time, in nanoseconds, between handing messages to the producer and their
+     * completion.
+     */
+    public long getSendLatencyNanos() {
+        return sendLatencyNanos.sum();
+    }
+
+    /**
+     * @return The number of failure callbacks dropped since startup because their pool was saturated.
      */
-    public void sendMessage(String topic, String message) {
-        kafkaTemplate.send(topic, message);
+    public long getDroppedCallbacks() {
+        return droppedCallbacks.sum();
     }
 
-}
\ No newline at end of file
+}
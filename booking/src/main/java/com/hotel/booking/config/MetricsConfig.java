@@ -0,0 +1,104 @@
+package com.hotel.booking.config;
+
+import com.hotel.booking.service.RoomNightAvailabilityStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * This function publishes the counters kept by the Redis availability store: probes that found
+     * the year bitmap loaded (hit) or not (miss), and how the misses were loaded, by this node from the
+     * database, by joining a load already running on this node, or by waiting on another node.
+     *
+     * @param store The availability store whose counters are published.
+     * @return A `MeterBinder` bean is being returned.
+     */
+    @Bean
+    public MeterBinder availabilityStoreMetrics(RoomNightAvailabilityStore store) {
+        return registry -> {
+            FunctionCounter.builder("booking.availability.probes", store, RoomNightAvailabilityStore::getProbeHits)
+                    .tag("result", "hit").description("Probes of loaded room year bitmaps").register(registry);
+            FunctionCounter.builder("booking.availability.probes", store, RoomNightAvailabilityStore::getProbeMisses)
+                    .tag("result", "miss").description("Probes of room year bitmaps not loaded yet").register(registry);
+            FunctionCounter.builder("booking.availability.loads", store, RoomNightAvailabilityStore::getDatabaseLoads)
+                    .tag("source", "database").register(registry);
+            FunctionCounter.builder("booking.availability.loads", store, RoomNightAvailabilityStore::getCoalescedLoads)
+                    .tag("source", "coalesced").register(registry);
+            FunctionCounter.builder("booking.availability.loads", store, RoomNightAvailabilityStore::getLeaseWaits)
+                    .tag("source", "lease_wait").register(registry);
+        };
+    }
+
+    /**
+     * This function publishes the counters of the Kafka producer: messages acknowledged or failed, the
+     * time from handing a message to the producer until the broker answered, and the failure callbacks
+     * dropped by their saturated pool.
+     *
+     * @param producer The producer whose counters are published.
+     * @return A `MeterBinder` bean is being returned.
+     */
+    @Bean
+    public MeterBinder producerMetrics(MessageProducer producer) {
+        return registry -> {
+            FunctionCounter.builder("booking.producer.messages", producer, MessageProducer::getSentCount)
+                    .tag("result", "sent").register(registry);
+            FunctionCounter.builder("booking.producer.messages", producer, MessageProducer::getFailedCount)
+                    .tag("result", "failed").register(registry);
+            FunctionTimer.builder("booking.producer.send", producer,
+                            p -> p.getSentCount() + p.getFailedCount(), MessageProducer::getSendLatencyNanos, TimeUnit.NANOSECONDS)
+                    .description("Time until the broker acknowledged or rejected a message").register(registry);
+            FunctionCounter.builder("booking.producer.callbacks.dropped", producer, MessageProducer::getDroppedCallbacks)
+                    .register(registry);
+        };
+    }
+
+    /**
+     * This function publishes how the reads meant for a replica were served: connections handed out
+     * by a replica or taken from the primary because no replica was usable, and the number of healthy
+     * replicas.
+     *
+     * @param dataSource The routing data source whose counters are published.
+     * @return A `MeterBinder` bean is being returned.
+     */
+    @Bean
+    public MeterBinder replicaRoutingMetrics(ReplicaRoutingDataSource dataSource) {
+        return registry -> {
+            FunctionCounter.builder("booking.datasource.replica.connections", dataSource, ReplicaRoutingDataSource::getReplicaConnections)
+                    .tag("source", "replica").register(registry);
+            FunctionCounter.builder("booking.datasource.replica.connections", dataSource, ReplicaRoutingDataSource::getPrimaryFallbacks)
+                    .tag("source", "primary_fallback").register(registry);
+            Gauge.builder("booking.datasource.replica.healthy", dataSource, ReplicaRoutingDataSource::getHealthyReplicas)
+                    .description("Read replicas currently in use").register(registry);
+        };
+    }
+
+    /**
+     * This function publishes the adaptive concurrency limit of every endpoint group, the requests in
+     * flight and the requests admitted or shed.
+     *
+     * @param filter The filter holding the limits.
+     * @return A `MeterBinder` bean is being returned.
+     */
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(ConcurrencyLimitFilter filter) {
+        return registry -> filter.getLimits().forEach((group, limit) -> {
+            Gauge.builder("booking.limiter.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("group", group).description("Requests admitted at the same time").register(registry);
+            Gauge.builder("booking.limiter.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("group", group).register(registry);
+            FunctionCounter.builder("booking.limiter.requests", limit, AdaptiveConcurrencyLimit::getAccepted)
+                    .tag("group", group).tag("result", "accepted").register(registry);
+            FunctionCounter.builder("booking.limiter.requests", limit, AdaptiveConcurrencyLimit::getRejected)
+                    .tag("group", group).tag("result", "rejected").register(registry);
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.hotel.booking.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository method whose queries may be answered by a read replica. The call is routed to
+ * a healthy replica when it runs outside of a transaction or in a read-only one, and to the primary
+ * otherwise, so a method called from within a writing transaction still sees that transaction's
+ * changes. Only put it on reads that tolerate the replication lag, e.g. listings and searches.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadReplica {
+}
@@ -0,0 +1,248 @@
+package com.hotel.booking.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Data source handing out connections of the primary or of one of the read replicas. A connection is
+ * taken from a replica when it is requested by a `@ReadReplica` repository method running outside of a
+ * transaction or in a read-only one, and from the primary in every other case. Replicas are used in
+ * turn, skipping the ones marked down. A replica is marked down when it fails to hand out a connection,
+ * the request falling back to the primary, and is marked up again by the periodic health check, which
+ * also takes replicas out whose replication lag exceeds `maxLagMillis`.
+ * <p>
+ * The routing looks at the transaction when the connection is taken, so this data source must be
+ * wrapped in a `LazyConnectionDataSourceProxy` that defers taking it until the first statement, after
+ * the transaction manager published whether the transaction is read-only.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    /**
+     * Replay lag of a Postgres standby in milliseconds, 0 when it has replayed everything it received
+     * and null on a server that is not a standby.
+     */
+    static final String LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final long maxLagMillis;
+
+    private final int validationTimeoutSeconds;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder replicaConnections = new LongAdder();
+
+    private final LongAdder primaryFallbacks = new LongAdder();
+
+    /**
+     * @param primary                  The data source of the primary, used for writes and as fallback.
+     * @param replicas                 The data sources of the read replicas, possibly none.
+     * @param maxLagMillis             The largest replication lag a replica may have to be used, 0 to
+     *                                 not check the lag, e.g. for a stand-in that is not a standby.
+     * @param validationTimeoutSeconds How long the health check waits for a replica to answer.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagMillis, int validationTimeoutSeconds) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        this.maxLagMillis = maxLagMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = routeToReplica() ? nextHealthyReplica() : null;
+        if (replica != null) {
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+                primaryFallbacks.increment();
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = routeToReplica() ? nextHealthyReplica() : null;
+        if (replica != null) {
+            try {
+                Connection connection = replica.dataSource.getConnection(username, password);
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+                primaryFallbacks.increment();
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * The function checks every replica and marks it up or down accordingly: a replica is healthy
+     * when it hands out a valid connection and, if a largest lag is set, has replayed the changes of
+     * the primary up to that lag.
+     */
+    @Scheduled(fixedDelayString = "${booking.datasource.replica.health-check-interval:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            String problem = probe(replica);
+            if (problem == null) {
+                if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.info("read replica {} is healthy again", replica.name);
+                }
+            } else {
+                markDown(replica, problem);
+            }
+        }
+    }
+
+    /**
+     * @return The number of connections handed out by a replica since startup.
+     */
+    public long getReplicaConnections() {
+        return replicaConnections.sum();
+    }
+
+    /**
+     * @return The number of connections meant for a replica that were taken from the primary because
+     * no replica was healthy or the chosen one failed.
+     */
+    public long getPrimaryFallbacks() {
+        return primaryFallbacks.sum();
+    }
+
+    /**
+     * @return The number of replicas currently marked healthy.
+     */
+    public int getHealthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    /**
+     * Closes the connection pools of the replicas, the primary being closed by its own bean.
+     */
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private boolean routeToReplica() {
+        if (!Boolean.TRUE.equals(REPLICA_READ.get()) || replicas.isEmpty()) {
+            return false;
+        }
+        // a writing transaction must read its own changes, which the replicas have not seen yet
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private Replica nextHealthyReplica() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        primaryFallbacks.increment();
+        return null;
+    }
+
+    private void markDown(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("read replica {} marked down, reading from the primary : {}", replica.name, reason);
+        }
+    }
+
+    private String probe(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection()) {
+            if (!connection.isValid(validationTimeoutSeconds)) {
+                return "connection is not valid";
+            }
+            if (maxLagMillis <= 0) {
+                return null;
+            }
+            try (Statement statement = connection.createStatement(); ResultSet lag = statement.executeQuery(LAG_QUERY)) {
+                long lagMillis = lag.next() ? lag.getLong(1) : 0;
+                return lagMillis > maxLagMillis ? "replication lag of " + lagMillis + " ms" : null;
+            }
+        } catch (SQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * Advice of the repository proxies marking the calls of `@ReadReplica` methods, so that the
+     * connections taken while they run may come from a replica.
+     */
+    static final class ReadReplicaInterceptor implements MethodInterceptor {
+
+        private final Map<Method, Boolean> replicaMethods = new ConcurrentHashMap<>();
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            boolean replicaRead = replicaMethods.computeIfAbsent(invocation.getMethod(),
+                    method -> AnnotatedElementUtils.hasAnnotation(method, ReadReplica.class));
+            Boolean previous = REPLICA_READ.get();
+            if (replicaRead == Boolean.TRUE.equals(previous)) {
+                return invocation.proceed();
+            }
+            REPLICA_READ.set(replicaRead);
+            try {
+                return invocation.proceed();
+            } finally {
+                if (previous == null) {
+                    REPLICA_READ.remove();
+                } else {
+                    REPLICA_READ.set(previous);
+                }
+            }
+        }
+    }
+}
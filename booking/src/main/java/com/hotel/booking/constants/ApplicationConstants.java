@@ -1,7 +1,17 @@
 package com.hotel.booking.constants;
 
 public class ApplicationConstants {
-    public static final String ROOM_AVAILABILITY = "room_availability:";
-    public static final String DASH = "-";
+    public static final String ROOM_NIGHTS = "room_nights:";
+    public static final String COLON = ":";
+    public static final String CHECKOUT_QUEUE = "booking_checkouts";
+    public static final String CHECKOUT_QUEUE_SEEDED = "booking_checkouts:seeded";
+    public static final String LEADER = "leader:";
+    public static final String ROOM_HOLDS = "room_holds";
+    public static final String ROOM_NIGHTS_LOAD_LEASE = "room_nights_load_lease:";
+    public static final String ROOM_NIGHTS_RELEASES = "room_nights_releases:";
+    public static final String HOTEL_IMPORT = "hotel_import:";
+    public static final String USER_BOOKINGS = "user_bookings:";
+    public static final String USER_BOOKINGS_SEEDED = "user_bookings_seeded:";
+    public static final String USER_BOOKINGS_VIEWS = ":views";
 
 }
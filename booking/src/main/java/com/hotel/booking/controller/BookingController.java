@@ -1,7 +1,9 @@
 package com.hotel.booking.controller;
 
 
+import com.hotel.booking.dtos.request.BookingFilter;
 import com.hotel.booking.dtos.request.CreateBooking;
+import com.hotel.booking.dtos.request.CreateBookingBatch;
 import com.hotel.booking.service.BookingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,9 +13,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
-
-
 @Tag(name = "Bookings")
 @RestController
 @RequestMapping("/bookings")
@@ -39,40 +38,66 @@ public class BookingController {
     }
 
     /**
-     * This API endpoint retrieves all bookings with pagination support.
+     * This function is used to book many hotel rooms at once, e.g. for channel manager integrations.
+     *
+     * @param createBookingBatch The `createBookingBatch` parameter holds the list of bookings to create,
+     *                           each validated like the body of the single booking API.
+     * @return The method `bookHotels` is returning a `ResponseEntity` with one result per booking of the
+     * batch, holding the status it got and the created booking when it was accepted.
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "This API is used for booking many hotel rooms at once.", description = "Book Hotels In Batch")
+    public ResponseEntity<?> bookHotels(@RequestBody @Valid CreateBookingBatch createBookingBatch) {
+        return ResponseEntity.ok(bookingService.bookHotels(createBookingBatch.getBookings()));
+    }
+
+    /**
+     * This API endpoint retrieves all bookings with cursor based pagination support.
      *
-     * @param page The `page` parameter in the `getBookings` method is used to specify the page number
-     *             of the results to be retrieved. It is typically used for pagination, where large sets of data
-     *             are divided into pages to improve performance and user experience. The `page` parameter
-     *             indicates which page of results
-     * @param size The `size` parameter in the `getBookings` method is used to specify the number of
-     *             items (bookings) to be returned per page when paginating the results. It determines the size of
-     *             each page in the paginated response.
-     * @return The `getBookings` method is returning a `ResponseEntity` object with the result of
-     * calling the `bookingService.getBookings(page, size)` method. This response entity will contain
-     * the bookings data retrieved based on the provided page and size parameters.
+     * @param cursor The `cursor` parameter is the `nextCursor` returned with the previous page. It is
+     *               left out for the first page.
+     * @param size   The `size` parameter is the number of bookings to return per page.
+     * @return The `getBookings` method is returning a `ResponseEntity` object with a page of bookings
+     * and the cursor of the next page, which is null on the last page.
      */
     @GetMapping
     @Operation(summary = "This API is used for getting all Bookings.", description = "Get All Booking")
-    public ResponseEntity<?> getBookings(@RequestParam int page, @RequestParam int size) {
-        return ResponseEntity.ok(bookingService.getBookings(page, size));
+    public ResponseEntity<?> getBookings(@RequestParam(required = false) String cursor, @RequestParam int size) {
+        return ResponseEntity.ok(bookingService.getBookings(cursor, size));
+    }
+
+    /**
+     * This API endpoint retrieves a single booking.
+     *
+     * @param bookingId The `bookingId` path variable is the unique identifier of the booking.
+     * @return The `getBooking` method is returning a `ResponseEntity` object with the booking and the
+     * ids of its room, hotel and user.
+     */
+    @GetMapping("/{bookingId}")
+    @Operation(summary = "This API is used for getting a Booking.", description = "Get Booking")
+    public ResponseEntity<?> getBooking(@PathVariable long bookingId) {
+        return ResponseEntity.ok(bookingService.getBooking(bookingId));
     }
 
     /**
-     * This function retrieves all bookings of a specific user based on the user ID and size parameter.
+     * This function retrieves the bookings of a specific user, latest check-in first, with cursor
+     * based pagination.
      *
      * @param userId The `userId` path variable in the `@GetMapping` annotation represents the unique
      *               identifier of the user for whom you want to retrieve bookings.
+     * @param cursor The `cursor` parameter is the `nextCursor` returned with the previous page. It is
+     *               left out for the first page.
      * @param size   The `size` parameter in the `getBookingsByUser` method is used to specify the number
      *               of bookings to retrieve for the user with the given `userId`. It is passed as a request parameter
      *               in the API call. The value of `size` determines how many bookings will be returned in
-     * @return The method `getBookingsByUser` is returning a `ResponseEntity` object with the booking
-     * information for the specified user ID and size.
+     * @return The method `getBookingsByUser` is returning a `ResponseEntity` object with a page of the
+     * bookings of the user and the cursor of the next page, which is null on the last page.
      */
     @GetMapping("/user/{userId}")
     @Operation(summary = "This API is used for get all Bookings of user.", description = "Get All Booking user specific")
-    public ResponseEntity<?> getBookingsByUser(@PathVariable int userId, @RequestParam int size) {
-        return ResponseEntity.ok(bookingService.getBookingsByUser(userId, size));
+    public ResponseEntity<?> getBookingsByUser(@PathVariable int userId, @RequestParam(required = false) String cursor,
+                                               @RequestParam int size) {
+        return ResponseEntity.ok(bookingService.getBookingsByUser(userId, cursor, size));
     }
 
     /**
@@ -84,17 +109,16 @@ public class BookingController {
      * @param size    The `size` parameter in the `getBookingsByUser` method is used to specify the number
      *                of bookings to be returned per page. It determines the size of the page when paginating the
      *                bookings for the user with the specified `userId`.
-     * @param filters The `filters` parameter in the `getBookingsByUser` method is a `Map<String,
-     *                String>` type. This parameter is used to pass key-value pairs of filtering criteria to retrieve
-     *                specific bookings for a user. The keys in the map represent the filtering criteria, and the
-     *                values represent the
+     * @param filter  The `filter` parameter holds the typed filtering criteria: status, roomId,
+     *                hotelId, check-in and check-out ranges and a price range. Any other field is rejected
+     *                with a 400 response.
      * @return The method `getBookingsByUser` is returning a `ResponseEntity` object with the result of
-     * calling `bookingService.getBookingsByUser(userId, filters, size)`.
+     * calling `bookingService.getBookingsByUser(userId, filter, size)`.
      */
     @PostMapping("/user/{userId}/filter")
     @Operation(summary = "This API is used for get all Bookings of user.", description = "Get All Booking user specific")
-    public ResponseEntity<?> getBookingsByUser(@PathVariable int userId, @RequestParam int size, @RequestBody Map<String, String> filters) {
-        return ResponseEntity.ok(bookingService.getBookingsByUser(userId, filters, size));
+    public ResponseEntity<?> getBookingsByUser(@PathVariable int userId, @RequestParam int size, @RequestBody @Valid BookingFilter filter) {
+        return ResponseEntity.ok(bookingService.getBookingsByUser(userId, filter, size));
     }
 
     /**
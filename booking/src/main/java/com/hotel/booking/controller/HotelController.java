@@ -1,17 +1,26 @@
 package com.hotel.booking.controller;
 
 import com.hotel.booking.dtos.request.CreateHotel;
+import com.hotel.booking.dtos.response.CursorPage;
 import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.enums.AmenityMatch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.service.HotelImportService;
 import com.hotel.booking.service.HotelService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 @RestController
 @Tag(name = "Hotels")
 @RequestMapping("/hotel")
@@ -19,6 +28,12 @@ public class HotelController {
     @Autowired
     private HotelService hotelService;
 
+    @Autowired
+    private HotelImportService hotelImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * This Java function creates a hotel registration API endpoint.
      *
@@ -37,19 +52,66 @@ public class HotelController {
     }
 
     /**
-     * This Java API endpoint retrieves a page of hotels based on the specified page number and size.
+     * This Java API endpoint retrieves a page of hotels after the given cursor.
      *
-     * @param page The `page` parameter in the `getHotel` method is used to specify the page number of
-     *             the results to retrieve. It is typically used for pagination, where large sets of data are
-     *             divided into pages to improve performance and user experience.
-     * @param size The `size` parameter in the `getHotel` method is used to specify the number of items
-     *             (hotels) to be displayed per page when fetching the hotels. It determines the size of the page in
-     *             the paginated response.
-     * @return A `ResponseEntity` containing a `Page` of `Hotel` objects is being returned.
+     * @param cursor The `cursor` parameter is the `nextCursor` returned with the previous page. It is
+     *               left out for the first page.
+     * @param size   The `size` parameter is the number of hotels to return per page.
+     * @return A `ResponseEntity` containing a `CursorPage` of `Hotel` objects is being returned.
      */
     @GetMapping
     @Operation(summary = "This API is used for getting all Hotels.", description = "Get All Hotels")
-    public ResponseEntity<Page<Hotel>> getHotel(@RequestParam int page, @RequestParam int size) {
-        return ResponseEntity.ok(hotelService.getHotels(page, size));
+    public ResponseEntity<CursorPage<Hotel>> getHotel(@RequestParam(required = false) String cursor, @RequestParam int size) {
+        return ResponseEntity.ok(hotelService.getHotels(cursor, size));
+    }
+
+    /**
+     * This Java API endpoint searches hotels by location and amenities.
+     *
+     * @param location  The `location` parameter restricts the search to hotels of that location.
+     * @param amenities The `amenities` parameter is a comma separated list of amenities, e.g.
+     *                  `pool,parking`.
+     * @param match     The `match` parameter is `ALL` when a hotel must offer every amenity and `ANY`
+     *                  when one of them is enough.
+     * @param cursor    The `cursor` parameter is the `nextCursor` returned with the previous page. It
+     *                  is left out for the first page.
+     * @param size      The `size` parameter is the number of hotels to return per page.
+     * @return A `ResponseEntity` containing a `CursorPage` of the matching `Hotel` objects.
+     */
+    @GetMapping("/search")
+    @Operation(summary = "This API is used for searching Hotels by location and amenities.", description = "Search Hotels")
+    public ResponseEntity<CursorPage<Hotel>> searchHotels(@RequestParam(required = false) String location,
+                                                          @RequestParam(required = false) List<String> amenities,
+                                                          @RequestParam(defaultValue = "ALL") AmenityMatch match,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(hotelService.searchHotels(location, amenities, match, cursor, size));
+    }
+
+    /**
+     * This Java API endpoint imports hotels with their rooms from an NDJSON body, one `CreateHotel`
+     * document per line. A progress report is written as an NDJSON line after every committed chunk
+     * and a last one with `done` set at the end, so the client can follow the import while it runs.
+     *
+     * @param body     The `body` parameter is the NDJSON stream of hotels, read line by line.
+     * @param importId The `importId` parameter identifies the import. Posting the same file again with
+     *                 the same id resumes after the last committed line.
+     * @param response The `response` the progress reports are streamed to.
+     */
+    @PostMapping(value = "/import", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    @Operation(summary = "This API is used for importing Hotels in bulk.", description = "Import Hotels")
+    public void importHotels(InputStream body, @RequestParam(required = false) String importId,
+                             HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/x-ndjson");
+        hotelImportService.importHotels(body, importId, progress -> {
+            try {
+                response.getOutputStream().write(objectMapper.writeValueAsBytes(progress));
+                response.getOutputStream().write('\n');
+                response.flushBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 }
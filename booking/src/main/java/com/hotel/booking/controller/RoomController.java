@@ -1,5 +1,6 @@
 package com.hotel.booking.controller;
 
+import com.hotel.booking.dtos.request.CreateRoomRate;
 import com.hotel.booking.dtos.request.RoomDTO;
 import com.hotel.booking.service.RoomService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -36,20 +37,59 @@ public class RoomController {
     }
 
     /**
-     * This Java API endpoint retrieves all rooms based on the specified pagination parameters.
+     * This Java API endpoint retrieves all rooms with cursor based pagination support.
      *
-     * @param page The `page` parameter in the `getRooms` method is used to specify the page number of
-     *             the results to be retrieved. It is typically used for pagination, where large sets of data are
-     *             divided into pages to improve performance and user experience.
-     * @param size The `size` parameter in the `getRooms` method is used to specify the number of items
-     *             (in this case, rooms) to be returned per page when paginating the results. It determines the size
-     *             of each page of results that will be returned in the response.
-     * @return The `getRooms` method is returning a `ResponseEntity` object with the result of calling
-     * the `roomService.getRooms(page, size)` method.
+     * @param cursor The `cursor` parameter is the `nextCursor` returned with the previous page. It is
+     *               left out for the first page.
+     * @param size   The `size` parameter is the number of rooms to return per page.
+     * @return The `getRooms` method is returning a `ResponseEntity` object with a page of rooms and the
+     * cursor of the next page, which is null on the last page.
      */
     @GetMapping
     @Operation(summary = "This API is used for getting all Rooms.", description = "Get All Rooms")
-    public ResponseEntity<?> getRooms(@RequestParam int page, @RequestParam int size) {
-        return ResponseEntity.ok(roomService.getRooms(page, size));
+    public ResponseEntity<?> getRooms(@RequestParam(required = false) String cursor, @RequestParam int size) {
+        return ResponseEntity.ok(roomService.getRooms(cursor, size));
+    }
+
+    /**
+     * This API endpoint searches the rooms available for a date range in a hotel or a location.
+     *
+     * @param hotelId      The `hotelId` parameter restricts the search to one hotel.
+     * @param location     The `location` parameter restricts the search to the hotels of a location.
+     * @param checkInDate  The `checkInDate` parameter is the check-in time in milliseconds since the epoch.
+     * @param checkOutDate The `checkOutDate` parameter is the check-out time in milliseconds since the epoch.
+     * @param occupancy    The `occupancy` parameter is the number of guests the room must hold.
+     * @param type         The `type` parameter restricts the search to one room type.
+     * @param limit        The `limit` parameter is the maximum number of rooms to return.
+     * @return The `searchRooms` method is returning a `ResponseEntity` with the available rooms and
+     * the total price of the stay for each of them: the rooms with the cheapest base price, ordered by
+     * their total.
+     */
+    @GetMapping("/search")
+    @Operation(summary = "This API is used for searching available Rooms.", description = "Search Available Rooms")
+    public ResponseEntity<?> searchRooms(@RequestParam(required = false) Long hotelId,
+                                         @RequestParam(required = false) String location,
+                                         @RequestParam long checkInDate,
+                                         @RequestParam long checkOutDate,
+                                         @RequestParam(defaultValue = "1") int occupancy,
+                                         @RequestParam(required = false) String type,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(roomService.searchAvailableRooms(hotelId, location, type, occupancy, checkInDate, checkOutDate, limit));
+    }
+
+    /**
+     * This API endpoint sets the nightly price of a room over a date range, e.g. for a season or a
+     * weekend. Nights without a rate keep the base price of the room.
+     *
+     * @param roomId   The `roomId` parameter is a path variable representing the unique identifier of
+     *                 the room.
+     * @param roomRate The `roomRate` parameter holds the first and last night of the range and the
+     *                 price of each night.
+     * @return The `setRates` method is returning a `ResponseEntity` with the number of nights priced.
+     */
+    @PutMapping("/{roomId}/rates")
+    @Operation(summary = "This API is used for setting the nightly rates of a Room.", description = "Set Room Rates")
+    public ResponseEntity<?> setRates(@PathVariable long roomId, @RequestBody @Valid CreateRoomRate roomRate) {
+        return ResponseEntity.ok(roomService.setRates(roomId, roomRate));
     }
 }
@@ -0,0 +1,11 @@
+package com.hotel.booking.dtos.projection;
+
+/**
+ * Lightweight read of a booking carrying only its id and the id of the user who made it, used to
+ * find the per-user read models a change of status belongs to.
+ */
+public interface BookingOwner {
+    Long getId();
+
+    Long getUserId();
+}
@@ -0,0 +1,15 @@
+package com.hotel.booking.dtos.projection;
+
+/**
+ * Lightweight read of an active booking carrying only the ids and stay boundaries, used to
+ * warm in-memory structures without loading the full `Booking` graph.
+ */
+public interface BookingStay {
+    Long getId();
+
+    Long getRoomId();
+
+    long getCheckInDate();
+
+    long getCheckOutDate();
+}
@@ -0,0 +1,72 @@
+package com.hotel.booking.dtos.request;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.hotel.booking.enums.BookingStatus;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Filters accepted by the booking filter API. Every field is optional and all given fields must
+ * match; dates are in milliseconds since the epoch and ranges are inclusive. Any other field in the
+ * request body is rejected.
+ */
+@Data
+public class BookingFilter {
+
+    private BookingStatus status;
+
+    private Long roomId;
+
+    private Long hotelId;
+
+    private Long checkInFrom;
+
+    private Long checkInTo;
+
+    private Long checkOutFrom;
+
+    private Long checkOutTo;
+
+    @PositiveOrZero(message = "Minimum price must not be negative")
+    private Double minPrice;
+
+    @PositiveOrZero(message = "Maximum price must not be negative")
+    private Double maxPrice;
+
+    @JsonIgnore
+    private final Set<String> unknownFields = new LinkedHashSet<>();
+
+    @JsonAnySetter
+    public void addUnknownField(String name, Object value) {
+        unknownFields.add(name);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Unsupported filter, allowed filters are status, roomId, hotelId, checkInFrom, checkInTo, checkOutFrom, checkOutTo, minPrice and maxPrice")
+    public boolean isKnownFieldsOnly() {
+        return unknownFields.isEmpty();
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "checkInFrom must not be after checkInTo")
+    public boolean isCheckInRangeValid() {
+        return checkInFrom == null || checkInTo == null || checkInFrom <= checkInTo;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "checkOutFrom must not be after checkOutTo")
+    public boolean isCheckOutRangeValid() {
+        return checkOutFrom == null || checkOutTo == null || checkOutFrom <= checkOutTo;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "minPrice must not be greater than maxPrice")
+    public boolean isPriceRangeValid() {
+        return minPrice == null || maxPrice == null || minPrice <= maxPrice;
+    }
+}
@@ -0,0 +1,16 @@
+package com.hotel.booking.dtos.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CreateBookingBatch {
+
+    @NotEmpty(message = "Bookings list cannot be empty")
+    @Size(max = 500, message = "At most 500 bookings can be sent in one batch")
+    private List<@Valid CreateBooking> bookings;
+}
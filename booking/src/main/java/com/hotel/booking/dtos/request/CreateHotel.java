@@ -30,4 +30,7 @@ public class CreateHotel {
     @Size(min = 1)
     private List<RoomDTO> rooms;
 
+    // optional zone id such as Europe/Paris, the server zone is used when it is left out
+    private String timeZone;
+
 }
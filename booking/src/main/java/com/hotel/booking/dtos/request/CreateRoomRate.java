@@ -0,0 +1,19 @@
+package com.hotel.booking.dtos.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class CreateRoomRate {
+    @NotNull(message = "From date is required")
+    private LocalDate from;
+
+    @NotNull(message = "To date is required")
+    private LocalDate to;
+
+    @Positive(message = "Price must be positive")
+    private double price;
+}
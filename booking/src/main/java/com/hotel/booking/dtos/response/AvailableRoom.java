@@ -0,0 +1,36 @@
+package com.hotel.booking.dtos.response;
+
+import lombok.Data;
+
+@Data
+public class AvailableRoom {
+
+    private Long roomId;
+
+    private Long hotelId;
+
+    private String hotelName;
+
+    private String location;
+
+    private String type;
+
+    private int maxOccupancy;
+
+    private double pricePerNight;
+
+    private double totalPrice;
+
+    public AvailableRoom(Long roomId, Long hotelId, String hotelName, String location, String type, int maxOccupancy, double pricePerNight) {
+        this.roomId = roomId;
+        this.hotelId = hotelId;
+        this.hotelName = hotelName;
+        this.location = location;
+        this.type = type;
+        this.maxOccupancy = maxOccupancy;
+        this.pricePerNight = pricePerNight;
+    }
+
+    public AvailableRoom() {
+    }
+}
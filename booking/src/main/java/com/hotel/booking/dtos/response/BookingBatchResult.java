@@ -0,0 +1,26 @@
+package com.hotel.booking.dtos.response;
+
+import com.hotel.booking.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingBatchResult {
+
+    /**
+     * Position of the booking in the request batch.
+     */
+    private int index;
+
+    /**
+     * HTTP status the booking would have got from the single booking API.
+     */
+    private int status;
+
+    private String message;
+
+    private Booking booking;
+}
@@ -0,0 +1,43 @@
+package com.hotel.booking.dtos.response;
+
+import com.hotel.booking.enums.BookingStatus;
+import lombok.Data;
+
+/**
+ * Read model of a booking for the listing and detail APIs, holding the ids of the room, hotel and
+ * user instead of the entities themselves.
+ */
+@Data
+public class BookingView {
+
+    private Long id;
+
+    private Long roomId;
+
+    private Long hotelId;
+
+    private Long userId;
+
+    private long checkInDate;
+
+    private long checkOutDate;
+
+    private double totalPrice;
+
+    private BookingStatus status;
+
+    public BookingView(Long id, Long roomId, Long hotelId, Long userId, long checkInDate, long checkOutDate,
+                       double totalPrice, BookingStatus status) {
+        this.id = id;
+        this.roomId = roomId;
+        this.hotelId = hotelId;
+        this.userId = userId;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.totalPrice = totalPrice;
+        this.status = status;
+    }
+
+    public BookingView() {
+    }
+}
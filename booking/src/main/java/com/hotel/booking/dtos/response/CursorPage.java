@@ -0,0 +1,89 @@
+package com.hotel.booking.dtos.response;
+
+import com.hotel.booking.exception.CustomException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing read with keyset pagination. The next page is requested by passing
+ * `nextCursor` back, which is null once the last page has been reached. No total count is computed.
+ * <p>
+ * The repositories back these listings with `id > :id order by id` queries limited to `size + 1`
+ * rows: the cursor holds the last id returned, so each page seeks straight to its first row through
+ * the primary key index instead of reading and skipping the rows of an offset, and costs the same
+ * however deep the client pages.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> items;
+
+    /**
+     * Opaque token pointing right after the last item of this page, or null on the last page.
+     */
+    private String nextCursor;
+
+    /**
+     * The function builds a page from rows fetched with one row more than the page size; that extra
+     * row only tells that there is a next page and is dropped.
+     *
+     * @param rows The rows read from the database, ordered by id, at most `size + 1` of them.
+     * @param size The page size the caller asked for.
+     * @param idOf Extracts the id the listing is ordered by.
+     * @return The page with the cursor of the next page, if any.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, Long> idOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new CursorPage<>(items, encode(idOf.apply(items.get(size - 1))));
+    }
+
+    /**
+     * The function encodes the id of the last item of a page into a cursor.
+     *
+     * @param lastId The id of the last item returned.
+     * @return A URL safe token.
+     */
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The function decodes a cursor back to the id after which the next page starts.
+     *
+     * @param cursor The cursor returned with the previous page, null or blank for the first page.
+     * @return The id to seek after, 0 for the first page.
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Invalid cursor : " + cursor);
+        }
+    }
+
+    /**
+     * The function bounds the page size asked by a client.
+     *
+     * @param size    The requested page size.
+     * @param maxSize The largest page size allowed.
+     * @return The size clamped to `[1, maxSize]`.
+     */
+    public static int limit(int size, int maxSize) {
+        return Math.max(1, Math.min(size, maxSize));
+    }
+}
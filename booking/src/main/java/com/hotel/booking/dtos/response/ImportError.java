@@ -0,0 +1,18 @@
+package com.hotel.booking.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportError {
+
+    /**
+     * Line of the import file, starting at 1.
+     */
+    private long line;
+
+    private String message;
+}
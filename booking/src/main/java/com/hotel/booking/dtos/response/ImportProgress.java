@@ -0,0 +1,39 @@
+package com.hotel.booking.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportProgress {
+
+    /**
+     * Last line of the import file handled and committed; an import resumed with the same import
+     * id continues after it.
+     */
+    private long committedLine;
+
+    /**
+     * Hotels imported so far by this request.
+     */
+    private long hotels;
+
+    /**
+     * Rooms imported so far by this request.
+     */
+    private long rooms;
+
+    /**
+     * Lines rejected since the previous progress report.
+     */
+    private List<ImportError> errors;
+
+    /**
+     * True on the last report, once the whole file was read.
+     */
+    private boolean done;
+}
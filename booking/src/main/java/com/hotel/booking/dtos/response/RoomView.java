@@ -0,0 +1,38 @@
+package com.hotel.booking.dtos.response;
+
+import lombok.Data;
+
+/**
+ * Read model of a room for the room listing API, carrying the id and name of its hotel instead of
+ * the whole hotel.
+ */
+@Data
+public class RoomView {
+
+    private Long id;
+
+    private Long hotelId;
+
+    private String hotelName;
+
+    private String type;
+
+    private String description;
+
+    private double pricePerNight;
+
+    private int maxOccupancy;
+
+    public RoomView(Long id, Long hotelId, String hotelName, String type, String description, double pricePerNight, int maxOccupancy) {
+        this.id = id;
+        this.hotelId = hotelId;
+        this.hotelName = hotelName;
+        this.type = type;
+        this.description = description;
+        this.pricePerNight = pricePerNight;
+        this.maxOccupancy = maxOccupancy;
+    }
+
+    public RoomView() {
+    }
+}
@@ -1,24 +1,34 @@
 package com.hotel.booking.entity;
 
+import com.fasterxml.jackson.annotation.JsonIncludeProperties;
 import com.hotel.booking.enums.BookingStatus;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.util.UUID;
+
 @Entity
 @Data
+// the overlap indexes of room stays and the no-overlap constraint are partial and range based,
+// which JPA cannot express; they are created by schema.sql
 @Table(name = "booking",
-        indexes = {@Index(columnList = "room_id, user_id, check_in_date, check_out_date, status")})
+        indexes = {@Index(columnList = "user_id, check_in_date"), @Index(columnList = "event_id", unique = true)})
 public class Booking {
+    // sequence ids with a pooled allocation let Hibernate batch the inserts of the booking consumer
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    // loaded on demand, read paths select the columns they need; in JSON only the ids are written
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room_id")
+    @JsonIncludeProperties("id")
     private Room room;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @JsonIncludeProperties("id")
     private User user;
 
     private long checkInDate;
@@ -28,8 +38,13 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     private BookingStatus status;
 
+    // set when the booking is accepted and carried by its event, so that a redelivered event is
+    // recognised as a booking the consumer already persisted; null on bookings of older events
+    private UUID eventId;
+
     public boolean overlaps(long startDateMillis, long endDateMillis) {
-        // Check if the booking overlaps with the given date range
-        return !(this.checkOutDate < startDateMillis || this.checkInDate > endDateMillis);
+        // Check if the booking overlaps with the given date range, both excluding their end so that a
+        // stay may start when the previous one checks out
+        return this.checkInDate < endDateMillis && startDateMillis < this.checkOutDate;
     }
 }
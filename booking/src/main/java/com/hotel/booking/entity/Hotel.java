@@ -1,5 +1,6 @@
 package com.hotel.booking.entity;
 
+import com.hotel.booking.service.EntityCacheListener;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -7,8 +8,9 @@ import java.util.List;
 
 @Entity
 @Data
+@EntityListeners(EntityCacheListener.class)
 @Table(name = "hotel",
-        indexes = {@Index(columnList = "name, location")})
+        indexes = {@Index(columnList = "name, location"), @Index(columnList = "location")})
 public class Hotel {
 
     @Id
@@ -19,6 +21,8 @@ public class Hotel {
     private String description;
     private double rating;
     private List<String> amenities;
+    // zone id such as Europe/Paris, the nights of a stay are counted in it; the server zone when unset
+    private String timeZone;
 
     public Hotel(Long id) {
         this.id = id;
@@ -0,0 +1,38 @@
+package com.hotel.booking.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * A message waiting in the outbox to be published to Kafka by the outbox relay. Rows are relayed in
+ * id order and deleted once the broker acknowledged them.
+ */
+@Entity
+@Data
+@Table(name = "outbox_event")
+public class OutboxEvent {
+    // pooled sequence ids keep the inserts of a booking batch in one round trip
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    private String topic;
+
+    private String messageKey;
+
+    // the encoded booking event; schema.sql converts the text column of older schemas
+    @Column(columnDefinition = "bytea")
+    private byte[] payload;
+
+    private long createdAt;
+
+    public static OutboxEvent of(String topic, String messageKey, byte[] payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setMessageKey(messageKey);
+        event.setPayload(payload);
+        event.setCreatedAt(System.currentTimeMillis());
+        return event;
+    }
+}
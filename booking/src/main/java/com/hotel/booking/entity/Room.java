@@ -1,13 +1,15 @@
 
 package com.hotel.booking.entity;
 
+import com.hotel.booking.service.EntityCacheListener;
 import jakarta.persistence.*;
 import lombok.Data;
 
 @Entity
 @Data
+@EntityListeners(EntityCacheListener.class)
 @Table(name = "room",
-        indexes = {@Index(columnList = "type,price_per_night ,hotel_id")})
+        indexes = {@Index(columnList = "type,price_per_night ,hotel_id"), @Index(columnList = "hotel_id, max_occupancy")})
 public class Room {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,28 @@
+package com.hotel.booking.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * The price of one night of a room, overriding its `pricePerNight` for that date. Nights without a
+ * rate are priced at the room's base price.
+ */
+@Entity
+@Data
+@Table(name = "room_rate", uniqueConstraints = @UniqueConstraint(columnNames = {"room_id", "night"}))
+public class RoomRate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "room_id", nullable = false)
+    private Long roomId;
+
+    // the date of the night in the time zone of the hotel
+    @Column(nullable = false)
+    private LocalDate night;
+
+    private double price;
+}
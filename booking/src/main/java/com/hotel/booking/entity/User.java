@@ -1,7 +1,10 @@
 package com.hotel.booking.entity;
 
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hotel.booking.service.EntityCacheListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -9,6 +12,7 @@ import lombok.Data;
 
 @Entity
 @Data
+@EntityListeners(EntityCacheListener.class)
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,6 +20,7 @@ public class User {
 
     private String username;
     private String email;
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password; // Note: Should be encrypted in production
     private String firstName;
     private String lastName;
@@ -0,0 +1,5 @@
+package com.hotel.booking.enums;
+
+public enum AmenityMatch {
+    ALL, ANY
+}
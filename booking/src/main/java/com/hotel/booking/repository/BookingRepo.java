@@ -1,31 +1,82 @@
 package com.hotel.booking.repository;
 
+import com.hotel.booking.config.ReadReplica;
+import com.hotel.booking.dtos.projection.BookingOwner;
+import com.hotel.booking.dtos.projection.BookingStay;
+import com.hotel.booking.dtos.response.BookingView;
 import com.hotel.booking.entity.Booking;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface BookingRepo extends JpaRepository<Booking, Long> {
+public interface BookingRepo extends JpaRepository<Booking, Long>, BookingRepoCustom {
+
+    /**
+     * The function reads a page of the booking listing as flat views, with the hotel of each room
+     * taken from the joined room row.
+     *
+     * @param id       The last booking id of the previous page, 0 for the first page.
+     * @param pageable Only its size is used, it bounds the number of rows read.
+     * @return The `BookingView` rows with an id greater than `id`, in ascending id order.
+     * @see com.hotel.booking.dtos.response.CursorPage
+     */
+    @Query("select new com.hotel.booking.dtos.response.BookingView(b.id, b.room.id, r.hotel.id, b.user.id, b.checkInDate, b.checkOutDate, b.totalPrice, b.status) from Booking b join b.room r where b.id > :id order by b.id")
+    @ReadReplica
+    List<BookingView> findViewsByIdGreaterThan(Long id, Pageable pageable);
+    /**
+     * The function retrieves the bookings of a user that come after a position in the user's history,
+     * seeking on the `(user_id, check_in_date)` index instead of using an offset.
+     *
+     * @param userId      The `userId` parameter is the unique identifier of the user.
+     * @param checkInDate The check-in time of the last booking already read, `Long.MAX_VALUE` for
+     *                    the first page.
+     * @param id          The id of the last booking already read, `Long.MAX_VALUE` for the first page.
+     * @param pageable    Only its size is used, it bounds the number of rows read.
+     * @return A list of `BookingView` rows of the bookings of the user, latest check-in first.
+     */
+    @Query("select new com.hotel.booking.dtos.response.BookingView(b.id, b.room.id, r.hotel.id, b.user.id, b.checkInDate, b.checkOutDate, b.totalPrice, b.status) from Booking b join b.room r " +
+            "where b.user.id = :userId and (b.checkInDate < :checkInDate or (b.checkInDate = :checkInDate and b.id < :id)) " +
+            "order by b.checkInDate desc, b.id desc")
+    @ReadReplica
+    List<BookingView> findUserViewsBefore(long userId, long checkInDate, long id, Pageable pageable);
+
+    /**
+     * This function retrieves a single booking as a `BookingView`, reading only the columns of the
+     * view in one statement.
+     *
+     * @param id The identifier of the booking.
+     * @return The booking, or an empty Optional when it does not exist.
+     */
+    @Query("select new com.hotel.booking.dtos.response.BookingView(b.id, b.room.id, r.hotel.id, b.user.id, b.checkInDate, b.checkOutDate, b.totalPrice, b.status) from Booking b join b.room r where b.id = :id")
+    Optional<BookingView> findViewById(Long id);
+
+    /**
+     * This function finds the booking persisted from a booking event, read from the primary as it
+     * is used to recognise an event delivered again right after its booking was committed.
+     *
+     * @param eventId The id of the event the booking was accepted with.
+     * @return The booking, or an empty Optional when no booking was saved from that event.
+     */
+    Optional<Booking> findByEventId(UUID eventId);
+
     /**
-     * The function retrieves a list of bookings for a specific user with pagination support.
+     * This function finds the bookings persisted from any of the given booking events, so that a
+     * poll of the booking consumer skips the events it has already seen.
      *
-     * @param userId   The `userId` parameter in the method `getBookingsByUser` is used to filter
-     *                 bookings based on the user ID. The method retrieves a list of bookings from the database where
-     *                 the `user_id` column matches the provided `userId` value.
-     * @param pageable The `Pageable` parameter in the `getBookingsByUser` method is used for
-     *                 pagination. It allows you to specify the page number, page size, sorting criteria, and more when
-     *                 fetching a list of bookings for a specific user. This can be helpful when dealing with a large
-     *                 number of
-     * @return A list of Booking objects that belong to the user with the specified userId, with
-     * pagination applied based on the provided Pageable object.
+     * @param eventIds The ids of the events of the poll.
+     * @return The bookings saved from those events, in no particular order.
      */
-    @Query(value = "select b.* from booking b where b.user_id =:userId", nativeQuery = true)
-    List<Booking> getBookingsByUser(int userId, Pageable pageable);
+    List<Booking> findAllByEventIdIn(Collection<UUID> eventIds);
 
     /**
      * This function retrieves a list of bookings for a specific room within a given date range.
@@ -38,21 +89,54 @@ public interface BookingRepo extends JpaRepository<Booking, Long> {
      *                        the date range you want to search for bookings.
      * @return This method returns a list of `Booking` entities that match the specified `roomId` and
      * fall within the date range defined by `startDateMillis` and `endDateMillis`. The bookings must
-     * have a status of 'BOOKED' and their date range must overlap with the specified date range.
+     * have a status of 'BOOKED' and their date range must overlap with the specified date range, both
+     * ranges excluding their end like `Booking.overlaps`. The
+     * overlap is written as a range intersection so that it is answered by the GiST index behind the
+     * `booking_room_stay_no_overlap` constraint of schema.sql.
      */
-    @Query("SELECT b FROM Booking b WHERE b.room.id = :roomId AND b.status = 'BOOKED' AND ((b.checkInDate <= :endDateMillis) AND (b.checkOutDate >= :startDateMillis))")
+    @Query(value = "SELECT * FROM booking b WHERE b.room_id = :roomId AND b.status = 'BOOKED' " +
+            "AND int8range(b.check_in_date, b.check_out_date, '[)') && int8range(:startDateMillis, :endDateMillis, '[)')",
+            nativeQuery = true)
     List<Booking> findByRoomIdAndDateRange(Long roomId, long startDateMillis, long endDateMillis);
 
     /**
-     * This function retrieves all bookings with a check-out date before a specified time and with a
-     * status of 'BOOKED'.
+     * This function sets the status of the given bookings to 'VACANT' in a single update statement,
+     * skipping the ones that are no longer 'BOOKED', e.g. because they were cancelled meanwhile.
+     *
+     * @param ids The identifiers of the bookings whose check-out has passed.
+     * @return The number of bookings updated.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Booking b set b.status = 'VACANT' where b.id in :ids and b.status = 'BOOKED'")
+    int markVacant(List<Long> ids);
+
+    /**
+     * This function retrieves the room and stay boundaries of every booking that is still in
+     * 'BOOKED' status, without loading the associated room, hotel and user entities.
+     *
+     * @return A list of `BookingStay` projections for all active bookings.
+     */
+    @Query("select b.id as id, b.room.id as roomId, b.checkInDate as checkInDate, b.checkOutDate as checkOutDate from Booking b where b.status = 'BOOKED'")
+    List<BookingStay> findAllActiveStays();
+
+    /**
+     * This function reads the next slice of active stays ordered by id, seeking past the last id of
+     * the previous slice so that large tables are read in bounded chunks.
+     *
+     * @param id       The id of the last stay already read, 0 for the first slice.
+     * @param pageable Only its size is used, it bounds the number of rows read.
+     * @return The `BookingStay` projections of the 'BOOKED' bookings with an id greater than `id`.
+     */
+    @Query("select b.id as id, b.room.id as roomId, b.checkInDate as checkInDate, b.checkOutDate as checkOutDate from Booking b where b.status = 'BOOKED' and b.id > :id order by b.id")
+    List<BookingStay> findActiveStaysAfter(Long id, Pageable pageable);
+
+    /**
+     * This function reads the user of each of the given bookings, without loading the bookings.
      *
-     * @param time The `time` parameter in the `findAllCheckOutExpire` method represents a timestamp
-     *             value. This method is a query method that retrieves a list of `Booking` entities where the
-     *             `checkOutDate` is before the specified `time` and the `status` is set to 'BOOKED
-     * @return The method is returning a list of Booking entities where the check-out date is before the
-     * specified time and the status is 'BOOKED'.
+     * @param ids The identifiers of the bookings.
+     * @return The `BookingOwner` projections of the bookings found.
      */
-    @Query("select b from Booking b where b.checkOutDate <:time and b.status ='BOOKED'")
-    List<Booking> findAllCheckOutExpire(long time);
+    @Query("select b.id as id, b.user.id as userId from Booking b where b.id in :ids")
+    List<BookingOwner> findOwnersByIdIn(Collection<Long> ids);
 }
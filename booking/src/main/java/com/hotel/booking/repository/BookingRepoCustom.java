@@ -0,0 +1,26 @@
+package com.hotel.booking.repository;
+
+import com.hotel.booking.config.ReadReplica;
+import com.hotel.booking.dtos.response.BookingView;
+import com.hotel.booking.entity.Booking;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Booking queries built with the criteria API that Spring Data cannot derive, implemented by
+ * `BookingRepoCustomImpl`.
+ */
+public interface BookingRepoCustom {
+
+    /**
+     * The function selects the bookings matching a specification as `BookingView` rows, latest
+     * check-in first, in a single statement reading only the columns of the view.
+     *
+     * @param specification The criteria the bookings must match.
+     * @param limit         The maximum number of rows returned.
+     * @return The matching bookings.
+     */
+    @ReadReplica
+    List<BookingView> findViews(Specification<Booking> specification, int limit);
+}
@@ -0,0 +1,37 @@
+package com.hotel.booking.repository;
+
+import com.hotel.booking.dtos.response.BookingView;
+import com.hotel.booking.entity.Booking;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public class BookingRepoCustomImpl implements BookingRepoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookingView> findViews(Specification<Booking> specification, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingView> query = cb.createQuery(BookingView.class);
+        Root<Booking> booking = query.from(Booking.class);
+        query.select(cb.construct(BookingView.class,
+                        booking.get("id"),
+                        booking.get("room").get("id"),
+                        booking.get("room").get("hotel").get("id"),
+                        booking.get("user").get("id"),
+                        booking.get("checkInDate"),
+                        booking.get("checkOutDate"),
+                        booking.get("totalPrice"),
+                        booking.get("status")))
+                .where(specification.toPredicate(booking, query, cb))
+                .orderBy(cb.desc(booking.get("checkInDate")), cb.desc(booking.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,62 @@
+package com.hotel.booking.repository;
+
+import com.hotel.booking.dtos.request.BookingFilter;
+import com.hotel.booking.entity.Booking;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the typed booking filters into JPA criteria. Values are always bound as parameters, so
+ * a given combination of filters always renders the same SQL, which lets Hibernate reuse its query
+ * plan and the JDBC driver reuse the prepared statement.
+ */
+public final class BookingSpecifications {
+
+    private BookingSpecifications() {
+    }
+
+    /**
+     * The function builds the criteria selecting the bookings of a user that match every filter set.
+     *
+     * @param userId The identifier of the user whose bookings are selected.
+     * @param filter The filters to apply, unset fields are ignored.
+     * @return A specification usable with `BookingRepo`.
+     */
+    public static Specification<Booking> forUser(long userId, BookingFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("user").get("id"), userId));
+            if (filter.getStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.getStatus()));
+            }
+            if (filter.getRoomId() != null) {
+                predicates.add(cb.equal(root.get("room").get("id"), filter.getRoomId()));
+            }
+            if (filter.getHotelId() != null) {
+                predicates.add(cb.equal(root.get("room").get("hotel").get("id"), filter.getHotelId()));
+            }
+            if (filter.getCheckInFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("checkInDate"), filter.getCheckInFrom()));
+            }
+            if (filter.getCheckInTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("checkInDate"), filter.getCheckInTo()));
+            }
+            if (filter.getCheckOutFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("checkOutDate"), filter.getCheckOutFrom()));
+            }
+            if (filter.getCheckOutTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("checkOutDate"), filter.getCheckOutTo()));
+            }
+            if (filter.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("totalPrice"), filter.getMinPrice()));
+            }
+            if (filter.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("totalPrice"), filter.getMaxPrice()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
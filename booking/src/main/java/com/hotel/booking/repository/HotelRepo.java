@@ -1,9 +1,35 @@
 package com.hotel.booking.repository;
 
+import com.hotel.booking.config.ReadReplica;
 import com.hotel.booking.entity.Hotel;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface HotelRepo extends JpaRepository<Hotel, Long> {
+
+    /**
+     * The function reads a page of the hotel listing, derived from the method name.
+     *
+     * @param id       The last hotel id of the previous page, 0 for the first page.
+     * @param pageable Only its size is used, it bounds the number of hotels read.
+     * @return The hotels with an id greater than `id`, in ascending id order.
+     * @see com.hotel.booking.dtos.response.CursorPage
+     */
+    @ReadReplica
+    List<Hotel> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * The function reads the hotels of a location after a given id, backing the hotel search while
+     * the amenity index is not loaded yet.
+     *
+     * @param location The exact location of the hotels.
+     * @param id       The id of the last hotel already returned, 0 for the first page.
+     * @return The hotels of the location with an id greater than `id`, in ascending id order.
+     */
+    @ReadReplica
+    List<Hotel> findByLocationAndIdGreaterThanOrderByIdAsc(String location, Long id);
 }
@@ -0,0 +1,34 @@
+package com.hotel.booking.repository;
+
+import com.hotel.booking.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface OutboxRepo extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * The function reads the oldest events of the outbox, in the order they were written.
+     *
+     * @param pageable Only its size is used, it bounds the number of rows read.
+     * @return The oldest `OutboxEvent` rows in ascending id order.
+     */
+    List<OutboxEvent> findAllByOrderByIdAsc(Pageable pageable);
+
+    /**
+     * The function removes relayed events from the outbox in a single delete statement.
+     *
+     * @param ids The identifiers of the events acknowledged by the broker.
+     * @return The number of events deleted.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxEvent e where e.id in :ids")
+    int deleteRelayed(List<Long> ids);
+}
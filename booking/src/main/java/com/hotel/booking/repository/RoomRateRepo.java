@@ -0,0 +1,45 @@
+package com.hotel.booking.repository;
+
+import com.hotel.booking.entity.RoomRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RoomRateRepo extends JpaRepository<RoomRate, Long> {
+
+    /**
+     * The function reads the nightly rates of many rooms over a date range in one query.
+     *
+     * @param roomIds The identifiers of the rooms.
+     * @param from    The first night to read, inclusive.
+     * @param to      The last night to read, inclusive.
+     * @return The `RoomRate` rows of the rooms within the range, in no particular order.
+     */
+    @Query("select r from RoomRate r where r.roomId in :roomIds and r.night between :from and :to")
+    List<RoomRate> findRates(Collection<Long> roomIds, LocalDate from, LocalDate to);
+
+    /**
+     * The function sets the price of every night of a date range of a room with a single statement,
+     * replacing the rates already set for those nights.
+     *
+     * @param roomId The identifier of the room.
+     * @param from   The first night of the range, inclusive.
+     * @param to     The last night of the range, inclusive.
+     * @param price  The price of each night.
+     * @return The number of nights set.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into room_rate (room_id, night, price) " +
+            "select :roomId, cast(d as date), :price " +
+            "from generate_series(cast(:from as timestamp), cast(:to as timestamp), interval '1 day') d " +
+            "on conflict (room_id, night) do update set price = excluded.price", nativeQuery = true)
+    int upsertRange(Long roomId, LocalDate from, LocalDate to, double price);
+}
@@ -1,12 +1,58 @@
 package com.hotel.booking.repository;
 
+import com.hotel.booking.config.ReadReplica;
+import com.hotel.booking.dtos.response.AvailableRoom;
+import com.hotel.booking.dtos.response.RoomView;
 import com.hotel.booking.entity.Room;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RoomRepo extends JpaRepository<Room, Long> {
+
+    /**
+     * The function reads a page of the room listing, each room with the id and name of its hotel
+     * read in the same join rather than through the lazy association.
+     *
+     * @param id       The last room id of the previous page, 0 for the first page.
+     * @param pageable Only its size is used, it bounds the number of rows read.
+     * @return The `RoomView` rows with an id greater than `id`, in ascending id order.
+     * @see com.hotel.booking.dtos.response.CursorPage
+     */
+    @Query("select new com.hotel.booking.dtos.response.RoomView(r.id, h.id, h.name, r.type, r.description, r.pricePerNight, r.maxOccupancy) " +
+            "from Room r join r.hotel h where r.id > :id order by r.id")
+    @ReadReplica
+    List<RoomView> findViewsByIdGreaterThan(Long id, Pageable pageable);
+
+    /**
+     * This function searches the rooms of a hotel or a location that fit the occupancy and room type
+     * and have no 'BOOKED' booking overlapping with the requested dates, in a single anti-join query.
+     *
+     * @param hotelId      The `hotelId` parameter restricts the search to one hotel, ignored when null.
+     * @param location     The `location` parameter restricts the search to hotels of that location,
+     *                     ignored when null.
+     * @param type         The `type` parameter restricts the search to one room type, ignored when null.
+     * @param occupancy    The `occupancy` parameter is the minimum number of guests the room must hold.
+     * @param checkInDate  The `checkInDate` parameter is the requested check-in time in milliseconds.
+     * @param checkOutDate The `checkOutDate` parameter is the requested check-out time in milliseconds.
+     * @param pageable     The `pageable` parameter limits the number of rooms returned; no count query
+     *                     is issued as the result is a plain list.
+     * @return A list of `AvailableRoom` rows ordered by base price per night, cheapest first. Nightly
+     * rates are not seen here, so this is not the order of the total price of the stay.
+     */
+    @Query("select new com.hotel.booking.dtos.response.AvailableRoom(r.id, h.id, h.name, h.location, r.type, r.maxOccupancy, r.pricePerNight) " +
+            "from Room r join r.hotel h " +
+            "where (:hotelId is null or h.id = :hotelId) and (:location is null or h.location = :location) " +
+            "and (:type is null or r.type = :type) and r.maxOccupancy >= :occupancy " +
+            "and not exists (select 1 from Booking b where b.room = r and b.status = 'BOOKED' " +
+            "and b.checkInDate < :checkOutDate and b.checkOutDate > :checkInDate) " +
+            "order by r.pricePerNight, r.id")
+    @ReadReplica
+    List<AvailableRoom> searchAvailableRooms(Long hotelId, String location, String type, int occupancy,
+                                             long checkInDate, long checkOutDate, Pageable pageable);
 }
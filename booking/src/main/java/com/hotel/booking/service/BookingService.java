@@ -1,36 +1,67 @@
 package com.hotel.booking.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.config.BookingEventCodec;
 import com.hotel.booking.config.MessageProducer;
-import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.dtos.request.BookingFilter;
 import com.hotel.booking.dtos.request.CreateBooking;
+import com.hotel.booking.dtos.response.BookingBatchResult;
+import com.hotel.booking.dtos.response.BookingView;
+import com.hotel.booking.dtos.response.CursorPage;
 import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.OutboxEvent;
 import com.hotel.booking.entity.Room;
 import com.hotel.booking.entity.User;
 import com.hotel.booking.enums.BookingStatus;
 import com.hotel.booking.exception.CustomException;
 import com.hotel.booking.repository.BookingRepo;
+import com.hotel.booking.repository.BookingSpecifications;
+import com.hotel.booking.repository.OutboxRepo;
 import com.hotel.booking.repository.RoomRepo;
 import com.hotel.booking.repository.UserRepo;
-import jakarta.persistence.EntityManager;
+import com.hotel.booking.service.UserBookingHistory.HistoryCursor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookingService {
+
+    /**
+     * Time spent in each stage of `bookHotel`, tagged with the stage.
+     */
+    static final String STAGE_TIMER = "booking.stage";
+
+    /**
+     * Booking requests by outcome and by the stage where they ended.
+     */
+    static final String REQUEST_COUNTER = "booking.requests";
+
+    /**
+     * Availability checks by the store that answered them, the local index or the Redis bitmaps.
+     */
+    static final String AVAILABILITY_COUNTER = "booking.availability.checks";
+
+    private static final String STAGE_LOOKUP = "lookup";
+    private static final String STAGE_AVAILABILITY = "availability";
+    private static final String STAGE_PRICE = "price";
+    private static final String STAGE_HOLD = "hold";
+    private static final String STAGE_PUBLISH = "publish";
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -47,14 +78,41 @@ public class BookingService {
     private MessageProducer messageProducer;
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private BookingEventCodec bookingEventCodec;
+
+    @Autowired
+    private RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @Autowired
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private CheckoutDueQueue checkoutDueQueue;
 
     @Autowired
-    private EntityManager entityManager;
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OutboxRepo outboxRepo;
+
+    @Autowired
+    private RateCalendar rateCalendar;
+
+    @Autowired
+    private UserBookingHistory userBookingHistory;
+
+    @Value("${booking.outbox.enabled:false}")
+    private boolean outboxEnabled;
 
     @Value("${booking.topic}")
     private String bookingTopic;
 
+    @Value("${pagination.max-size:100}")
+    private int maxPageSize;
+
 
     /**
      * The `bookHotel` function books a hotel room for a user, performing various checks and operations
@@ -67,45 +125,233 @@ public class BookingService {
      * @return The `bookHotel` method returns a `Booking` object.
      */
     public Booking bookHotel(CreateBooking createBooking) {
-        // check user exists
-        User user = userRepo.findById(createBooking.getUserId())
-                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND.value(),"User not found with ID: " + createBooking.getUserId()));
+        String stage = STAGE_LOOKUP;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            // check user exists
+            User user = entityCache.findUser(createBooking.getUserId())
+                    .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND.value(),"User not found with ID: " + createBooking.getUserId()));
+
+            // check room  exists
+            Room room = entityCache.findRoom(createBooking.getRoomId())
+                    .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND.value(),"Room not found with ID: " + createBooking.getRoomId()));
+
+            //checking room availability
+            sample = nextStage(sample, stage);
+            stage = STAGE_AVAILABILITY;
+            if (!isRoomAvailable(createBooking.getRoomId(), createBooking.getCheckInDate(), createBooking.getCheckOutDate())) {
+                throw new CustomException(HttpStatus.NOT_FOUND.value(),"Room not Available with ID: " + createBooking.getRoomId());
+            }
+
+            // check booking price is same with room price
+            sample = nextStage(sample, stage);
+            stage = STAGE_PRICE;
+            if (createBooking.getTotalPrice() < rateCalendar.quote(room, createBooking.getCheckInDate(), createBooking.getCheckOutDate())) {
+                throw new CustomException(HttpStatus.BAD_REQUEST.value(),"Total price provided in booking is less than the calculated total price");
+            }
+            Booking booking = objectMapper.convertValue(createBooking, Booking.class);
+            booking.setRoom(room);
+            booking.setUser(user);
+            booking.setStatus(BookingStatus.BOOKED);
+            booking.setEventId(UUID.randomUUID());
+            //holding the nights of the stay until the consumer persists the booking, a concurrent request may have taken them since the check
+            sample = nextStage(sample, stage);
+            stage = STAGE_HOLD;
+            if (!roomNightAvailabilityStore.hold(booking)) {
+                throw new CustomException(HttpStatus.NOT_FOUND.value(),"Room not Available with ID: " + createBooking.getRoomId());
+            }
+            roomAvailabilityIndex.add(room.getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+
+            sample = nextStage(sample, stage);
+            stage = STAGE_PUBLISH;
+            publishAll(List.of(booking));
+
+            sample.stop(meterRegistry.timer(STAGE_TIMER, "stage", stage));
+            meterRegistry.counter(REQUEST_COUNTER, "outcome", "created", "stage", stage).increment();
+            return booking;
+        } catch (RuntimeException e) {
+            sample.stop(meterRegistry.timer(STAGE_TIMER, "stage", stage));
+            meterRegistry.counter(REQUEST_COUNTER, "outcome", "rejected", "stage", stage).increment();
+            throw e;
+        }
+    }
 
-        // check room  exists
-        Room room = roomRepo.findById(createBooking.getRoomId())
-                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND.value(),"Room not found with ID: " + createBooking.getRoomId()));
+    /**
+     * Records the time spent in the stage that just ended and starts timing the next one.
+     */
+    private Timer.Sample nextStage(Timer.Sample sample, String endedStage) {
+        sample.stop(meterRegistry.timer(STAGE_TIMER, "stage", endedStage));
+        return Timer.start(meterRegistry);
+    }
 
-        //checking room availability
-        if (!isRoomAvailable(createBooking.getRoomId(), createBooking.getCheckInDate(), createBooking.getCheckOutDate())) {
-            throw new CustomException(HttpStatus.NOT_FOUND.value(),"Room not Available with ID: " + createBooking.getRoomId());
+    /**
+     * The `bookHotels` function books a batch of hotel rooms. Users and rooms are validated with one
+     * bulk lookup each, availability of all items is checked together, the nights of the accepted
+     * bookings are held in one Redis pipeline and their messages are handed to the producer together.
+     * Bookings of the same batch that overlap on a room are rejected after the first one, as are
+     * bookings whose nights were taken by a concurrent request in the meantime.
+     *
+     * @param createBookings The list of bookings to create, validated like the single booking API.
+     * @return A list with one `BookingBatchResult` per requested booking, in request order.
+     */
+    public List<BookingBatchResult> bookHotels(List<CreateBooking> createBookings) {
+        Map<Long, User> users = userRepo.findAllById(createBookings.stream().map(CreateBooking::getUserId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, Room> rooms = roomRepo.findAllById(createBookings.stream().map(CreateBooking::getRoomId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Room::getId, Function.identity()));
+
+        BookingBatchResult[] results = new BookingBatchResult[createBookings.size()];
+        List<Integer> candidateIndexes = new ArrayList<>();
+        List<Booking> candidates = new ArrayList<>();
+        for (int i = 0; i < createBookings.size(); i++) {
+            CreateBooking createBooking = createBookings.get(i);
+            User user = users.get(createBooking.getUserId());
+            Room room = rooms.get(createBooking.getRoomId());
+            if (user == null) {
+                results[i] = new BookingBatchResult(i, HttpStatus.NOT_FOUND.value(), "User not found with ID: " + createBooking.getUserId(), null);
+            } else if (room == null) {
+                results[i] = new BookingBatchResult(i, HttpStatus.NOT_FOUND.value(), "Room not found with ID: " + createBooking.getRoomId(), null);
+            } else if (!isPriceValid(createBooking, room)) {
+                results[i] = new BookingBatchResult(i, HttpStatus.BAD_REQUEST.value(), "Total price provided in booking is less than the calculated total price", null);
+            } else {
+                Booking booking = objectMapper.convertValue(createBooking, Booking.class);
+                booking.setRoom(room);
+                booking.setUser(user);
+                booking.setStatus(BookingStatus.BOOKED);
+                booking.setEventId(UUID.randomUUID());
+                candidateIndexes.add(i);
+                candidates.add(booking);
+            }
         }
 
-        // check booking price is same with room price
-        if (createBooking.getTotalPrice() < calculateTotalPrice(createBooking.getCheckInDate(), createBooking.getCheckOutDate(), room.getPricePerNight())) {
-            throw new CustomException(HttpStatus.BAD_REQUEST.value(),"Total price provided in booking is less than the calculated total price");
+        boolean[] available = areRoomsAvailable(candidates);
+        Map<Long, List<Booking>> acceptedPerRoom = new HashMap<>();
+        List<Booking> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        for (int c = 0; c < candidates.size(); c++) {
+            Booking booking = candidates.get(c);
+            int i = candidateIndexes.get(c);
+            List<Booking> sameRoom = acceptedPerRoom.computeIfAbsent(booking.getRoom().getId(), id -> new ArrayList<>());
+            boolean clashesInBatch = sameRoom.stream().anyMatch(other -> other.overlaps(booking.getCheckInDate(), booking.getCheckOutDate()));
+            if (!available[c] || clashesInBatch) {
+                results[i] = new BookingBatchResult(i, HttpStatus.NOT_FOUND.value(), "Room not Available with ID: " + booking.getRoom().getId(), null);
+            } else {
+                sameRoom.add(booking);
+                accepted.add(booking);
+                acceptedIndexes.add(i);
+            }
         }
-        String cacheKey = ApplicationConstants.ROOM_AVAILABILITY + createBooking.getRoomId();
-        String cacheField = createBooking.getCheckInDate() + ApplicationConstants.DASH + createBooking.getCheckOutDate();
 
+        boolean[] held = accepted.isEmpty() ? new boolean[0] : roomNightAvailabilityStore.holdAll(accepted);
+        List<Booking> published = new ArrayList<>(accepted.size());
+        for (int a = 0; a < accepted.size(); a++) {
+            Booking booking = accepted.get(a);
+            int i = acceptedIndexes.get(a);
+            if (!held[a]) {
+                results[i] = new BookingBatchResult(i, HttpStatus.NOT_FOUND.value(), "Room not Available with ID: " + booking.getRoom().getId(), null);
+                continue;
+            }
+            roomAvailabilityIndex.add(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+            published.add(booking);
+            results[i] = new BookingBatchResult(i, HttpStatus.CREATED.value(), null, booking);
+        }
+        publishAll(published);
+        return List.of(results);
+    }
 
-        Booking booking = objectMapper.convertValue(createBooking, Booking.class);
-        booking.setRoom(room);
-        booking.setUser(user);
-        booking.setStatus(BookingStatus.BOOKED);
-        //changing cache value to false as this is just booked
-        redisTemplate.opsForHash().put(cacheKey, cacheField, String.valueOf(false));
+    /**
+     * Publishes the bookings keyed by their room so that all events of a room stay ordered on one
+     * partition. In outbox mode the messages are written to the outbox with one insert batch and the
+     * `OutboxRelay` sends them later, so the request never waits on the broker. Otherwise they are
+     * handed to the producer, which accumulates the sends into batches; if the broker never
+     * acknowledges a message, or the outbox insert fails, the hold on the nights is dropped right
+     * away instead of waiting for it to expire.
+     */
+    private void publishAll(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        if (!outboxEnabled) {
+            bookings.forEach(booking -> messageProducer.sendMessage(bookingTopic, String.valueOf(booking.getRoom().getId()),
+                    toMessage(booking), ex -> dropHold(booking)));
+            return;
+        }
+        List<OutboxEvent> events = bookings.stream()
+                .map(booking -> OutboxEvent.of(bookingTopic, String.valueOf(booking.getRoom().getId()), toMessage(booking)))
+                .toList();
         try {
-            messageProducer.sendMessage(bookingTopic, objectMapper.writeValueAsString(booking));
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+            outboxRepo.saveAll(events);
+        } catch (RuntimeException e) {
+            bookings.forEach(this::dropHold);
+            throw e;
         }
+    }
+
+    private byte[] toMessage(Booking booking) {
+        return bookingEventCodec.encode(booking);
+    }
 
-        return booking;
+    private void dropHold(Booking booking) {
+        roomAvailabilityIndex.remove(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+        roomNightAvailabilityStore.releaseHold(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
     }
 
     /**
-     * The function checks room availability based on booking information and caches the result using
-     * Redis.
+     * Frees the nights of a booking in both availability stores.
+     */
+    private void releaseNights(Booking booking) {
+        roomAvailabilityIndex.remove(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+        roomNightAvailabilityStore.releaseAll(List.of(booking));
+    }
+
+    /**
+     * Checks the availability of many bookings, from the in-memory index when it is loaded. The
+     * bookings the index finds taken, and all of them when it is not loaded, are checked with one
+     * pipelined bitmap probe, as the index misses the stays freed on other nodes.
+     */
+    private boolean[] areRoomsAvailable(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return new boolean[0];
+        }
+        if (!roomAvailabilityIndex.isReady()) {
+            return roomNightAvailabilityStore.areAvailable(bookings);
+        }
+        boolean[] available = new boolean[bookings.size()];
+        List<Integer> hitIndexes = new ArrayList<>();
+        List<Booking> hits = new ArrayList<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            available[i] = !roomAvailabilityIndex.overlaps(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+            if (!available[i]) {
+                hitIndexes.add(i);
+                hits.add(booking);
+            }
+        }
+        if (!hits.isEmpty()) {
+            boolean[] confirmed = roomNightAvailabilityStore.areAvailable(hits);
+            for (int h = 0; h < hits.size(); h++) {
+                available[hitIndexes.get(h)] = confirmed[h];
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Checks that the price of a batch item covers the stay; invalid dates make the item invalid
+     * instead of failing the whole batch.
+     */
+    private boolean isPriceValid(CreateBooking createBooking, Room room) {
+        try {
+            return createBooking.getTotalPrice() >= rateCalendar.quote(room, createBooking.getCheckInDate(), createBooking.getCheckOutDate());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The function checks room availability based on booking information, using the in-memory index
+     * when it is loaded and the per night Redis bitmaps otherwise. An overlap found by the index is
+     * confirmed by the bitmaps, the stay may have been cancelled or its hold expired on another node.
      *
      * @param roomId       The `roomId` parameter in the `isRoomAvailable` method represents the unique
      *                     identifier of the room for which availability needs to be checked. It is used to identify the
@@ -123,74 +369,44 @@ public class BookingService {
      */
     public boolean isRoomAvailable(Long roomId, long checkInDate, long checkOutDate) {
 
-        String cacheKey = ApplicationConstants.ROOM_AVAILABILITY + roomId;
-        String cacheField = checkInDate + ApplicationConstants.DASH + checkOutDate;
-
-        // Check if availability information is cached
-        Boolean cachedAvailability = redisTemplate.opsForHash().hasKey(cacheKey, cacheField);
-        if (cachedAvailability != null && cachedAvailability) {
-            // Room availability information found in cache
-            return Boolean.parseBoolean((String) redisTemplate.opsForHash().get(cacheKey, cacheField));
+        // A free room in the in-memory index needs no I/O, the hold still rejects a stay booked on another node
+        if (roomAvailabilityIndex.isReady() && !roomAvailabilityIndex.overlaps(roomId, checkInDate, checkOutDate)) {
+            meterRegistry.counter(AVAILABILITY_COUNTER, "source", "index").increment();
+            return true;
         }
 
-        // Retrieve bookings for the specified room within the date range
-        List<Booking> bookings = bookingRepo.findByRoomIdAndDateRange(roomId, checkInDate, checkOutDate);
-
-        // Check if any bookings overlap with the requested date range
-        boolean isAvailable = bookings.stream()
-                .noneMatch(booking -> booking.overlaps(checkInDate, checkOutDate));
-
-        redisTemplate.opsForHash().put(cacheKey, cacheField, String.valueOf(isAvailable));
-
-        return isAvailable;
+        // Probe the nights of the stay in the Redis bitmaps, loaded from db on first use
+        meterRegistry.counter(AVAILABILITY_COUNTER, "source", "redis").increment();
+        return roomNightAvailabilityStore.isAvailable(roomId, checkInDate, checkOutDate);
     }
 
 
     /**
-     * The function calculates the total price for a stay based on the check-in and check-out
-     * timestamps and the price per night.
+     * The function `getBookings` retrieves the next page of booking records ordered by id. It seeks
+     * past the cursor instead of using an offset and does not count the table, so every page costs the
+     * same however deep it is.
      *
-     * @param checkInMillis  The `checkInMillis` parameter represents the check-in time in milliseconds
-     *                       since the epoch.
-     * @param checkOutMillis The `checkOutMillis` parameter represents the milliseconds since the epoch
-     *                       when the guest checks out of the accommodation.
-     * @param pricePerNight  The `pricePerNight` parameter in the `calculateTotalPrice` method
-     *                       represents the cost per night for staying at a particular accommodation. This value is
-     *                       multiplied by the number of nights stayed to calculate the total price for the entire duration
-     *                       of the stay.
-     * @return The method `calculateTotalPrice` returns the total price for a stay based on the
-     * check-in and check-out dates provided, as well as the price per night.
-     */
-    public double calculateTotalPrice(long checkInMillis, long checkOutMillis, double pricePerNight) {
-        // Convert milliseconds to LocalDate
-        LocalDate checkInLocalDate = Instant.ofEpochMilli(checkInMillis).atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDate checkOutLocalDate = Instant.ofEpochMilli(checkOutMillis).atZone(ZoneId.systemDefault()).toLocalDate();
-
-        // Calculate duration of stay in nights
-        long numberOfNights = checkOutLocalDate.toEpochDay() - checkInLocalDate.toEpochDay();
-
-        // Ensure that the number of nights is non-negative
-        if (numberOfNights <= 0) {
-            throw new IllegalArgumentException("Invalid check-in and check-out dates");
-        }
-
-        // Calculate total price
-        return numberOfNights * pricePerNight;
+     * @param cursor The `cursor` parameter is the `nextCursor` of the previous page, null or blank for
+     *               the first page.
+     * @param size   The `size` parameter is the number of bookings per page, bounded by
+     *               `pagination.max-size`.
+     * @return A CursorPage of BookingView objects with the cursor of the next page.
+     */
+    public CursorPage<BookingView> getBookings(String cursor, int size) {
+        int limit = CursorPage.limit(size, maxPageSize);
+        List<BookingView> rows = bookingRepo.findViewsByIdGreaterThan(CursorPage.decode(cursor), Pageable.ofSize(limit + 1));
+        return CursorPage.of(rows, limit, BookingView::getId);
     }
 
     /**
-     * The function `getBookings` retrieves a page of booking records from the database based on the
-     * specified page number and size.
+     * The function `getBooking` retrieves one booking with the ids of its room, hotel and user.
      *
-     * @param page The `page` parameter in the `getBookings` method represents the page number of results
-     *             to retrieve. It is used to specify which page of results to fetch from the database.
-     * @param size The `size` parameter in the `getBookings` method represents the number of items (in
-     *             this case, bookings) to be included in each page of results when paginating through the data. It
-     *             determines how many bookings will be displayed on each page when the method is called.
-     * @return A Page of Booking objects is being returned.
-     */
-    public Page<Booking> getBookings(int page, int size) {
-        return bookingRepo.findAll(Pageable.ofSize(size));
+     * @param bookingId The `bookingId` parameter is the unique identifier of the booking.
+     * @return The BookingView of the booking.
+     */
+    public BookingView getBooking(long bookingId) {
+        return bookingRepo.findViewById(bookingId)
+                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND.value(), "Booking not found with ID: " + bookingId));
     }
 
     /**
@@ -207,21 +423,39 @@ public class BookingService {
 
         // Update the status to "vacant"
         booking.setStatus(BookingStatus.VACANT);
+        bookingRepo.save(booking);
+        releaseNights(booking);
+        checkoutDueQueue.remove(booking);
+        userBookingHistory.updateStatus(List.of(bookingId), BookingStatus.VACANT);
         return "Booking cancel successful";
     }
 
     /**
-     * The function retrieves a list of bookings for a specific user with a specified size limit.
+     * The function retrieves a page of the bookings of a specific user, latest check-in first. The
+     * page is read from the per-user history kept in Redis, and from the `(user_id, check_in_date)`
+     * index of the booking table when that read model is switched off.
      *
      * @param userId The `userId` parameter represents the unique identifier of the user for whom you
      *               want to retrieve bookings.
+     * @param cursor The `cursor` parameter is the `nextCursor` of the previous page, null or blank for
+     *               the first page.
      * @param size   The `size` parameter in the `getBookingsByUser` method represents the number of
      *               bookings to retrieve per page. It is used to limit the number of bookings returned in the result
-     *               set.
-     * @return A List of Booking objects is being returned.
+     *               set, bounded by `pagination.max-size`.
+     * @return A CursorPage of BookingView objects with the cursor of the next page.
      */
-    public List<Booking> getBookingsByUser(int userId, int size) {
-        return bookingRepo.getBookingsByUser(userId, Pageable.ofSize(size));
+    public CursorPage<BookingView> getBookingsByUser(int userId, String cursor, int size) {
+        int limit = CursorPage.limit(size, maxPageSize);
+        if (userBookingHistory.isEnabled()) {
+            return userBookingHistory.page(userId, cursor, limit);
+        }
+        HistoryCursor after = Objects.requireNonNullElse(HistoryCursor.decode(cursor), HistoryCursor.FIRST);
+        List<BookingView> rows = bookingRepo.findUserViewsBefore(userId, after.checkInDate(), after.id(), Pageable.ofSize(limit + 1));
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<BookingView> items = rows.subList(0, limit);
+        return new CursorPage<>(items, HistoryCursor.of(items.get(limit - 1)).encode());
     }
 
     /**
@@ -229,19 +463,14 @@ public class BookingService {
      *
      * @param userId  The `userId` parameter is an integer representing the unique identifier of the user
      *                for whom you want to retrieve bookings.
-     * @param filters The `filters` parameter in the `getBookingsByUser` method is a `Map<String,
-     *                String>` that contains key-value pairs representing additional conditions to filter the bookings.
-     *                Each key in the map corresponds to a column in the `booking` table, and the value represents the
-     *                desired value for
+     * @param filter  The `filter` parameter holds the typed filters to apply, such as the status, the
+     *                room or hotel, check-in and check-out ranges and a price range. Unset fields are ignored.
      * @param size    The `size` parameter in the `getBookingsByUser` method is used to specify the maximum
-     *                number of results to be returned by the query. It determines the size of the result set that will
-     *                be retrieved from the database. This parameter helps in limiting the number of bookings that are
-     *                returned for
-     * @return A list of Booking objects that match the specified user ID and filters.
-     */
-    public List<Booking> getBookingsByUser(int userId, Map<String, String> filters, int size) {
-        StringBuilder query = new StringBuilder("select * from booking b where b.user_id =" + userId);
-        filters.forEach((key, value) -> query.append(" AND ").append(key).append("= '").append(value).append("'"));
-        return entityManager.createNativeQuery(query.toString(), Booking.class).getResultList();
+     *                number of results to be returned by the query, bounded by `pagination.max-size`.
+     * @return A list of Booking objects that match the specified user ID and filters, latest check-in
+     * first.
+     */
+    public List<BookingView> getBookingsByUser(int userId, BookingFilter filter, int size) {
+        return bookingRepo.findViews(BookingSpecifications.forUser(userId, filter), CursorPage.limit(size, maxPageSize));
     }
 }
@@ -0,0 +1,150 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.dtos.projection.BookingStay;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.repository.BookingRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Time ordered queue of the check-outs to expire, kept in the Redis sorted set `booking_checkouts`.
+ * Each member describes one booking as `{bookingId}:{roomId}:{checkInDate}:{checkOutDate}` and is
+ * scored by its check-out time, so the due check-outs are a range read from the head of the set.
+ * Bookings enter the queue once persisted and leave it when cancelled or expired.
+ */
+@Component
+@Slf4j
+public class CheckoutDueQueue {
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private BookingRepo bookingRepo;
+
+    @Value("${booking.checkout.seed-chunk-size:1000}")
+    private int seedChunkSize;
+
+    /**
+     * The function queues the check-out of persisted bookings.
+     *
+     * @param bookings The bookings, each with its id and room set.
+     */
+    public void addAll(List<Booking> bookings) {
+        Set<TypedTuple<String>> members = bookings.stream()
+                .map(booking -> TypedTuple.of(DueCheckout.of(booking).member(), (double) booking.getCheckOutDate()))
+                .collect(Collectors.toSet());
+        if (!members.isEmpty()) {
+            redisTemplate.opsForZSet().add(ApplicationConstants.CHECKOUT_QUEUE, members);
+        }
+    }
+
+    /**
+     * The function takes a booking out of the queue, e.g. after a cancellation.
+     *
+     * @param booking The booking, with its id and room set.
+     */
+    public void remove(Booking booking) {
+        redisTemplate.opsForZSet().remove(ApplicationConstants.CHECKOUT_QUEUE, DueCheckout.of(booking).member());
+    }
+
+    /**
+     * The function reads the earliest check-outs due at the given time without removing them.
+     *
+     * @param now   The current time in milliseconds since the epoch.
+     * @param limit The maximum number of check-outs returned.
+     * @return The due check-outs, earliest first.
+     */
+    public List<DueCheckout> due(long now, int limit) {
+        Set<String> members = redisTemplate.opsForZSet()
+                .rangeByScore(ApplicationConstants.CHECKOUT_QUEUE, Double.NEGATIVE_INFINITY, now, 0, limit);
+        return members == null ? List.of() : members.stream().map(DueCheckout::parse).toList();
+    }
+
+    /**
+     * The function removes processed check-outs from the queue.
+     *
+     * @param checkouts The check-outs to remove.
+     */
+    public void removeAll(List<DueCheckout> checkouts) {
+        if (!checkouts.isEmpty()) {
+            redisTemplate.opsForZSet().remove(ApplicationConstants.CHECKOUT_QUEUE,
+                    checkouts.stream().map(DueCheckout::member).toArray());
+        }
+    }
+
+    /**
+     * The function fills the queue with every active booking of the database, once per Redis
+     * dataset, so that bookings stored before the queue existed are expired as well. The database
+     * is read in chunks of `booking.checkout.seed-chunk-size` rows and the dataset is only flagged as
+     * seeded once all of them are queued; queueing a booking twice has no effect.
+     */
+    public void seedIfNeeded() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(ApplicationConstants.CHECKOUT_QUEUE_SEEDED))) {
+            return;
+        }
+        long afterId = 0L;
+        int seeded = 0;
+        List<BookingStay> stays;
+        do {
+            stays = bookingRepo.findActiveStaysAfter(afterId, Pageable.ofSize(seedChunkSize));
+            if (stays.isEmpty()) {
+                break;
+            }
+            Set<TypedTuple<String>> members = stays.stream()
+                    .map(stay -> TypedTuple.of(new DueCheckout(stay.getId(), stay.getRoomId(), stay.getCheckInDate(), stay.getCheckOutDate()).member(),
+                            (double) stay.getCheckOutDate()))
+                    .collect(Collectors.toSet());
+            redisTemplate.opsForZSet().add(ApplicationConstants.CHECKOUT_QUEUE, members);
+            afterId = stays.get(stays.size() - 1).getId();
+            seeded += stays.size();
+        } while (stays.size() == seedChunkSize);
+        redisTemplate.opsForValue().set(ApplicationConstants.CHECKOUT_QUEUE_SEEDED, "1");
+        log.info("seeded the check-out queue with {} active bookings", seeded);
+    }
+
+    /**
+     * One queued check-out, carrying what is needed to expire the booking without reading it.
+     */
+    public record DueCheckout(long bookingId, long roomId, long checkInDate, long checkOutDate) {
+
+        static DueCheckout of(Booking booking) {
+            return new DueCheckout(booking.getId(), booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+        }
+
+        static DueCheckout parse(String member) {
+            String[] parts = member.split(ApplicationConstants.COLON);
+            return new DueCheckout(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        }
+
+        String member() {
+            return bookingId + ApplicationConstants.COLON + roomId + ApplicationConstants.COLON + checkInDate
+                    + ApplicationConstants.COLON + checkOutDate;
+        }
+
+        /**
+         * @return A detached booking holding the room and stay of this check-out.
+         */
+        public Booking toBooking() {
+            Room room = new Room();
+            room.setId(roomId);
+            Booking booking = new Booking();
+            booking.setId(bookingId);
+            booking.setRoom(room);
+            booking.setCheckInDate(checkInDate);
+            booking.setCheckOutDate(checkOutDate);
+            return booking;
+        }
+    }
+}
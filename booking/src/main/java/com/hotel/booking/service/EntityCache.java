@@ -0,0 +1,165 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.User;
+import com.hotel.booking.repository.HotelRepo;
+import com.hotel.booking.repository.RoomRepo;
+import com.hotel.booking.repository.UserRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * Node local read-through cache of the rooms, hotels and users read on the booking path. Entries
+ * are bounded in size and age by the cache manager. Whenever one of these entities changes the
+ * change is published on a Redis channel, and every node, this one included, evicts its copy and
+ * publishes an {@link EntityChangedEvent} for the other node local indexes.
+ * Lookups that find nothing are not cached, so an entity created on another node is seen at once.
+ */
+@Component
+@Slf4j
+public class EntityCache {
+
+    public static final String ROOMS = "rooms";
+
+    public static final String HOTELS = "hotels";
+
+    public static final String USERS = "users";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RoomRepo roomRepo;
+
+    @Autowired
+    private HotelRepo hotelRepo;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${entity.cache.invalidation-channel:entity-cache-invalidation}")
+    private String invalidationChannel;
+
+    /**
+     * The function returns the room with the given id, from the cache when present.
+     *
+     * @param roomId The identifier of the room.
+     * @return The room, or an empty Optional when it does not exist.
+     */
+    public Optional<Room> findRoom(Long roomId) {
+        return find(ROOMS, roomId, Room.class, roomRepo);
+    }
+
+    /**
+     * The function returns the hotel with the given id, from the cache when present.
+     *
+     * @param hotelId The identifier of the hotel.
+     * @return The hotel, or an empty Optional when it does not exist.
+     */
+    public Optional<Hotel> findHotel(Long hotelId) {
+        return find(HOTELS, hotelId, Hotel.class, hotelRepo);
+    }
+
+    /**
+     * The function returns the user with the given id, from the cache when present.
+     *
+     * @param userId The identifier of the user.
+     * @return The user, or an empty Optional when it does not exist.
+     */
+    public Optional<User> findUser(Long userId) {
+        return find(USERS, userId, User.class, userRepo);
+    }
+
+    /**
+     * The function evicts an entity on every node. When called inside a transaction the message is
+     * sent once it commits, so that no node reloads the old row in between.
+     *
+     * @param cacheName The cache holding the entity, one of `rooms`, `hotels` or `users`.
+     * @param id        The identifier of the changed entity.
+     */
+    public void invalidate(String cacheName, Long id) {
+        if (id == null) {
+            return;
+        }
+        evict(cacheName, id);
+        String message = cacheName + ApplicationConstants.COLON + id;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(message);
+                }
+            });
+        } else {
+            publish(message);
+        }
+    }
+
+    /**
+     * The function handles an invalidation received from the Redis channel, formatted as
+     * `{cacheName}:{id}`, and announces the change within this node.
+     *
+     * @param message The received message.
+     */
+    public void onInvalidation(String message) {
+        int separator = message.lastIndexOf(ApplicationConstants.COLON);
+        if (separator < 0) {
+            log.warn("ignoring malformed cache invalidation {}", message);
+            return;
+        }
+        try {
+            String cacheName = message.substring(0, separator);
+            Long id = Long.parseLong(message.substring(separator + 1));
+            evict(cacheName, id);
+            applicationEventPublisher.publishEvent(new EntityChangedEvent(cacheName, id));
+        } catch (NumberFormatException e) {
+            log.warn("ignoring malformed cache invalidation {}", message);
+        }
+    }
+
+    private <T> Optional<T> find(String cacheName, Long id, Class<T> type, JpaRepository<T, Long> repo) {
+        Cache cache = cacheManager.getCache(cacheName);
+        T cached = cache.get(id, type);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<T> loaded = repo.findById(id);
+        loaded.ifPresent(entity -> cache.put(id, entity));
+        return loaded;
+    }
+
+    private void evict(String cacheName, Long id) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(invalidationChannel, message);
+        } catch (RuntimeException e) {
+            // the entry still expires through the cache ttl on the other nodes
+            log.error("failed to publish cache invalidation {} : {}", message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA entity listener of the cached entities, announcing to every node that they were created,
+ * updated or deleted, whichever code path changed them.
+ */
+public class EntityCacheListener {
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Room room) {
+            entityCache.invalidate(EntityCache.ROOMS, room.getId());
+        } else if (entity instanceof Hotel hotel) {
+            entityCache.invalidate(EntityCache.HOTELS, hotel.getId());
+        } else if (entity instanceof User user) {
+            entityCache.invalidate(EntityCache.USERS, user.getId());
+        }
+    }
+}
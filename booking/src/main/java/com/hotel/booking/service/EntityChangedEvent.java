@@ -0,0 +1,11 @@
+package com.hotel.booking.service;
+
+/**
+ * Published on every node once a room, hotel or user was created, updated or deleted on any node,
+ * after its cached copy has been evicted.
+ *
+ * @param cacheName The cache of the entity, one of `rooms`, `hotels` or `users`.
+ * @param id        The identifier of the changed entity.
+ */
+public record EntityChangedEvent(String cacheName, Long id) {
+}
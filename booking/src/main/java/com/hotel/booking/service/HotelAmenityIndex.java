@@ -0,0 +1,223 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.enums.AmenityMatch;
+import com.hotel.booking.repository.HotelRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index of hotels by amenity and location. Each amenity, after trimming and
+ * lower casing, maps to the bitset of the ids of the hotels offering it, so an AND or OR over several
+ * amenities is a handful of word wise bitset operations whatever the number of hotels, and the bits
+ * of the result come out in id order, ready to be paged from any id on.
+ * <p>
+ * Like the room availability index it is local to the node: it is rebuilt from the database on
+ * startup and kept up to date through the entity change events every node receives.
+ */
+@Component
+@Slf4j
+public class HotelAmenityIndex {
+
+    @Autowired
+    private HotelRepo hotelRepo;
+
+    @Value("${hotel.amenity-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hotel.amenity-index.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, BitSet> hotelsByAmenity = new HashMap<>();
+
+    private final Map<String, BitSet> hotelsByLocation = new HashMap<>();
+
+    private final BitSet live = new BitSet();
+
+    private final Map<Integer, String[]> amenitiesOf = new HashMap<>();
+
+    private final Map<Integer, String> locationOf = new HashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * The function tells whether the index is enabled and has been fully loaded.
+     *
+     * @return true if searches can be answered from the index alone.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Loads the index from the database once the application has started, when the rebuild on
+     * startup mode is switched on.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled && rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * The function loads every hotel from the database into the index and marks it as ready.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Hotel> hotels = hotelRepo.findAll();
+        hotels.forEach(this::put);
+        ready = true;
+        log.info("hotel amenity index rebuilt with {} hotels and {} amenities in {} ms",
+                hotels.size(), hotelsByAmenity.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reloads a hotel created, changed or deleted on any node.
+     *
+     * @param event The change event, ignored unless it is about a hotel.
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!enabled || !EntityCache.HOTELS.equals(event.cacheName())) {
+            return;
+        }
+        hotelRepo.findById(event.id()).ifPresentOrElse(this::put, () -> remove(event.id()));
+    }
+
+    /**
+     * The function adds a hotel to the index or replaces its amenities and location.
+     *
+     * @param hotel The hotel to index.
+     */
+    public void put(Hotel hotel) {
+        if (!enabled) {
+            return;
+        }
+        String[] amenities = hotel.getAmenities() == null ? new String[0]
+                : hotel.getAmenities().stream().map(HotelAmenityIndex::normalize).distinct().toArray(String[]::new);
+        int bit = bitOf(hotel.getId());
+        lock.writeLock().lock();
+        try {
+            clear(bit);
+            for (String amenity : amenities) {
+                hotelsByAmenity.computeIfAbsent(amenity, key -> new BitSet()).set(bit);
+            }
+            String location = hotel.getLocation();
+            if (location != null) {
+                hotelsByLocation.computeIfAbsent(location, key -> new BitSet()).set(bit);
+            }
+            amenitiesOf.put(bit, amenities);
+            locationOf.put(bit, location);
+            live.set(bit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The function removes a hotel from the index.
+     *
+     * @param hotelId The identifier of the hotel.
+     */
+    public void remove(Long hotelId) {
+        lock.writeLock().lock();
+        try {
+            int bit = bitOf(hotelId);
+            clear(bit);
+            live.clear(bit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The function finds the hotels offering all or any of the amenities, optionally in one
+     * location, and returns the smallest matching ids after the given id.
+     *
+     * @param location  The exact location of the hotels, ignored when null.
+     * @param amenities The amenities to look for, compared after trimming and lower casing; when
+     *                  empty every hotel of the location matches.
+     * @param match     Whether a hotel must offer all of the amenities or at least one of them.
+     * @param afterId   Only hotels with a greater id are returned.
+     * @param limit     The maximum number of ids returned.
+     * @return The matching hotel ids in ascending order.
+     */
+    public long[] search(String location, Collection<String> amenities, AmenityMatch match, long afterId, int limit) {
+        lock.readLock().lock();
+        BitSet matches;
+        try {
+            matches = (BitSet) live.clone();
+            if (location != null) {
+                matches.and(hotelsByLocation.getOrDefault(location, new BitSet()));
+            }
+            if (!amenities.isEmpty()) {
+                BitSet byAmenity = match == AmenityMatch.ANY ? new BitSet() : null;
+                for (String amenity : amenities) {
+                    BitSet hotels = hotelsByAmenity.getOrDefault(normalize(amenity), new BitSet());
+                    if (byAmenity == null) {
+                        matches.and(hotels);
+                    } else {
+                        byAmenity.or(hotels);
+                    }
+                }
+                if (byAmenity != null) {
+                    matches.and(byAmenity);
+                }
+            }
+            if (afterId >= Integer.MAX_VALUE) {
+                return new long[0];
+            }
+            // the bits are the ids, so the page starts right after the cursor and stops once full
+            long[] ids = new long[Math.max(0, Math.min(limit, matches.cardinality()))];
+            int count = 0;
+            for (int bit = matches.nextSetBit((int) Math.max(0, afterId + 1)); bit >= 0 && count < ids.length; bit = matches.nextSetBit(bit + 1)) {
+                ids[count++] = bit;
+            }
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The bit of a hotel in the bitsets, its id, which the database sequence keeps well below the
+     * largest bit index.
+     */
+    private static int bitOf(Long hotelId) {
+        return Math.toIntExact(hotelId);
+    }
+
+    private void clear(int bit) {
+        String[] amenities = amenitiesOf.remove(bit);
+        if (amenities != null) {
+            for (String amenity : amenities) {
+                hotelsByAmenity.get(amenity).clear(bit);
+            }
+        }
+        String location = locationOf.remove(bit);
+        if (location != null) {
+            hotelsByLocation.get(location).clear(bit);
+        }
+    }
+
+    private static String normalize(String amenity) {
+        return amenity.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,234 @@
+package com.hotel.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.dtos.request.CreateHotel;
+import com.hotel.booking.dtos.request.RoomDTO;
+import com.hotel.booking.dtos.response.ImportError;
+import com.hotel.booking.dtos.response.ImportProgress;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of hotels with their rooms from an NDJSON stream, one `CreateHotel` document per
+ * line. The stream is read line by line and written in chunks of `hotel.import.chunk-size` hotels,
+ * so memory does not grow with the size of the file. Each chunk takes its ids from the table
+ * sequences in one query and is inserted with JDBC batches in one transaction.
+ * <p>
+ * An import started with an import id records the last committed line in Redis; posting the same
+ * file again with that id skips the lines already imported.
+ */
+@Service
+@Slf4j
+public class HotelImportService {
+
+    private static final String INSERT_HOTEL = "insert into hotel (id, name, location, description, rating, amenities, time_zone) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ROOM = "insert into room (id, hotel_id, type, description, price_per_night, max_occupancy) values (?, ?, ?, ?, ?, ?)";
+
+    private static final String NEXT_IDS = "select nextval(pg_get_serial_sequence(?, 'id')) from generate_series(1, ?)";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Value("${hotel.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${hotel.import.progress-ttl:P7D}")
+    private Duration progressTtl;
+
+    /**
+     * The function imports the hotels of an NDJSON stream. Invalid lines are reported and skipped,
+     * the other lines are imported chunk by chunk and a progress report is handed to `progress`
+     * after every chunk and once at the end.
+     *
+     * @param ndjson   The import file, one `CreateHotel` JSON document per line; blank lines are ignored.
+     * @param importId Identifies the import to resume it after a failure; may be null for an import
+     *                 that is not resumable.
+     * @param progress Receives the progress reports.
+     * @throws IOException If the stream cannot be read.
+     */
+    public void importHotels(InputStream ndjson, String importId, Consumer<ImportProgress> progress) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(CreateHotel.class);
+        long resumeAfter = committedLine(importId);
+        ImportProgress report = new ImportProgress(resumeAfter, 0, 0, new ArrayList<>(), false);
+        List<CreateHotel> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        long line = 0;
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            String text;
+            while ((text = lines.readLine()) != null) {
+                line++;
+                if (line <= resumeAfter || text.isBlank()) {
+                    continue;
+                }
+                try {
+                    CreateHotel hotel = reader.readValue(text);
+                    String violations = validate(hotel);
+                    if (violations == null) {
+                        chunk.add(hotel);
+                        chunkLines.add(line);
+                    } else {
+                        report.getErrors().add(new ImportError(line, violations));
+                    }
+                } catch (JsonProcessingException e) {
+                    report.getErrors().add(new ImportError(line, "Invalid JSON: " + e.getOriginalMessage()));
+                }
+                // errors are reported as often as chunks so that a file of bad lines does not pile them up
+                if (chunk.size() == chunkSize || report.getErrors().size() >= chunkSize) {
+                    flush(chunk, chunkLines, line, importId, report, progress, false);
+                }
+            }
+        }
+        flush(chunk, chunkLines, Math.max(line, resumeAfter), importId, report, progress, true);
+    }
+
+    /**
+     * Writes a chunk in one transaction, records the committed line and reports the progress.
+     */
+    private void flush(List<CreateHotel> chunk, List<Long> chunkLines, long line, String importId,
+                       ImportProgress report, Consumer<ImportProgress> progress, boolean done) {
+        if (!chunk.isEmpty()) {
+            try {
+                List<Long> hotelIds = transactionTemplate.execute(status -> insert(chunk));
+                report.setHotels(report.getHotels() + chunk.size());
+                report.setRooms(report.getRooms() + chunk.stream().mapToLong(hotel -> hotel.getRooms().size()).sum());
+                // lets every node add the new hotels to its amenity index
+                hotelIds.forEach(id -> entityCache.invalidate(EntityCache.HOTELS, id));
+            } catch (DataAccessException e) {
+                log.warn("import chunk ending at line {} failed : {}", line, e.getMessage());
+                String message = "Not imported: " + e.getMostSpecificCause().getMessage();
+                chunkLines.forEach(chunkLine -> report.getErrors().add(new ImportError(chunkLine, message)));
+            }
+            chunk.clear();
+            chunkLines.clear();
+        }
+        report.setCommittedLine(line);
+        if (importId != null) {
+            redisTemplate.opsForValue().set(ApplicationConstants.HOTEL_IMPORT + importId, String.valueOf(line), progressTtl);
+        }
+        progress.accept(new ImportProgress(line, report.getHotels(), report.getRooms(), List.copyOf(report.getErrors()), done));
+        report.getErrors().clear();
+    }
+
+    /**
+     * Inserts the hotels of a chunk and then their rooms, each with JDBC batches and with ids taken
+     * from the table sequences in a single query.
+     *
+     * @return The ids given to the hotels, in chunk order.
+     */
+    private List<Long> insert(List<CreateHotel> hotels) {
+        List<Long> hotelIds = nextIds("hotel", hotels.size());
+        List<HotelRow> hotelRows = new ArrayList<>(hotels.size());
+        List<RoomRow> roomRows = new ArrayList<>();
+        for (int i = 0; i < hotels.size(); i++) {
+            hotelRows.add(new HotelRow(hotelIds.get(i), hotels.get(i)));
+            hotels.get(i).getRooms().forEach(room -> roomRows.add(new RoomRow(0, 0, room)));
+        }
+        jdbcTemplate.batchUpdate(INSERT_HOTEL, hotelRows, hotelRows.size(), (ps, row) -> {
+            ps.setLong(1, row.id());
+            ps.setString(2, row.hotel().getName());
+            ps.setString(3, row.hotel().getLocation());
+            ps.setString(4, row.hotel().getDescription());
+            ps.setDouble(5, row.hotel().getRating());
+            ps.setArray(6, ps.getConnection().createArrayOf("varchar", row.hotel().getAmenities().toArray()));
+            ps.setString(7, row.hotel().getTimeZone());
+        });
+
+        List<Long> roomIds = nextIds("room", roomRows.size());
+        int r = 0;
+        for (HotelRow hotelRow : hotelRows) {
+            for (RoomDTO room : hotelRow.hotel().getRooms()) {
+                roomRows.set(r, new RoomRow(roomIds.get(r), hotelRow.id(), room));
+                r++;
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ROOM, roomRows, roomRows.size(), (ps, row) -> {
+            ps.setLong(1, row.id());
+            ps.setLong(2, row.hotelId());
+            ps.setString(3, row.room().getType());
+            ps.setString(4, row.room().getDescription());
+            ps.setDouble(5, row.room().getPricePerNight());
+            ps.setInt(6, row.room().getMaxOccupancy());
+        });
+        return hotelIds;
+    }
+
+    private List<Long> nextIds(String table, int count) {
+        return jdbcTemplate.queryForList(NEXT_IDS, Long.class, table, count);
+    }
+
+    /**
+     * Validates a hotel and each of its rooms.
+     *
+     * @return The violations as `field: message` pairs, or null if the hotel is valid.
+     */
+    private String validate(CreateHotel hotel) {
+        List<String> violations = new ArrayList<>();
+        validator.validate(hotel).forEach(violation -> violations.add(describe("", violation)));
+        if (hotel.getTimeZone() != null && !HotelService.isValidTimeZone(hotel.getTimeZone())) {
+            violations.add("timeZone: Invalid time zone");
+        }
+        if (hotel.getRooms() != null) {
+            for (int i = 0; i < hotel.getRooms().size(); i++) {
+                String prefix = "rooms[" + i + "].";
+                validator.validate(hotel.getRooms().get(i)).forEach(violation -> violations.add(describe(prefix, violation)));
+            }
+        }
+        return violations.isEmpty() ? null : violations.stream().sorted().collect(Collectors.joining("; "));
+    }
+
+    private static String describe(String prefix, ConstraintViolation<?> violation) {
+        return prefix + violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private long committedLine(String importId) {
+        if (importId == null) {
+            return 0;
+        }
+        String line = redisTemplate.opsForValue().get(ApplicationConstants.HOTEL_IMPORT + importId);
+        return line == null ? 0 : Long.parseLong(line);
+    }
+
+    private record HotelRow(long id, CreateHotel hotel) {
+    }
+
+    private record RoomRow(long id, long hotelId, RoomDTO room) {
+    }
+}
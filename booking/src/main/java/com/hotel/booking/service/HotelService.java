@@ -3,17 +3,28 @@ package com.hotel.booking.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hotel.booking.dtos.request.CreateHotel;
 import com.hotel.booking.dtos.request.RoomDTO;
+import com.hotel.booking.dtos.response.CursorPage;
 import com.hotel.booking.entity.Hotel;
 import com.hotel.booking.entity.Room;
+import com.hotel.booking.enums.AmenityMatch;
+import com.hotel.booking.exception.CustomException;
 import com.hotel.booking.repository.HotelRepo;
 import com.hotel.booking.repository.RoomRepo;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class HotelService {
@@ -26,6 +37,12 @@ public class HotelService {
     @Autowired
     private RoomRepo roomRepo;
 
+    @Autowired
+    private HotelAmenityIndex hotelAmenityIndex;
+
+    @Value("${pagination.max-size:100}")
+    private int maxPageSize;
+
    /**
     * The `createHotel` method creates a new hotel entity, saves it to the database, maps and saves
     * room entities associated with the hotel, and returns the created hotel entity.
@@ -38,6 +55,9 @@ public class HotelService {
     */
     @Transactional
     public Hotel createHotel(CreateHotel createHotel) {
+        if (createHotel.getTimeZone() != null && !isValidTimeZone(createHotel.getTimeZone())) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Invalid time zone: " + createHotel.getTimeZone());
+        }
         Hotel hotel = objectMapper.convertValue(createHotel, Hotel.class);
         hotel = hotelRepo.save(hotel);
         List<Room> rooms = mapRoomDTOListToEntityList(createHotel.getRooms(), hotel.getId());
@@ -45,6 +65,21 @@ public class HotelService {
         return hotel;
     }
 
+    /**
+     * The function checks that a time zone is a zone id or an offset known to `ZoneId`.
+     *
+     * @param timeZone The time zone to check, e.g. `Europe/Paris`.
+     * @return true if the time zone can be used to count the nights of a stay.
+     */
+    public static boolean isValidTimeZone(String timeZone) {
+        try {
+            ZoneId.of(timeZone);
+            return true;
+        } catch (DateTimeException e) {
+            return false;
+        }
+    }
+
     /**
      * This Java function maps a list of RoomDTO objects to a list of Room entities with a specified
      * hotel ID.
@@ -79,19 +114,66 @@ public class HotelService {
     }
 
     /**
-     * The function returns a page of Hotel entities from the hotel repository based on the specified
-     * page number and size.
+     * The function returns the next page of Hotel entities ordered by id, seeking past the cursor
+     * instead of using an offset and without counting the table.
      *
-     * @param page The `page` parameter in the `getHotels` method represents the page number of the
-     *             results you want to retrieve. It is used to specify which page of results you want to fetch from
-     *             the database.
-     * @param size The `size` parameter in the `getHotels` method represents the number of items (in
-     *             this case, hotels) to be included in each page of results when paginating through the list of
-     *             hotels. It determines how many hotels will be displayed on each page when the method is called.
-     * @return A Page of Hotel entities from the hotelRepo, with the specified size.
+     * @param cursor The `cursor` parameter is the `nextCursor` of the previous page, null or blank for
+     *               the first page.
+     * @param size   The `size` parameter is the number of hotels per page, bounded by
+     *               `pagination.max-size`.
+     * @return A CursorPage of Hotel entities with the cursor of the next page.
      */
-    public Page<Hotel> getHotels(int page, int size) {
-        return hotelRepo.findAll(Pageable.ofSize(size));
+    public CursorPage<Hotel> getHotels(String cursor, int size) {
+        int limit = CursorPage.limit(size, maxPageSize);
+        List<Hotel> rows = hotelRepo.findByIdGreaterThanOrderByIdAsc(CursorPage.decode(cursor), Pageable.ofSize(limit + 1));
+        return CursorPage.of(rows, limit, Hotel::getId);
     }
 
+
+    /**
+     * The function searches hotels by location and amenities, ordered by id, with the same cursor
+     * pagination as the hotel listing. Matching is answered by the in-memory amenity index; until it
+     * is loaded, hotels of the location are read from the database and filtered one by one.
+     *
+     * @param location  The `location` parameter restricts the search to hotels of that location,
+     *                  ignored when null or blank.
+     * @param amenities The `amenities` parameter lists the amenities to look for, compared case
+     *                  insensitively.
+     * @param match     The `match` parameter tells whether a hotel must offer all the amenities or any
+     *                  of them.
+     * @param cursor    The `cursor` parameter is the `nextCursor` of the previous page, null or blank for
+     *                  the first page.
+     * @param size      The `size` parameter is the number of hotels per page, bounded by
+     *                  `pagination.max-size`.
+     * @return A CursorPage of the matching Hotel entities with the cursor of the next page.
+     */
+    public CursorPage<Hotel> searchHotels(String location, List<String> amenities, AmenityMatch match, String cursor, int size) {
+        String place = location == null || location.isBlank() ? null : location;
+        List<String> wanted = amenities == null ? List.of() : amenities.stream().filter(amenity -> !amenity.isBlank()).toList();
+        if (place == null && wanted.isEmpty()) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Either location or amenities are required");
+        }
+        int limit = CursorPage.limit(size, maxPageSize);
+        long afterId = CursorPage.decode(cursor);
+        List<Hotel> rows;
+        if (hotelAmenityIndex.isReady()) {
+            List<Long> ids = Arrays.stream(hotelAmenityIndex.search(place, wanted, match, afterId, limit + 1)).boxed().toList();
+            rows = hotelRepo.findAllById(ids).stream().sorted(Comparator.comparing(Hotel::getId)).toList();
+        } else if (place != null) {
+            Set<String> normalized = wanted.stream().map(amenity -> amenity.trim().toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+            rows = hotelRepo.findByLocationAndIdGreaterThanOrderByIdAsc(place, afterId).stream()
+                    .filter(hotel -> normalized.isEmpty() || matches(hotel, normalized, match))
+                    .limit(limit + 1L)
+                    .toList();
+        } else {
+            throw new CustomException(HttpStatus.SERVICE_UNAVAILABLE.value(), "Amenity search without location is not available yet, please retry");
+        }
+        return CursorPage.of(rows, limit, Hotel::getId);
+    }
+
+    private static boolean matches(Hotel hotel, Set<String> amenities, AmenityMatch match) {
+        Set<String> offered = hotel.getAmenities() == null ? Set.of()
+                : hotel.getAmenities().stream().map(amenity -> amenity.trim().toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        return match == AmenityMatch.ANY ? amenities.stream().anyMatch(offered::contains) : offered.containsAll(amenities);
+    }
 }
@@ -0,0 +1,56 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.constants.ApplicationConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Elects a single node for cluster wide background jobs through a Redis lease. The lease is a key
+ * holding the token of its owner with a time to live; the owner renews it on every run and another
+ * node takes over once it has expired.
+ */
+@Component
+@Slf4j
+public class LeaderElection {
+
+    /**
+     * Renews the lease when this node owns it, otherwise takes it when it is free.
+     */
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('pexpire', KEYS[1], ARGV[2]) " +
+                    "elseif redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+                    "return 1 " +
+                    "else return 0 end", Long.class);
+
+    private final String token = UUID.randomUUID().toString();
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    /**
+     * The function tells whether this node leads the given job, taking or renewing the lease.
+     *
+     * @param job The name of the job, each job has its own leader.
+     * @param ttl How long the lease lasts without renewal; it should span a few runs of the job.
+     * @return true if this node holds the lease until at least `ttl` from now.
+     */
+    public boolean tryAcquire(String job, Duration ttl) {
+        try {
+            Long acquired = redisTemplate.execute(ACQUIRE, List.of(ApplicationConstants.LEADER + job),
+                    token, String.valueOf(ttl.toMillis()));
+            return acquired != null && acquired == 1L;
+        } catch (RuntimeException e) {
+            log.warn("could not reach redis to elect the leader of {} : {}", job, e.getMessage());
+            return false;
+        }
+    }
+}
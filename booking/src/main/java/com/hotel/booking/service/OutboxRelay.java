@@ -0,0 +1,138 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.config.MessageProducer;
+import com.hotel.booking.entity.OutboxEvent;
+import com.hotel.booking.repository.OutboxRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes the rows of the outbox to Kafka when `booking.outbox.enabled` is true. A single elected
+ * node reads the oldest rows in batches of `booking.outbox.batch-size`, hands the whole batch to the
+ * producer so that it is sent as a few large requests, waits for the acknowledgements and deletes the
+ * acknowledged rows with one statement. Rows that could not be sent stay in the outbox for the next
+ * run, so every booking is delivered at least once; the event id each booking event carries lets the
+ * consumer skip the ones delivered twice.
+ * <p>
+ * The lease is renewed before every batch and a batch waits at most half of it for the broker, while
+ * a run starts no batch after half of the lease elapsed. A node therefore never relays on a lease it
+ * may have lost, which would let two nodes send the same rows out of order.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    static final String RELAY_JOB = "outbox-relay";
+
+    /**
+     * Outbox rows published and acknowledged by the broker.
+     */
+    static final String RELAYED_COUNTER = "booking.outbox.relayed";
+
+    /**
+     * Duration of each relayed batch, from reading the rows to deleting them.
+     */
+    static final String BATCH_TIMER = "booking.outbox.batch";
+
+    @Autowired
+    private OutboxRepo outboxRepo;
+
+    @Autowired
+    private MessageProducer messageProducer;
+
+    @Autowired
+    private LeaderElection leaderElection;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${booking.outbox.enabled:false}")
+    private boolean enabled;
+
+    @Value("${booking.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${booking.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${booking.outbox.leader-ttl:PT30S}")
+    private Duration leaderTtl;
+
+    @Value("${booking.outbox.send-timeout:PT30S}")
+    private Duration sendTimeout;
+
+    /**
+     * This function relays the outbox to Kafka, batch after batch, until the outbox is drained or
+     * `booking.outbox.max-batches-per-run` batches were relayed or half of the lease elapsed. It only
+     * runs on the elected node, and stops as soon as the lease could not be renewed.
+     */
+    @Scheduled(fixedDelayString = "${booking.outbox.relay-interval:200}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        long batchTimeoutNanos = Math.min(sendTimeout.toNanos(), leaderTtl.toNanos() / 2);
+        long runDeadline = System.nanoTime() + leaderTtl.toNanos() / 2;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if ((batch > 0 && System.nanoTime() >= runDeadline) || !leaderElection.tryAcquire(RELAY_JOB, leaderTtl)) {
+                return;
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            List<OutboxEvent> events = outboxRepo.findAllByOrderByIdAsc(Pageable.ofSize(batchSize));
+            if (events.isEmpty()) {
+                return;
+            }
+            int relayed = relayBatch(events, batchTimeoutNanos);
+            sample.stop(meterRegistry.timer(BATCH_TIMER));
+            // a partly failed batch is retried on the next run rather than hammering a failing broker
+            if (relayed < events.size() || events.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the events in id order, waits for the broker and deletes the acknowledged ones.
+     *
+     * @param timeoutNanos How long to wait for the acknowledgements of the whole batch.
+     * @return The number of events acknowledged and deleted.
+     */
+    private int relayBatch(List<OutboxEvent> events, long timeoutNanos) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            sends.add(messageProducer.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<Long> acknowledged = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acknowledged.add(events.get(i).getId());
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("outbox event {} not acknowledged, keeping it for the next run : {}", events.get(i).getId(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!acknowledged.isEmpty()) {
+            outboxRepo.deleteRelayed(acknowledged);
+            meterRegistry.counter(RELAYED_COUNTER).increment(acknowledged.size());
+        }
+        return acknowledged.size();
+    }
+}
@@ -0,0 +1,44 @@
+package com.hotel.booking.service;
+
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Runs Lua scripts from within a Redis pipeline. `RedisOperations.execute(RedisScript, ...)` sends
+ * EVALSHA and only falls back to EVAL when the call itself fails with NOSCRIPT, but in a pipeline the
+ * call just queues the command and the error surfaces when the pipeline is closed, so a script not in
+ * the script cache of the server, e.g. after a restart or a flush, would fail every pipeline using it.
+ * The script body is therefore sent with EVAL, which never depends on the script cache.
+ */
+final class PipelinedScripts {
+
+    private PipelinedScripts() {
+    }
+
+    /**
+     * The function queues a script in the pipeline bound to the operations. Its result is returned at
+     * its position in the results of the pipeline.
+     *
+     * @param operations The operations of the pipeline, as passed to its `SessionCallback`.
+     * @param script     The script to run.
+     * @param keys       The keys the script accesses.
+     * @param args       The arguments of the script, written as strings.
+     */
+    static void eval(RedisOperations<String, String> operations, RedisScript<?> script, List<String> keys, Object... args) {
+        byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+        for (int i = 0; i < keys.size(); i++) {
+            keysAndArgs[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < args.length; i++) {
+            keysAndArgs[keys.size() + i] = String.valueOf(args[i]).getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] body = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        operations.execute((RedisCallback<Object>) connection -> connection.scriptingCommands()
+                .eval(body, ReturnType.fromJavaType(script.getResultType()), keys.size(), keysAndArgs));
+    }
+}
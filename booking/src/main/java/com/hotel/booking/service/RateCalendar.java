@@ -0,0 +1,210 @@
+package com.hotel.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.RoomRate;
+import com.hotel.booking.repository.RoomRateRepo;
+import com.hotel.booking.repository.RoomRepo;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Node local calendar of the nightly prices of the rooms. Each room keeps the prices of the nights
+ * from yesterday up to `booking.rates.horizon-days` ahead as prefix sums over a primitive array,
+ * with the nights taken in the time zone of its hotel, so a stay of any length is quoted with two
+ * array reads and never touches the database. Nights outside the calendar are priced at the room's
+ * base price.
+ * <p>
+ * Calendars are loaded on first use, bounded in number and rebuilt after `booking.rates.ttl` so the
+ * window moves along with the date. A change of a room, of its rates or of its hotel on any node
+ * drops the calendars concerned through the entity cache invalidation.
+ */
+@Component
+@Slf4j
+public class RateCalendar {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    @Autowired
+    private RoomRepo roomRepo;
+
+    @Autowired
+    private RoomRateRepo roomRateRepo;
+
+    @Value("${booking.rates.horizon-days:730}")
+    private int horizonDays;
+
+    @Value("${booking.rates.maximum-rooms:10000}")
+    private long maximumRooms;
+
+    @Value("${booking.rates.ttl:PT1H}")
+    private Duration ttl;
+
+    private Cache<Long, Rates> calendars;
+
+    @PostConstruct
+    void init() {
+        calendars = Caffeine.newBuilder()
+                .maximumSize(maximumRooms)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * The function quotes a stay in a room, counting the nights in the time zone of its hotel.
+     *
+     * @param room         The room, with its hotel.
+     * @param checkInDate  The check-in time in milliseconds since the epoch.
+     * @param checkOutDate The check-out time in milliseconds since the epoch.
+     * @return The total price of the stay.
+     * @throws IllegalArgumentException If the stay does not span at least one night.
+     */
+    public double quote(Room room, long checkInDate, long checkOutDate) {
+        return calendars.get(room.getId(), id -> build(List.of(room)).get(id)).quote(checkInDate, checkOutDate);
+    }
+
+    /**
+     * The function quotes the same stay in many rooms, loading the calendars missing on this node
+     * with one query for the rooms and one for their rates.
+     *
+     * @param roomIds      The identifiers of the rooms.
+     * @param checkInDate  The check-in time in milliseconds since the epoch.
+     * @param checkOutDate The check-out time in milliseconds since the epoch.
+     * @return The total price of the stay per room, in the order of `roomIds`; `NaN` for a room that
+     * no longer exists.
+     * @throws IllegalArgumentException If the stay does not span at least one night in one of the rooms.
+     */
+    public double[] quoteAll(List<Long> roomIds, long checkInDate, long checkOutDate) {
+        Map<Long, Rates> found = calendars.getAll(roomIds, missing -> build(roomRepo.findAllById(new ArrayList<>(missing))));
+        double[] totals = new double[roomIds.size()];
+        for (int i = 0; i < totals.length; i++) {
+            Rates rates = found.get(roomIds.get(i));
+            totals[i] = rates == null ? Double.NaN : rates.quote(checkInDate, checkOutDate);
+        }
+        return totals;
+    }
+
+    /**
+     * The function tells the last night covered by the calendar of a room. Rates of later nights
+     * would not be seen by the quotes.
+     *
+     * @param room The room, with its hotel.
+     * @return The date of the last night of the calendar in the time zone of the hotel.
+     */
+    public LocalDate lastNight(Room room) {
+        return LocalDate.now(zoneOf(room.getHotel())).plusDays(horizonDays - 2L);
+    }
+
+    /**
+     * Drops the calendar of a changed room, or of every room of a changed hotel, so the next quote
+     * reloads it.
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (EntityCache.ROOMS.equals(event.cacheName())) {
+            calendars.invalidate(event.id());
+        } else if (EntityCache.HOTELS.equals(event.cacheName())) {
+            calendars.asMap().values().removeIf(rates -> rates.hotelId() == event.id());
+        }
+    }
+
+    private Map<Long, Rates> build(Collection<Room> rooms) {
+        Map<Long, Rates> built = new HashMap<>();
+        if (rooms.isEmpty()) {
+            return built;
+        }
+        Map<Long, ZoneId> zones = new HashMap<>();
+        Map<Long, Long> firstDays = new HashMap<>();
+        for (Room room : rooms) {
+            ZoneId zone = zoneOf(room.getHotel());
+            zones.put(room.getId(), zone);
+            // starting a night early keeps late-evening check-ins of the previous day in the calendar
+            firstDays.put(room.getId(), LocalDate.now(zone).toEpochDay() - 1);
+        }
+        long from = firstDays.values().stream().mapToLong(Long::longValue).min().getAsLong();
+        long to = firstDays.values().stream().mapToLong(Long::longValue).max().getAsLong() + horizonDays - 1;
+        Map<Long, List<RoomRate>> rates = roomRateRepo.findRates(zones.keySet(), LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to))
+                .stream().collect(Collectors.groupingBy(RoomRate::getRoomId));
+
+        for (Room room : rooms) {
+            long firstDay = firstDays.get(room.getId());
+            double[] nightly = new double[horizonDays];
+            Arrays.fill(nightly, room.getPricePerNight());
+            for (RoomRate rate : rates.getOrDefault(room.getId(), List.of())) {
+                long index = rate.getNight().toEpochDay() - firstDay;
+                if (index >= 0 && index < horizonDays) {
+                    nightly[(int) index] = rate.getPrice();
+                }
+            }
+            double[] prefix = new double[horizonDays + 1];
+            for (int i = 0; i < horizonDays; i++) {
+                prefix[i + 1] = prefix[i] + nightly[i];
+            }
+            long hotelId = room.getHotel() == null ? -1 : room.getHotel().getId();
+            built.put(room.getId(), new Rates(hotelId, zones.get(room.getId()), room.getPricePerNight(), firstDay, prefix));
+        }
+        return built;
+    }
+
+    static ZoneId zoneOf(Hotel hotel) {
+        if (hotel == null || hotel.getTimeZone() == null || hotel.getTimeZone().isBlank()) {
+            return ZoneId.systemDefault();
+        }
+        try {
+            return ZoneId.of(hotel.getTimeZone());
+        } catch (DateTimeException e) {
+            log.warn("hotel {} has an invalid time zone {}, using {}", hotel.getId(), hotel.getTimeZone(), ZoneId.systemDefault());
+            return ZoneId.systemDefault();
+        }
+    }
+
+    /**
+     * The calendar of one room. `prefix[i]` holds the price of the first `i` nights from `firstDay`,
+     * so the nights `[a, b)` cost `prefix[b] - prefix[a]`.
+     */
+    record Rates(long hotelId, ZoneId zone, double basePrice, long firstDay, double[] prefix) {
+
+        double quote(long checkInDate, long checkOutDate) {
+            long checkInDay = epochDay(checkInDate);
+            long nights = epochDay(checkOutDate) - checkInDay;
+            if (nights <= 0) {
+                throw new IllegalArgumentException("Invalid check-in and check-out dates");
+            }
+            int days = prefix.length - 1;
+            int from = clamp(checkInDay - firstDay, days);
+            int to = clamp(checkInDay + nights - firstDay, days);
+            return prefix[to] - prefix[from] + (nights - (to - from)) * basePrice;
+        }
+
+        /**
+         * The local date of an instant as an epoch day, without going through `LocalDate`.
+         */
+        private long epochDay(long millis) {
+            long offsetMillis = zone.getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+            return Math.floorDiv(millis + offsetMillis, MILLIS_PER_DAY);
+        }
+
+        private static int clamp(long day, int days) {
+            return (int) Math.max(0, Math.min(day, days));
+        }
+    }
+}
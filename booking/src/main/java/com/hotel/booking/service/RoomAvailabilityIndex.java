@@ -0,0 +1,286 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.dtos.projection.BookingStay;
+import com.hotel.booking.repository.BookingRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process index of the active stays of every room. Each room keeps its stays as sorted
+ * primitive arrays together with a running maximum of the check-out dates, so an overlap query is a
+ * single binary search and never touches Redis or the database.
+ * <p>
+ * The index is local to the node: the bookings, cancellations and expired holds of the other nodes
+ * never reach it. It is therefore only a hint, used once it has been rebuilt from the database. A
+ * room without overlapping stay is taken as free, the hold in Redis still rejecting a stay booked
+ * elsewhere meanwhile, while an overlap is confirmed against the shared Redis bitmaps before a room
+ * is reported as taken.
+ */
+@Component
+@Slf4j
+public class RoomAvailabilityIndex {
+
+    @Autowired
+    private BookingRepo bookingRepo;
+
+    @Value("${availability.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${availability.index.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    private volatile ConcurrentHashMap<Long, Stays> rooms = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * The function tells whether the index is enabled and has been fully loaded, i.e. whether a room
+     * it finds free may be taken as free. Its overlaps still have to be confirmed by the Redis bitmaps.
+     *
+     * @return true if the index may be consulted first.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Loads the index from the database once the application has started, when the rebuild on
+     * startup mode is switched on.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled && rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * The function replaces the index with the active bookings of the database and marks it as
+     * ready. The snapshot replaces the stays recorded before, so a stay cancelled while the query ran
+     * is not counted twice; stays added on this node during the rebuild may be missed, their nights
+     * being held in Redis anyway.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<BookingStay> stays = bookingRepo.findAllActiveStays();
+        ConcurrentHashMap<Long, Stays> loaded = new ConcurrentHashMap<>();
+        stays.forEach(stay -> loaded.compute(stay.getRoomId(),
+                (id, roomStays) -> (roomStays == null ? Stays.EMPTY : roomStays).with(stay.getCheckInDate(), stay.getCheckOutDate())));
+        rooms = loaded;
+        ready = true;
+        log.info("room availability index rebuilt with {} stays over {} rooms in {} ms",
+                stays.size(), loaded.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * The function checks whether any stay of the room overlaps with the given date range, using
+     * the same half-open ranges as `Booking.overlaps`: a stay ending at the requested check-in does
+     * not overlap.
+     *
+     * @param roomId       The identifier of the room to check.
+     * @param checkInDate  The start of the requested range in milliseconds since the epoch.
+     * @param checkOutDate The end of the requested range in milliseconds since the epoch.
+     * @return true if at least one indexed stay overlaps with the range.
+     */
+    public boolean overlaps(Long roomId, long checkInDate, long checkOutDate) {
+        Stays stays = rooms.get(roomId);
+        return stays != null && stays.overlaps(checkInDate, checkOutDate);
+    }
+
+    /**
+     * The function records a stay for a room. Stays are counted, so two bookings of the same stay,
+     * e.g. one cancelled and one booked again, take two removals to clear.
+     *
+     * @param roomId       The identifier of the booked room.
+     * @param checkInDate  The check-in time in milliseconds since the epoch.
+     * @param checkOutDate The check-out time in milliseconds since the epoch.
+     */
+    public void add(Long roomId, long checkInDate, long checkOutDate) {
+        if (!enabled) {
+            return;
+        }
+        rooms.compute(roomId, (id, stays) -> (stays == null ? Stays.EMPTY : stays).with(checkInDate, checkOutDate));
+    }
+
+    /**
+     * The function removes a stay from a room, typically after a cancellation or a check-out.
+     *
+     * @param roomId       The identifier of the room.
+     * @param checkInDate  The check-in time of the stay in milliseconds since the epoch.
+     * @param checkOutDate The check-out time of the stay in milliseconds since the epoch.
+     */
+    public void remove(Long roomId, long checkInDate, long checkOutDate) {
+        if (!enabled) {
+            return;
+        }
+        rooms.computeIfPresent(roomId, (id, stays) -> {
+            Stays remaining = stays.without(checkInDate, checkOutDate);
+            return remaining.size() == 0 ? null : remaining;
+        });
+    }
+
+    /**
+     * The function drops every stay that ended before the given time. Each node prunes its own
+     * index this way, while the check-outs are expired in the database by a single node.
+     *
+     * @param time The current time in milliseconds since the epoch.
+     */
+    public void removeEndedBefore(long time) {
+        if (!enabled) {
+            return;
+        }
+        rooms.replaceAll((id, stays) -> stays.endedBefore(time));
+        rooms.values().removeIf(stays -> stays.size() == 0);
+    }
+
+    /**
+     * Immutable, sorted multiset of stays of a single room, `counts[i]` being the number of bookings
+     * of the stay. `maxEnds[i]` holds the largest check-out date among the first `i + 1` stays, which
+     * turns an overlap query into one binary search.
+     */
+    static final class Stays {
+        static final Stays EMPTY = new Stays(new long[0], new long[0], new int[0]);
+
+        private final long[] starts;
+        private final long[] ends;
+        private final int[] counts;
+        private final long[] maxEnds;
+
+        Stays(long[] starts, long[] ends, int[] counts) {
+            this.starts = starts;
+            this.ends = ends;
+            this.counts = counts;
+            this.maxEnds = new long[ends.length];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        boolean overlaps(long from, long to) {
+            // stays starting at or after `to` can never overlap, the remaining prefix overlaps if any of them ends after `from`
+            int candidates = startingBefore(to);
+            return candidates > 0 && maxEnds[candidates - 1] > from;
+        }
+
+        Stays with(long start, long end) {
+            int position = indexOf(start, end);
+            if (position >= 0) {
+                int[] newCounts = counts.clone();
+                newCounts[position]++;
+                return new Stays(starts, ends, newCounts);
+            }
+            int insertAt = -position - 1;
+            long[] newStarts = new long[starts.length + 1];
+            long[] newEnds = new long[ends.length + 1];
+            int[] newCounts = new int[counts.length + 1];
+            System.arraycopy(starts, 0, newStarts, 0, insertAt);
+            System.arraycopy(ends, 0, newEnds, 0, insertAt);
+            System.arraycopy(counts, 0, newCounts, 0, insertAt);
+            newStarts[insertAt] = start;
+            newEnds[insertAt] = end;
+            newCounts[insertAt] = 1;
+            System.arraycopy(starts, insertAt, newStarts, insertAt + 1, starts.length - insertAt);
+            System.arraycopy(ends, insertAt, newEnds, insertAt + 1, ends.length - insertAt);
+            System.arraycopy(counts, insertAt, newCounts, insertAt + 1, counts.length - insertAt);
+            return new Stays(newStarts, newEnds, newCounts);
+        }
+
+        Stays without(long start, long end) {
+            int position = indexOf(start, end);
+            if (position < 0) {
+                return this;
+            }
+            if (counts[position] > 1) {
+                int[] newCounts = counts.clone();
+                newCounts[position]--;
+                return new Stays(starts, ends, newCounts);
+            }
+            long[] newStarts = new long[starts.length - 1];
+            long[] newEnds = new long[ends.length - 1];
+            int[] newCounts = new int[counts.length - 1];
+            System.arraycopy(starts, 0, newStarts, 0, position);
+            System.arraycopy(ends, 0, newEnds, 0, position);
+            System.arraycopy(counts, 0, newCounts, 0, position);
+            System.arraycopy(starts, position + 1, newStarts, position, starts.length - position - 1);
+            System.arraycopy(ends, position + 1, newEnds, position, ends.length - position - 1);
+            System.arraycopy(counts, position + 1, newCounts, position, counts.length - position - 1);
+            return new Stays(newStarts, newEnds, newCounts);
+        }
+
+        Stays endedBefore(long time) {
+            int kept = 0;
+            for (int i = 0; i < ends.length; i++) {
+                if (ends[i] >= time) {
+                    kept++;
+                }
+            }
+            if (kept == ends.length) {
+                return this;
+            }
+            long[] newStarts = new long[kept];
+            long[] newEnds = new long[kept];
+            int[] newCounts = new int[kept];
+            int position = 0;
+            // copying in order keeps the remaining stays sorted
+            for (int i = 0; i < ends.length; i++) {
+                if (ends[i] >= time) {
+                    newStarts[position] = starts[i];
+                    newEnds[position] = ends[i];
+                    newCounts[position++] = counts[i];
+                }
+            }
+            return kept == 0 ? EMPTY : new Stays(newStarts, newEnds, newCounts);
+        }
+
+        /**
+         * Number of stays whose start is strictly before the given time.
+         */
+        private int startingBefore(long time) {
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Binary search on (start, end) pairs, returning the position of the stay or
+         * `-(insertion point) - 1` like `Arrays.binarySearch`.
+         */
+        private int indexOf(long start, long end) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = starts[mid] != start ? Long.compare(starts[mid], start) : Long.compare(ends[mid], end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,681 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.repository.BookingRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.BitFieldSubCommands.BitFieldType;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Day granular availability store backed by Redis bitmaps. Every room has one bitmap per year under
+ * `room_nights:{roomId}:{year}` where bit `dayOfYear - 1` is set when the night starting on that day
+ * is taken. A stay occupies the nights from its check-in day up to, but excluding, its check-out
+ * day, so overlapping but different ranges share the same bits. Days and years are counted in the
+ * time zone of the hotel, like the nights priced by the {@link RateCalendar}.
+ * <p>
+ * A year bitmap is filled from the database the first time it is probed; bit {@link #LOADED_BIT}
+ * records that this happened so that an empty year can be told apart from a year never loaded.
+ * Concurrent misses on the same year share a single load. Every release of nights bumps a counter
+ * of the bitmap first, and a load only writes its database snapshot if the bitmap is still not
+ * loaded and no night was released since the snapshot was read, so a stay cancelled meanwhile is
+ * never filled back in.
+ * <p>
+ * New bookings take their nights as tentative holds, listed in the `room_holds` sorted set by
+ * expiry time. The consumer confirms a hold once the booking is persisted; holds that are never
+ * confirmed expire and free their nights again.
+ */
+@Component
+@Slf4j
+public class RoomNightAvailabilityStore {
+
+    /**
+     * Bit offset right after the last night of a leap year, flagging a year loaded from the database.
+     */
+    static final int LOADED_BIT = 366;
+
+    /**
+     * Widest unsigned integer BITFIELD can read or write in one sub command.
+     */
+    private static final int MAX_FIELD_BITS = 63;
+
+    /**
+     * Interval at which a node waiting on the load lease of another node checks the loaded flag.
+     */
+    private static final long LEASE_POLL_MILLIS = 10;
+
+    /**
+     * Database snapshots read for one load before giving up while nights keep being released.
+     */
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    /**
+     * Fills a year bitmap from a database snapshot. KEYS are the bitmap and its release counter; ARGV
+     * are the loaded bit, the release count read before the snapshot and one bit range per stay of
+     * the snapshot. Returns 1 when filled, 0 when the year got loaded meanwhile and -1 when nights were
+     * released since the snapshot, which is then stale.
+     */
+    private static final RedisScript<Long> LOAD = new DefaultRedisScript<>(
+            "if redis.call('getbit', KEYS[1], ARGV[1]) == 1 then return 0 end " +
+                    "if (redis.call('get', KEYS[2]) or '0') ~= ARGV[2] then return -1 end " +
+                    "for i = 3, #ARGV - 1, 2 do " +
+                    "for bit = tonumber(ARGV[i]), tonumber(ARGV[i + 1]) - 1 do " +
+                    "redis.call('setbit', KEYS[1], bit, 1) " +
+                    "end " +
+                    "end " +
+                    "redis.call('setbit', KEYS[1], ARGV[1], 1) " +
+                    "return 1", Long.class);
+
+    /**
+     * Holds a stay if all of its nights are free. KEYS are the year bitmaps of the stay followed by
+     * the holds sorted set; ARGV are the loaded bit, the hold member, its expiry time and one bit range
+     * per year. Returns 1 when held, 0 when a night is taken and `-i` when year `i` is not loaded.
+     */
+    private static final RedisScript<Long> HOLD = new DefaultRedisScript<>(
+            "local n = #KEYS - 1 " +
+                    "for i = 1, n do " +
+                    "if redis.call('getbit', KEYS[i], ARGV[1]) == 0 then return -i end " +
+                    "end " +
+                    "for i = 1, n do " +
+                    "for bit = tonumber(ARGV[2 * i + 2]), tonumber(ARGV[2 * i + 3]) - 1 do " +
+                    "if redis.call('getbit', KEYS[i], bit) == 1 then return 0 end " +
+                    "end " +
+                    "end " +
+                    "for i = 1, n do " +
+                    "for bit = tonumber(ARGV[2 * i + 2]), tonumber(ARGV[2 * i + 3]) - 1 do " +
+                    "redis.call('setbit', KEYS[i], bit, 1) " +
+                    "end " +
+                    "end " +
+                    "redis.call('zadd', KEYS[n + 1], ARGV[3], ARGV[2]) " +
+                    "return 1", Long.class);
+
+    /**
+     * Confirms a hold by removing it from the holds sorted set. When the hold is gone the nights are
+     * taken again and 0 is returned. ARGV are the hold member and one bit range per year.
+     */
+    private static final RedisScript<Long> CONFIRM = new DefaultRedisScript<>(
+            "local n = #KEYS - 1 " +
+                    "if redis.call('zrem', KEYS[n + 1], ARGV[1]) == 1 then return 1 end " +
+                    "for i = 1, n do " +
+                    "for bit = tonumber(ARGV[2 * i]), tonumber(ARGV[2 * i + 1]) - 1 do " +
+                    "redis.call('setbit', KEYS[i], bit, 1) " +
+                    "end " +
+                    "end " +
+                    "return 0", Long.class);
+
+    /**
+     * Drops a hold and frees its nights, only if the hold still exists. Same arguments as CONFIRM.
+     */
+    private static final RedisScript<Long> RELEASE_HOLD = new DefaultRedisScript<>(
+            "local n = #KEYS - 1 " +
+                    "if redis.call('zrem', KEYS[n + 1], ARGV[1]) == 0 then return 0 end " +
+                    "for i = 1, n do " +
+                    "for bit = tonumber(ARGV[2 * i]), tonumber(ARGV[2 * i + 1]) - 1 do " +
+                    "redis.call('setbit', KEYS[i], bit, 0) " +
+                    "end " +
+                    "end " +
+                    "return 1", Long.class);
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Value("${booking.hold.ttl:PT5M}")
+    private Duration holdTtl;
+
+    @Value("${availability.load-lease.enabled:true}")
+    private boolean loadLeaseEnabled;
+
+    @Value("${availability.load-lease.ttl:PT2S}")
+    private Duration loadLeaseTtl;
+
+    /**
+     * Loads of year bitmaps running on this node, by bitmap key.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> inFlightLoads = new ConcurrentHashMap<>();
+
+    private final LongAdder probeHits = new LongAdder();
+
+    private final LongAdder probeMisses = new LongAdder();
+
+    private final LongAdder databaseLoads = new LongAdder();
+
+    private final LongAdder coalescedLoads = new LongAdder();
+
+    private final LongAdder leaseWaits = new LongAdder();
+
+    @Autowired
+    private BookingRepo bookingRepo;
+
+    /**
+     * The function checks whether every night of the stay is free. Each year covered by the stay is
+     * answered with a single BITFIELD probe, loading the year from the database first if needed. A
+     * year that could not be loaded is answered by the bookings of the database instead, as its empty
+     * bits do not mean the nights are free.
+     *
+     * @param roomId       The identifier of the room to check.
+     * @param checkInDate  The check-in time in milliseconds since the epoch.
+     * @param checkOutDate The check-out time in milliseconds since the epoch.
+     * @return true if none of the nights of the stay is taken.
+     */
+    public boolean isAvailable(Long roomId, long checkInDate, long checkOutDate) {
+        for (Segment segment : segments(roomId, checkInDate, checkOutDate)) {
+            List<Long> values = probe(segment);
+            countProbe(values);
+            if (values.get(0) == 0L) {
+                load(roomId, segment.year());
+                values = probe(segment);
+            }
+            if (isTaken(values) || values.get(0) == 0L && isBookedInDatabase(roomId, checkInDate, checkOutDate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The function checks the availability of many stays at once. All bitmap probes are sent in one
+     * Redis pipeline; years that were never loaded are filled from the database and probed again, and
+     * a stay in a year that still could not be loaded is checked against the database.
+     *
+     * @param bookings The bookings to check, each with its room and stay dates set.
+     * @return An array holding, at the position of each booking, whether all of its nights are free.
+     */
+    public boolean[] areAvailable(List<Booking> bookings) {
+        List<List<Segment>> segmentsPerBooking = bookings.stream()
+                .map(booking -> segments(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate()))
+                .toList();
+        List<Segment> allSegments = segmentsPerBooking.stream().flatMap(List::stream).toList();
+        List<Object> probes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                allSegments.forEach(segment -> stringOperations.opsForValue().bitField(segment.key(), probeCommands(segment)));
+                return null;
+            }
+        });
+
+        boolean[] available = new boolean[bookings.size()];
+        Set<String> loadedKeys = new HashSet<>();
+        int probeIndex = 0;
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            Long roomId = booking.getRoom().getId();
+            available[i] = true;
+            for (Segment segment : segmentsPerBooking.get(i)) {
+                @SuppressWarnings("unchecked")
+                List<Long> values = (List<Long>) probes.get(probeIndex++);
+                countProbe(values);
+                if (values.get(0) == 0L) {
+                    if (loadedKeys.add(segment.key())) {
+                        load(roomId, segment.year());
+                    }
+                    values = probe(segment);
+                }
+                if (isTaken(values) || values.get(0) == 0L
+                        && isBookedInDatabase(roomId, booking.getCheckInDate(), booking.getCheckOutDate())) {
+                    available[i] = false;
+                }
+            }
+        }
+        return available;
+    }
+
+    /**
+     * The function atomically takes the nights of a stay if all of them are free, as a tentative hold
+     * that lasts `booking.hold.ttl`. The check and the write run in one server side script, so of two
+     * concurrent requests for overlapping stays only one gets the hold. Years never loaded are filled
+     * from the database first.
+     *
+     * @param booking The booking to hold, with its room and stay dates set.
+     * @return true if the nights were free and are now held for the booking.
+     */
+    public boolean hold(Booking booking) {
+        List<Segment> segments = segments(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+        // each attempt either succeeds, fails on a taken night or names one more year to load
+        for (int attempt = 0; attempt <= segments.size(); attempt++) {
+            Long result = redisTemplate.execute(HOLD, holdKeys(segments), holdArgs(booking, segments));
+            if (result == null || result >= 0) {
+                return result != null && result == 1L;
+            }
+            load(booking.getRoom().getId(), segments.get((int) -result - 1).year());
+        }
+        return false;
+    }
+
+    /**
+     * The function holds the nights of many stays in a single Redis pipeline. Stays covering a year
+     * that was never loaded are held again one by one through {@link #hold(Booking)}, which loads it.
+     *
+     * @param bookings The bookings to hold, each with its room and stay dates set.
+     * @return An array holding, at the position of each booking, whether its nights are now held.
+     */
+    public boolean[] holdAll(List<Booking> bookings) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                for (Booking booking : bookings) {
+                    List<Segment> segments = segments(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+                    PipelinedScripts.eval(stringOperations, HOLD, holdKeys(segments), holdArgs(booking, segments));
+                }
+                return null;
+            }
+        });
+        boolean[] held = new boolean[bookings.size()];
+        for (int i = 0; i < held.length; i++) {
+            Long result = (Long) results.get(i);
+            held[i] = result != null && result < 0 ? hold(bookings.get(i)) : Long.valueOf(1L).equals(result);
+        }
+        return held;
+    }
+
+    /**
+     * The function turns the holds of persisted bookings into confirmed nights. A hold that already
+     * expired has had its nights freed, so they are taken again for the persisted booking.
+     *
+     * @param bookings The persisted bookings, each with its room and stay dates set.
+     */
+    public void confirmAll(List<Booking> bookings) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                for (Booking booking : bookings) {
+                    List<Segment> segments = segments(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+                    PipelinedScripts.eval(stringOperations, CONFIRM, holdKeys(segments), holdMemberArgs(booking, segments));
+                }
+                return null;
+            }
+        });
+        for (int i = 0; i < results.size(); i++) {
+            if (!Long.valueOf(1L).equals(results.get(i))) {
+                log.warn("hold of room {} expired before its booking {} was persisted", bookings.get(i).getRoom().getId(), bookings.get(i).getId());
+            }
+        }
+    }
+
+    /**
+     * The function drops the hold of a booking that will not be persisted and frees its nights. A
+     * hold that no longer exists is left alone, so nights taken since by another booking are kept.
+     *
+     * @param roomId       The identifier of the held room.
+     * @param checkInDate  The check-in time in milliseconds since the epoch.
+     * @param checkOutDate The check-out time in milliseconds since the epoch.
+     * @return true if the hold existed and its nights were freed.
+     */
+    public boolean releaseHold(Long roomId, long checkInDate, long checkOutDate) {
+        List<Segment> segments = segments(roomId, checkInDate, checkOutDate);
+        Long result = redisTemplate.execute(RELEASE_HOLD, holdKeys(segments),
+                holdMemberArgs(holdMember(roomId, checkInDate, checkOutDate), segments));
+        return result != null && result == 1L;
+    }
+
+    /**
+     * The function frees the nights of the holds whose time to live has passed, i.e. whose booking
+     * was never confirmed by the consumer. Each hold is released atomically, so several nodes may
+     * sweep at the same time.
+     *
+     * @param now   The current time in milliseconds since the epoch.
+     * @param limit The maximum number of holds released.
+     * @return The released holds as detached bookings holding the room and stay.
+     */
+    public List<Booking> expireHolds(long now, int limit) {
+        Set<String> members = redisTemplate.opsForZSet()
+                .rangeByScore(ApplicationConstants.ROOM_HOLDS, Double.NEGATIVE_INFINITY, now, 0, limit);
+        List<Booking> released = new ArrayList<>();
+        if (members == null) {
+            return released;
+        }
+        for (String member : members) {
+            String[] parts = member.split(ApplicationConstants.COLON);
+            Booking booking = new Booking();
+            booking.setRoom(new Room());
+            booking.getRoom().setId(Long.parseLong(parts[0]));
+            booking.setCheckInDate(Long.parseLong(parts[1]));
+            booking.setCheckOutDate(Long.parseLong(parts[2]));
+            if (releaseHold(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate())) {
+                released.add(booking);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * The function marks the nights of many stays as free again in a single Redis pipeline, e.g. for
+     * a cancellation or a chunk of expired check-outs.
+     *
+     * @param bookings The bookings whose nights should be released, each with its room set.
+     */
+    public void releaseAll(List<Booking> bookings) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                for (Booking booking : bookings) {
+                    for (Segment segment : segments(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate())) {
+                        // commands of a pipeline run in order, the counter is bumped before the bits are cleared,
+                        // so a load that read the stay before sees the release
+                        stringOperations.opsForValue().increment(releasesKey(segment.key()));
+                        stringOperations.opsForValue().bitField(segment.key(), fill(BitFieldSubCommands.create(), segment, false));
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * The function builds the member identifying the hold of a stay in the `room_holds` sorted set.
+     * Holds never overlap, so the room and stay are enough to tell them apart.
+     *
+     * @param roomId       The identifier of the room.
+     * @param checkInDate  The check-in time in milliseconds since the epoch.
+     * @param checkOutDate The check-out time in milliseconds since the epoch.
+     * @return The member, e.g. `42:1767225600000:1767398400000`.
+     */
+    public static String holdMember(Long roomId, long checkInDate, long checkOutDate) {
+        return roomId + ApplicationConstants.COLON + checkInDate + ApplicationConstants.COLON + checkOutDate;
+    }
+
+    /**
+     * The function builds the Redis key of the bitmap holding the nights of a room for one year.
+     *
+     * @param roomId The identifier of the room.
+     * @param year   The calendar year of the bitmap.
+     * @return The Redis key, e.g. `room_nights:42:2026`.
+     */
+    public static String key(Long roomId, int year) {
+        return ApplicationConstants.ROOM_NIGHTS + roomId + ApplicationConstants.COLON + year;
+    }
+
+    private List<Segment> segments(Long roomId, long checkInDate, long checkOutDate) {
+        return segments(roomId, checkInDate, checkOutDate, zoneOf(roomId));
+    }
+
+    /**
+     * The time zone of the hotel of a room, in which its nights are counted; the server zone for a
+     * room that no longer exists.
+     */
+    private ZoneId zoneOf(Long roomId) {
+        return RateCalendar.zoneOf(entityCache.findRoom(roomId).map(Room::getHotel).orElse(null));
+    }
+
+    /**
+     * The function splits a stay into one bit range per calendar year it covers, the days being
+     * those of the given time zone. A stay that starts and ends on the same day is treated as one
+     * night.
+     */
+    static List<Segment> segments(Long roomId, long checkInDate, long checkOutDate, ZoneId zone) {
+        LocalDate from = toLocalDate(checkInDate, zone);
+        LocalDate end = toLocalDate(checkOutDate, zone);
+        if (!end.isAfter(from)) {
+            end = from.plusDays(1);
+        }
+        List<Segment> segments = new ArrayList<>(1);
+        while (from.isBefore(end)) {
+            LocalDate nextYear = LocalDate.of(from.getYear() + 1, 1, 1);
+            LocalDate to = end.isBefore(nextYear) ? end : nextYear;
+            int fromBit = from.getDayOfYear() - 1;
+            segments.add(new Segment(key(roomId, from.getYear()), from.getYear(), fromBit,
+                    fromBit + (int) (to.toEpochDay() - from.toEpochDay())));
+            from = to;
+        }
+        return segments;
+    }
+
+    /**
+     * The year bitmaps of the stay followed by the sorted set of holds.
+     */
+    private static List<String> holdKeys(List<Segment> segments) {
+        List<String> keys = new ArrayList<>(segments.size() + 1);
+        segments.forEach(segment -> keys.add(segment.key()));
+        keys.add(ApplicationConstants.ROOM_HOLDS);
+        return keys;
+    }
+
+    private Object[] holdArgs(Booking booking, List<Segment> segments) {
+        Object[] args = new Object[3 + 2 * segments.size()];
+        args[0] = String.valueOf(LOADED_BIT);
+        args[1] = holdMember(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+        args[2] = String.valueOf(System.currentTimeMillis() + holdTtl.toMillis());
+        for (int i = 0; i < segments.size(); i++) {
+            args[3 + 2 * i] = String.valueOf(segments.get(i).fromBit());
+            args[4 + 2 * i] = String.valueOf(segments.get(i).toBit());
+        }
+        return args;
+    }
+
+    private static Object[] holdMemberArgs(Booking booking, List<Segment> segments) {
+        return holdMemberArgs(holdMember(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate()), segments);
+    }
+
+    private static Object[] holdMemberArgs(String member, List<Segment> segments) {
+        Object[] args = new Object[1 + 2 * segments.size()];
+        args[0] = member;
+        for (int i = 0; i < segments.size(); i++) {
+            args[1 + 2 * i] = String.valueOf(segments.get(i).fromBit());
+            args[2 + 2 * i] = String.valueOf(segments.get(i).toBit());
+        }
+        return args;
+    }
+
+    private List<Long> probe(Segment segment) {
+        return redisTemplate.opsForValue().bitField(segment.key(), probeCommands(segment));
+    }
+
+    private static BitFieldSubCommands probeCommands(Segment segment) {
+        BitFieldSubCommands commands = BitFieldSubCommands.create()
+                .get(BitFieldType.unsigned(1)).valueAt(LOADED_BIT);
+        for (int offset = segment.fromBit(); offset < segment.toBit(); offset += MAX_FIELD_BITS) {
+            int bits = Math.min(MAX_FIELD_BITS, segment.toBit() - offset);
+            commands = commands.get(BitFieldType.unsigned(bits)).valueAt(offset);
+        }
+        return commands;
+    }
+
+    private static boolean isTaken(List<Long> values) {
+        // first value is the loaded flag, the rest are the nights of the stay
+        for (int i = 1; i < values.size(); i++) {
+            if (values.get(i) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Answers a stay in a year bitmap that is still not loaded, e.g. after the load gave up, from the
+     * bookings of the database. Holds are only taken in loaded years, so none is missed here.
+     */
+    private boolean isBookedInDatabase(Long roomId, long checkInDate, long checkOutDate) {
+        return !bookingRepo.findByRoomIdAndDateRange(roomId, checkInDate, checkOutDate).isEmpty();
+    }
+
+    private static String releasesKey(String key) {
+        return ApplicationConstants.ROOM_NIGHTS_RELEASES + key;
+    }
+
+    /**
+     * Loads the year bitmap of a room once however many requests miss it together. Within the node
+     * the first caller runs the load and the others wait for its outcome; across nodes an optional
+     * Redis lease lets one node query the database while the others wait for the loaded flag.
+     */
+    private void load(Long roomId, int year) {
+        String key = key(roomId, year);
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> inFlight = inFlightLoads.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            coalescedLoads.increment();
+            try {
+                inFlight.join();
+                return;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            if (!loadLeaseEnabled || acquireLoadLease(key) || !awaitLoadedElsewhere(key)) {
+                loadFromDatabase(roomId, year);
+            }
+            mine.complete(null);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, mine);
+        }
+    }
+
+    private boolean acquireLoadLease(String key) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(ApplicationConstants.ROOM_NIGHTS_LOAD_LEASE + key, "1", loadLeaseTtl));
+    }
+
+    /**
+     * Waits, at most for the lease time, until the node holding the load lease has set the loaded
+     * flag of the year.
+     *
+     * @return true if the year got loaded by the other node, false if the caller should load it.
+     */
+    private boolean awaitLoadedElsewhere(String key) {
+        leaseWaits.increment();
+        long deadline = System.nanoTime() + loadLeaseTtl.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().getBit(key, LOADED_BIT))) {
+                return true;
+            }
+            try {
+                Thread.sleep(LEASE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        log.warn("load lease of {} expired before the year was loaded, loading it here", key);
+        return false;
+    }
+
+    private void countProbe(List<Long> values) {
+        (values.get(0) == 0L ? probeMisses : probeHits).increment();
+    }
+
+    /**
+     * @return The number of probes answered by a year bitmap already loaded in Redis.
+     */
+    public long getProbeHits() {
+        return probeHits.sum();
+    }
+
+    /**
+     * @return The number of probes that found the year bitmap not loaded yet.
+     */
+    public long getProbeMisses() {
+        return probeMisses.sum();
+    }
+
+    /**
+     * @return The number of year bitmaps loaded from the database by this node since startup.
+     */
+    public long getDatabaseLoads() {
+        return databaseLoads.sum();
+    }
+
+    /**
+     * @return The number of loads saved because another request of this node was already loading
+     * the same year bitmap.
+     */
+    public long getCoalescedLoads() {
+        return coalescedLoads.sum();
+    }
+
+    /**
+     * @return The number of loads this node left to another node holding the load lease.
+     */
+    public long getLeaseWaits() {
+        return leaseWaits.sum();
+    }
+
+    /**
+     * Fills the year bitmap of a room from the bookings stored in the database and sets the loaded
+     * flag, in one script that only writes while the year is still not loaded and none of its nights
+     * was released since the snapshot was read; a stale snapshot is read again. Bits set concurrently
+     * by new bookings are preserved.
+     */
+    private void loadFromDatabase(Long roomId, int year) {
+        String key = key(roomId, year);
+        ZoneId zone = zoneOf(roomId);
+        long yearStart = LocalDate.of(year, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+        long yearEnd = LocalDate.of(year + 1, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+        for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+            databaseLoads.increment();
+            String releases = redisTemplate.opsForValue().get(releasesKey(key));
+            List<Booking> bookings = bookingRepo.findByRoomIdAndDateRange(roomId, yearStart, yearEnd);
+
+            List<Object> args = new ArrayList<>();
+            args.add(String.valueOf(LOADED_BIT));
+            args.add(releases == null ? "0" : releases);
+            for (Booking booking : bookings) {
+                for (Segment segment : segments(roomId, booking.getCheckInDate(), booking.getCheckOutDate(), zone)) {
+                    if (segment.year() == year) {
+                        args.add(String.valueOf(segment.fromBit()));
+                        args.add(String.valueOf(segment.toBit()));
+                    }
+                }
+            }
+            Long result = redisTemplate.execute(LOAD, List.of(key, releasesKey(key)), args.toArray());
+            if (result == null || result >= 0) {
+                log.debug("loaded {} bookings of room {} for {}", bookings.size(), roomId, year);
+                return;
+            }
+            log.debug("nights of {} were released while it was loaded, reading it again", key);
+        }
+        log.warn("{} not loaded, its nights kept being released while it was read", key);
+    }
+
+    private static BitFieldSubCommands fill(BitFieldSubCommands commands, Segment segment, boolean taken) {
+        for (int offset = segment.fromBit(); offset < segment.toBit(); offset += MAX_FIELD_BITS) {
+            int bits = Math.min(MAX_FIELD_BITS, segment.toBit() - offset);
+            commands = commands.set(BitFieldType.unsigned(bits)).valueAt(offset).to(taken ? (1L << bits) - 1 : 0L);
+        }
+        return commands;
+    }
+
+    private static LocalDate toLocalDate(long epochMillis, ZoneId zone) {
+        return Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+    }
+
+    /**
+     * Bit range `[fromBit, toBit)` of the bitmap `key` covering the nights of a stay within one year.
+     */
+    record Segment(String key, int year, int fromBit, int toBit) {
+    }
+}
@@ -1,18 +1,27 @@
 package com.hotel.booking.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.dtos.request.CreateRoomRate;
 import com.hotel.booking.dtos.request.RoomDTO;
+import com.hotel.booking.dtos.response.AvailableRoom;
+import com.hotel.booking.dtos.response.CursorPage;
+import com.hotel.booking.dtos.response.RoomView;
 import com.hotel.booking.entity.Hotel;
 import com.hotel.booking.entity.Room;
 import com.hotel.booking.exception.CustomException;
-import com.hotel.booking.repository.HotelRepo;
+import com.hotel.booking.repository.RoomRateRepo;
 import com.hotel.booking.repository.RoomRepo;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 @Service
@@ -24,21 +33,42 @@ public class RoomService {
     private RoomRepo roomRepo;
 
     @Autowired
-    private HotelRepo hotelRepo;
+    private RoomRateRepo roomRateRepo;
+
+    @Autowired
+    private RateCalendar rateCalendar;
+
+    @Autowired
+    private RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @Autowired
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Value("${room.search.max-limit:100}")
+    private int maxSearchLimit;
+
+    @Value("${room.search.max-refills:3}")
+    private int maxSearchRefills;
+
+    @Value("${pagination.max-size:100}")
+    private int maxPageSize;
 
     /**
      * The function creates a room associated with a specific hotel using the provided RoomDTO object.
      *
      * @param hotelId The `hotelId` parameter is the unique identifier of the hotel to which the room
-     *                belongs. It is used to retrieve the hotel entity from the database using the
-     *                `hotelRepo.findById(hotelId)` method.
+     *                belongs. It is used to retrieve the hotel entity through the local entity cache,
+     *                falling back to the database.
      * @param roomDTO The `roomDTO` parameter is an object of type `RoomDTO` which contains the details
      *                of the room that needs to be created. It likely includes information such as the room number, room
      *                type, price, and any other relevant details about the room.
      * @return The `createRoom` method returns a `Room` object.
      */
     public Room createRoom(long hotelId, RoomDTO roomDTO) {
-        Hotel hotel = hotelRepo.findById(hotelId)
+        Hotel hotel = entityCache.findHotel(hotelId)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND.value(), "Hotel not found with Id : " + hotelId));
         Room room = objectMapper.convertValue(roomDTO, Room.class);
         room.setHotel(hotel);
@@ -46,20 +76,116 @@ public class RoomService {
     }
 
     /**
-     * The function `getRooms` retrieves a page of Room entities from the database based on the specified
-     * page number and size.
+     * The function `getRooms` retrieves the next page of Room entities ordered by id, seeking past the
+     * cursor instead of using an offset and without counting the table.
+     *
+     * @param cursor The `cursor` parameter is the `nextCursor` of the previous page, null or blank for
+     *               the first page.
+     * @param size   The `size` parameter is the number of rooms per page, bounded by
+     *               `pagination.max-size`.
+     * @return A CursorPage of RoomView objects, each with the id and name of its hotel, with the cursor
+     * of the next page.
+     */
+    public CursorPage<RoomView> getRooms(String cursor, int size) {
+        int limit = CursorPage.limit(size, maxPageSize);
+        List<RoomView> rows = roomRepo.findViewsByIdGreaterThan(CursorPage.decode(cursor), Pageable.ofSize(limit + 1));
+        return CursorPage.of(rows, limit, RoomView::getId);
+    }
+
+    /**
+     * The function searches the rooms available for a date range in a hotel or a location with one
+     * set-based query and prices each of them for the whole stay from the rate calendar. The rooms
+     * are picked cheapest base price first, reading further pages of the query, at most
+     * `room.search.max-refills` of them, while rooms held on this node leave the page short, and only
+     * the picked rooms are then ordered by total price. A room whose nightly rates undercut its base
+     * price may therefore be missing from the page even though its stay is cheaper than some listed.
+     *
+     * @param hotelId      The `hotelId` parameter restricts the search to one hotel, optional when a
+     *                     location is given.
+     * @param location     The `location` parameter restricts the search to the hotels of a location,
+     *                     optional when a hotel is given.
+     * @param type         The `type` parameter restricts the search to one room type, may be null.
+     * @param occupancy    The `occupancy` parameter is the number of guests the room must hold.
+     * @param checkInDate  The `checkInDate` parameter is the check-in time in milliseconds since the epoch.
+     * @param checkOutDate The `checkOutDate` parameter is the check-out time in milliseconds since the epoch.
+     * @param limit        The `limit` parameter is the maximum number of rooms to return, capped by
+     *                     `room.search.max-limit`.
+     * @return The available rooms with the cheapest base price, with the total price of the stay and
+     * ordered by it.
+     */
+    public List<AvailableRoom> searchAvailableRooms(Long hotelId, String location, String type, int occupancy,
+                                                    long checkInDate, long checkOutDate, int limit) {
+        if (hotelId == null && (location == null || location.isBlank())) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Either hotel ID or location is required");
+        }
+        if (checkOutDate <= checkInDate) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Invalid check-in and check-out dates");
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxSearchLimit));
+        List<AvailableRoom> rooms = new ArrayList<>(pageSize);
+        // rooms dropped by the index leave the page short, so the next rows of the query fill it up
+        for (int page = 0; page <= maxSearchRefills && rooms.size() < pageSize; page++) {
+            List<AvailableRoom> rows = roomRepo.searchAvailableRooms(hotelId, location, type, occupancy, checkInDate, checkOutDate,
+                    PageRequest.of(page, pageSize));
+            for (AvailableRoom room : rows) {
+                if (rooms.size() < pageSize && isAvailableOnThisNode(room.getRoomId(), checkInDate, checkOutDate)) {
+                    rooms.add(room);
+                }
+            }
+            if (rows.size() < pageSize) {
+                break;
+            }
+        }
+        double[] totals;
+        try {
+            totals = rateCalendar.quoteAll(rooms.stream().map(AvailableRoom::getRoomId).toList(), checkInDate, checkOutDate);
+        } catch (IllegalArgumentException e) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        }
+        List<AvailableRoom> priced = new ArrayList<>(rooms.size());
+        for (int i = 0; i < totals.length; i++) {
+            // NaN when the room was deleted since the search query
+            if (!Double.isNaN(totals[i])) {
+                rooms.get(i).setTotalPrice(totals[i]);
+                priced.add(rooms.get(i));
+            }
+        }
+        priced.sort(Comparator.comparingDouble(AvailableRoom::getTotalPrice));
+        return priced;
+    }
+
+    /**
+     * Drops rooms reserved on this node but not yet persisted by the booking consumer, confirming the
+     * index with the bitmaps as the reservation may have been freed on another node since.
+     */
+    private boolean isAvailableOnThisNode(Long roomId, long checkInDate, long checkOutDate) {
+        return !roomAvailabilityIndex.isReady()
+                || !roomAvailabilityIndex.overlaps(roomId, checkInDate, checkOutDate)
+                || roomNightAvailabilityStore.isAvailable(roomId, checkInDate, checkOutDate);
+    }
+
+    /**
+     * The function sets the price of each night of a date range of a room, replacing the rates
+     * already set for those nights, and drops the rate calendar of the room on every node.
      *
-     * @param page The `page` parameter in the `getRooms` method represents the page number of results to
-     *             retrieve. It is used to specify which page of results to return when paginating through a
-     *             collection of data.
-     * @param size The `size` parameter in the `getRooms` method represents the number of items (rooms)
-     *             to be displayed on each page of the paginated results. It determines the size of the page when
-     *             fetching rooms from the database.
-     * @return The method is returning a Page of Room objects from the roomRepo repository, with the
-     * specified size for pagination.
+     * @param roomId   The `roomId` parameter is the unique identifier of the room.
+     * @param roomRate The `roomRate` parameter holds the first and last night of the range, in the
+     *                 time zone of the hotel, and the price of each night.
+     * @return A message with the number of nights priced.
      */
-    public Page<Room> getRooms(int page, int size) {
-        return roomRepo.findAll(Pageable.ofSize(size));
+    public String setRates(long roomId, CreateRoomRate roomRate) {
+        Room room = entityCache.findRoom(roomId)
+                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND.value(), "Room not found with ID: " + roomId));
+        if (roomRate.getTo().isBefore(roomRate.getFrom())) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Rate end date must not be before its start date");
+        }
+        LocalDate lastNight = rateCalendar.lastNight(room);
+        if (roomRate.getTo().isAfter(lastNight)) {
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Rates can only be set up to " + lastNight);
+        }
+        int nights = roomRateRepo.upsertRange(roomId, roomRate.getFrom(), roomRate.getTo(), roomRate.getPrice());
+        entityCache.invalidate(EntityCache.ROOMS, roomId);
+        return "Rates set for " + nights + " nights";
     }
 
 }
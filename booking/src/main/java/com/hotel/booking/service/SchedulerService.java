@@ -1,43 +1,131 @@
 package com.hotel.booking.service;
 
-import com.hotel.booking.constants.ApplicationConstants;
 import com.hotel.booking.entity.Booking;
 import com.hotel.booking.enums.BookingStatus;
 import com.hotel.booking.repository.BookingRepo;
+import com.hotel.booking.service.CheckoutDueQueue.DueCheckout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Date;
+import java.time.Duration;
 import java.util.List;
 
 @Service
+@Slf4j
 public class SchedulerService {
 
+    static final String CHECKOUT_JOB = "checkout-expiry";
+
+    static final String HOLD_JOB = "hold-expiry";
+
+    /**
+     * Duration of each scheduler run, tagged with the job.
+     */
+    static final String RUN_TIMER = "booking.scheduler.run";
+
+    /**
+     * Rows expired by the scheduler, tagged with the job.
+     */
+    static final String ROWS_COUNTER = "booking.scheduler.rows";
+
     @Autowired
     private BookingRepo bookingRepo;
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private RoomAvailabilityIndex roomAvailabilityIndex;
 
+    @Autowired
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
+
+    @Autowired
+    private CheckoutDueQueue checkoutDueQueue;
+
+    @Autowired
+    private UserBookingHistory userBookingHistory;
+
+    @Autowired
+    private LeaderElection leaderElection;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${booking.checkout.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${booking.checkout.max-chunks-per-tick:20}")
+    private int maxChunksPerTick;
+
+    @Value("${booking.checkout.leader-ttl:PT3M}")
+    private Duration leaderTtl;
+
+    @Value("${booking.hold.sweep-limit:500}")
+    private int holdSweepLimit;
 
     /**
-     * This Java function updates DB the status of expired check-out bookings to "VACANT" and deletes
-     * corresponding keys from a Redis cache.
+     * This Java function expires the bookings whose check-out has passed. Every node drops the ended
+     * stays from its local availability index, then the elected node reads the due check-outs from
+     * the head of the check-out queue in chunks of `booking.checkout.chunk-size`, sets them to
+     * "VACANT" with one update per chunk and frees their nights in a single Redis pipeline. At most
+     * `booking.checkout.max-chunks-per-tick` chunks are handled per run, the rest waits for the next.
      */
-    @Scheduled(fixedRateString ="${expire.room.checked.timeout}" )
+    @Scheduled(fixedDelayString = "${expire.room.checked.timeout}")
     public void updateCheckOutBooking() {
-        List<Booking> bookings = bookingRepo.findAllCheckOutExpire(new Date().getTime());
-        List<String> redisKeys = new ArrayList<>();
-        bookings.forEach(element -> {
-            element.setStatus(BookingStatus.VACANT);
-            redisKeys.add(ApplicationConstants.ROOM_AVAILABILITY + element.getRoom().getId());
-        });
-        bookingRepo.saveAll(bookings);
-        redisTemplate.delete(redisKeys);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long now = System.currentTimeMillis();
+        roomAvailabilityIndex.removeEndedBefore(now);
+        if (leaderElection.tryAcquire(CHECKOUT_JOB, leaderTtl)) {
+            meterRegistry.counter(ROWS_COUNTER, "job", CHECKOUT_JOB).increment(expireDueCheckouts(now));
+        }
+        sample.stop(meterRegistry.timer(RUN_TIMER, "job", CHECKOUT_JOB));
+    }
+
+    /**
+     * Expires the check-outs due at the given time, chunk by chunk.
+     *
+     * @return The number of bookings set to "VACANT".
+     */
+    private int expireDueCheckouts(long now) {
+        checkoutDueQueue.seedIfNeeded();
+        int total = 0;
+        for (int chunk = 0; chunk < maxChunksPerTick; chunk++) {
+            List<DueCheckout> due = checkoutDueQueue.due(now, chunkSize);
+            if (due.isEmpty()) {
+                break;
+            }
+            List<Long> bookingIds = due.stream().map(DueCheckout::bookingId).toList();
+            int expired = bookingRepo.markVacant(bookingIds);
+            roomNightAvailabilityStore.releaseAll(due.stream().map(DueCheckout::toBooking).toList());
+            userBookingHistory.updateStatus(bookingIds, BookingStatus.VACANT);
+            checkoutDueQueue.removeAll(due);
+            log.debug("expired {} of {} due check-outs", expired, due.size());
+            total += expired;
+            if (due.size() < chunkSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * This function frees the nights of the tentative holds that expired before their booking was
+     * persisted, e.g. because the consumer failed for good, and drops them from the local index.
+     * Releasing a hold is atomic, so it runs on every node.
+     */
+    @Scheduled(fixedDelayString = "${booking.hold.sweep-interval:30000}")
+    public void expireHolds() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Booking> released = roomNightAvailabilityStore.expireHolds(System.currentTimeMillis(), holdSweepLimit);
+        released.forEach(booking -> roomAvailabilityIndex.remove(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate()));
+        if (!released.isEmpty()) {
+            log.info("released {} expired room holds", released.size());
+        }
+        meterRegistry.counter(ROWS_COUNTER, "job", HOLD_JOB).increment(released.size());
+        sample.stop(meterRegistry.timer(RUN_TIMER, "job", HOLD_JOB));
     }
 
 }
@@ -0,0 +1,362 @@
+package com.hotel.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.dtos.projection.BookingOwner;
+import com.hotel.booking.dtos.response.BookingView;
+import com.hotel.booking.dtos.response.CursorPage;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.enums.BookingStatus;
+import com.hotel.booking.exception.CustomException;
+import com.hotel.booking.repository.BookingRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Read model of the bookings of each user, kept in Redis so that a user's history is served without
+ * touching the `booking` table. Every user has a sorted set `user_bookings:{userId}` whose members
+ * are `{checkInDate}:{bookingId}`, both zero padded, all with the same score, so the set is ordered
+ * by check-in then id and a page is one reverse lexicographic range read. The views themselves live
+ * in the hash `user_bookings:{userId}:views`, under the booking id, with their current status under
+ * `{bookingId}:s`.
+ * <p>
+ * Bookings are added by the booking consumer once persisted and their status is updated by the
+ * cancel and check-out paths. The history of a user is loaded from the database the first time it
+ * is read. Only the latest `booking.history.max-entries` bookings of a user are kept, older pages
+ * being read from the database, and the keys of a user expire `booking.history.ttl` after the last
+ * change, so the memory used follows the active users rather than every booking ever made.
+ */
+@Component
+@Slf4j
+public class UserBookingHistory {
+
+    private static final String STATUS_SUFFIX = ":s";
+
+    /**
+     * Reads a page of members below ARGV[1] together with the view and status of each of them.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PAGE = new DefaultRedisScript<>(
+            "local members = redis.call('zrevrangebylex', KEYS[1], ARGV[1], '-', 'LIMIT', 0, tonumber(ARGV[2])) " +
+                    "local rows = {} " +
+                    "for _, member in ipairs(members) do " +
+                    "local id = string.match(member, ':0*(%d+)$') " +
+                    "local values = redis.call('hmget', KEYS[2], id, id .. ARGV[3]) " +
+                    "rows[#rows + 1] = member " +
+                    "rows[#rows + 1] = values[1] or '' " +
+                    "rows[#rows + 1] = values[2] or '' " +
+                    "end " +
+                    "return rows",
+            List.class);
+
+    /**
+     * Drops the oldest members of KEYS[1] beyond the ARGV[1] latest, with their views and statuses
+     * in KEYS[2]. Returns the number of bookings dropped.
+     */
+    private static final RedisScript<Long> TRIM = new DefaultRedisScript<>(
+            "local extra = redis.call('zcard', KEYS[1]) - tonumber(ARGV[1]) " +
+                    "if extra <= 0 then return 0 end " +
+                    "local members = redis.call('zrange', KEYS[1], 0, extra - 1) " +
+                    "redis.call('zremrangebyrank', KEYS[1], 0, extra - 1) " +
+                    "for _, member in ipairs(members) do " +
+                    "local id = string.match(member, ':0*(%d+)$') " +
+                    "redis.call('hdel', KEYS[2], id, id .. ARGV[2]) " +
+                    "end " +
+                    "return extra",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private BookingRepo bookingRepo;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${booking.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${booking.history.seed-chunk-size:500}")
+    private int seedChunkSize;
+
+    @Value("${booking.history.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${booking.history.ttl:P30D}")
+    private Duration ttl;
+
+    /**
+     * The function tells whether user histories are served from the read model.
+     *
+     * @return true if the read model is maintained and read.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The function adds persisted bookings to the histories of their users, in one pipeline.
+     *
+     * @param bookings The bookings, each with its id, room and user set.
+     */
+    public void addAll(List<Booking> bookings) {
+        if (!enabled || bookings.isEmpty()) {
+            return;
+        }
+        List<BookingView> views = bookings.stream().map(this::toView).toList();
+        addViews(views);
+    }
+
+    /**
+     * The function sets the status of bookings in the histories, e.g. after a cancellation or a
+     * check-out. The users the bookings belong to are read with one query.
+     *
+     * @param bookingIds The identifiers of the bookings.
+     * @param status     The new status.
+     */
+    public void updateStatus(List<Long> bookingIds, BookingStatus status) {
+        if (!enabled || bookingIds.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Long>> bookingIdsByUser = bookingRepo.findOwnersByIdIn(bookingIds).stream()
+                .collect(Collectors.groupingBy(BookingOwner::getUserId, Collectors.mapping(BookingOwner::getId, Collectors.toList())));
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                bookingIdsByUser.forEach((userId, bookingIds) -> {
+                    String viewsKey = viewsKey(userId);
+                    bookingIds.forEach(id -> stringOperations.opsForHash().put(viewsKey, id + STATUS_SUFFIX, status.name()));
+                    stringOperations.expire(viewsKey, ttl);
+                });
+                return null;
+            }
+        });
+    }
+
+    /**
+     * The function reads a page of the history of a user, latest check-in first, with one script
+     * call.
+     *
+     * @param userId The identifier of the user.
+     * @param cursor The `nextCursor` of the previous page, null or blank for the first page.
+     * @param limit  The number of bookings per page.
+     * @return The page of bookings with the cursor of the next page.
+     */
+    @SuppressWarnings("unchecked")
+    public CursorPage<BookingView> page(long userId, String cursor, int limit) {
+        seedIfNeeded(userId);
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        String max = after == null ? "+" : "(" + after.member();
+        List<Object> rows = redisTemplate.execute(PAGE, List.of(ApplicationConstants.USER_BOOKINGS + userId, viewsKey(userId)),
+                max, String.valueOf(limit + 1), STATUS_SUFFIX);
+        if (rows == null) {
+            rows = List.of();
+        }
+        List<BookingView> items = new ArrayList<>();
+        int members = rows.size() / 3;
+        for (int i = 0; i < Math.min(members, limit); i++) {
+            BookingView view = parse((String) rows.get(3 * i + 1), (String) rows.get(3 * i + 2));
+            if (view != null) {
+                items.add(view);
+            }
+        }
+        // the cursor follows the members, so a page is never cut short by a missing view
+        if (members > limit) {
+            return new CursorPage<>(items, HistoryCursor.parse((String) rows.get(3 * (limit - 1))).encode());
+        }
+        if (!isCapped(userId)) {
+            return new CursorPage<>(items, null);
+        }
+        // the oldest bookings were trimmed from the set, the rest of the page is read from the database
+        HistoryCursor last = members > 0 ? HistoryCursor.parse((String) rows.get(3 * (members - 1)))
+                : Objects.requireNonNullElse(after, HistoryCursor.FIRST);
+        int missing = limit - members;
+        List<BookingView> older = bookingRepo.findUserViewsBefore(userId, last.checkInDate(), last.id(), Pageable.ofSize(missing + 1));
+        items.addAll(older.subList(0, Math.min(missing, older.size())));
+        if (older.size() <= missing) {
+            return new CursorPage<>(items, null);
+        }
+        HistoryCursor next = missing == 0 ? last : HistoryCursor.of(older.get(missing - 1));
+        return new CursorPage<>(items, next.encode());
+    }
+
+    private boolean isCapped(long userId) {
+        Long size = redisTemplate.opsForZSet().zCard(ApplicationConstants.USER_BOOKINGS + userId);
+        return size != null && size >= maxEntries;
+    }
+
+    /**
+     * Loads the latest bookings of a user from the database the first time the history is read, in
+     * keyset chunks ordered like the sorted set, up to the number of bookings kept.
+     */
+    private void seedIfNeeded(long userId) {
+        String marker = ApplicationConstants.USER_BOOKINGS_SEEDED + userId;
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(marker))) {
+            return;
+        }
+        HistoryCursor after = HistoryCursor.FIRST;
+        List<BookingView> chunk;
+        int seeded = 0;
+        do {
+            chunk = bookingRepo.findUserViewsBefore(userId, after.checkInDate(), after.id(), Pageable.ofSize(seedChunkSize));
+            addViews(chunk);
+            seeded += chunk.size();
+            if (!chunk.isEmpty()) {
+                after = HistoryCursor.of(chunk.get(chunk.size() - 1));
+            }
+        } while (chunk.size() == seedChunkSize && seeded < maxEntries);
+        // expires with the set at the latest, so an expired history is seeded again
+        redisTemplate.opsForValue().set(marker, "1", ttl);
+    }
+
+    private void addViews(List<BookingView> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+        List<String> payloads = views.stream().map(this::toJson).toList();
+        Set<Long> userIds = views.stream().map(BookingView::getUserId).collect(Collectors.toCollection(LinkedHashSet::new));
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                for (int i = 0; i < views.size(); i++) {
+                    BookingView view = views.get(i);
+                    String id = String.valueOf(view.getId());
+                    String viewsKey = viewsKey(view.getUserId());
+                    stringOperations.opsForZSet().add(ApplicationConstants.USER_BOOKINGS + view.getUserId(), HistoryCursor.of(view).member(), 0);
+                    stringOperations.opsForHash().put(viewsKey, id, payloads.get(i));
+                    // a status set by a cancellation or a check-out in the meantime is newer and kept
+                    stringOperations.opsForHash().putIfAbsent(viewsKey, id + STATUS_SUFFIX, view.getStatus().name());
+                }
+                for (Long userId : userIds) {
+                    List<String> keys = List.of(ApplicationConstants.USER_BOOKINGS + userId, viewsKey(userId));
+                    PipelinedScripts.eval(stringOperations, TRIM, keys, String.valueOf(maxEntries), STATUS_SUFFIX);
+                    keys.forEach(key -> stringOperations.expire(key, ttl));
+                }
+                return null;
+            }
+        });
+    }
+
+    private static String viewsKey(Long userId) {
+        return ApplicationConstants.USER_BOOKINGS + userId + ApplicationConstants.USER_BOOKINGS_VIEWS;
+    }
+
+    private BookingView toView(Booking booking) {
+        Long roomId = booking.getRoom().getId();
+        Long hotelId = entityCache.findRoom(roomId).map(room -> room.getHotel().getId()).orElse(null);
+        return new BookingView(booking.getId(), roomId, hotelId, booking.getUser().getId(), booking.getCheckInDate(),
+                booking.getCheckOutDate(), booking.getTotalPrice(), booking.getStatus());
+    }
+
+    private String toJson(BookingView view) {
+        try {
+            return objectMapper.writeValueAsString(view);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private BookingView parse(String json, String status) {
+        if (json.isEmpty()) {
+            return null;
+        }
+        try {
+            BookingView view = objectMapper.readValue(json, BookingView.class);
+            if (!status.isEmpty()) {
+                view.setStatus(BookingStatus.valueOf(status));
+            }
+            return view;
+        } catch (JsonProcessingException e) {
+            log.warn("skipping unreadable booking history entry {} : {}", json, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Position in a user's history, ordered by check-in then id, both descending. The same cursor is
+     * used when the history is read from the database.
+     *
+     * @param checkInDate The check-in time of the last booking returned.
+     * @param id          The id of the last booking returned.
+     */
+    public record HistoryCursor(long checkInDate, long id) {
+
+        /**
+         * Position before the latest booking of any user.
+         */
+        public static final HistoryCursor FIRST = new HistoryCursor(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        private static final Pattern MEMBER = Pattern.compile("\\d{19}:\\d{19}");
+
+        public static HistoryCursor of(BookingView view) {
+            return new HistoryCursor(view.getCheckInDate(), view.getId());
+        }
+
+        /**
+         * The sorted set member of the position, zero padded so that the lexicographic order is the
+         * numeric one.
+         */
+        public String member() {
+            return String.format("%019d:%019d", checkInDate, id);
+        }
+
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(member().getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor parse(String member) {
+            return new HistoryCursor(Long.parseLong(member.substring(0, 19)), Long.parseLong(member.substring(20)));
+        }
+
+        /**
+         * The function decodes a cursor returned with a previous page.
+         *
+         * @param cursor The cursor, null or blank for the first page.
+         * @return The position to read after, or null for the first page.
+         */
+        public static HistoryCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String member = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                if (MEMBER.matcher(member).matches()) {
+                    return parse(member);
+                }
+            } catch (IllegalArgumentException e) {
+                // reported below like a cursor of the wrong shape
+            }
+            throw new CustomException(HttpStatus.BAD_REQUEST.value(), "Invalid cursor : " + cursor);
+        }
+    }
+}
@@ -1,70 +1,321 @@
 package com.hotel.booking.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.config.BookingEventCodec;
+import com.hotel.booking.config.MessageProducer;
 import com.hotel.booking.entity.Booking;
+import com.hotel.booking.enums.BookingStatus;
 import com.hotel.booking.exception.CustomException;
 import com.hotel.booking.repository.BookingRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class kafkaListenerService {
 
+    /**
+     * Time to process one message, or one poll in batch mode, tagged with the mode.
+     */
+    static final String PROCESSING_TIMER = "booking.consumer.processing";
+
+    /**
+     * Consumed booking records by result: saved, redelivered after their booking was saved, failed
+     * for a retry, or forwarded to the poison topic.
+     */
+    static final String RECORD_COUNTER = "booking.consumer.records";
+
+    /**
+     * Redis steps following the commit of bookings that still failed after their retries, by step.
+     */
+    static final String FOLLOW_UP_FAILURE_COUNTER = "booking.consumer.follow-up.failures";
+
+    /**
+     * Booking records that exhausted their retries and reached the dead letter topic.
+     */
+    static final String DLT_COUNTER = "booking.consumer.dlt";
+
     @Autowired
-    private ObjectMapper objectMapper;
+    private BookingEventCodec bookingEventCodec;
 
     @Autowired
     private BookingRepo bookingRepo;
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @Autowired
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
+
+    @Autowired
+    private MessageProducer messageProducer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CheckoutDueQueue checkoutDueQueue;
+
+    @Autowired
+    private UserBookingHistory userBookingHistory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${booking.consumer.poison-topic}")
+    private String poisonTopic;
+
+    @Value("${booking.consumer.poison-send-timeout:PT10S}")
+    private Duration poisonSendTimeout;
+
+    @Value("${booking.consumer.follow-up.attempts:3}")
+    private int followUpAttempts;
+
+    @Value("${booking.consumer.follow-up.backoff:100ms}")
+    private Duration followUpBackoff;
 
     /**
-     * This Java function listens to a Kafka topic for booking messages, deserializes them into a
+     * This Java function listens to a Kafka topic for booking messages, decodes them into a
      * Booking object, and saves them to a repository with retry functionality.
      *
      * @param bookingMessage The `bookingMessage` parameter in the `bookingConsumer` method is the
-     *                       message received from the Kafka topic "booking-topic". This message is expected to be in a JSON
-     *                       format representing a booking, which is then deserialized into a `Booking` object using the
-     *                       `objectMapper.readValue` method.
+     *                       message received from the Kafka topic "booking-topic". This message is a booking event,
+     *                       binary or JSON, which is decoded into a `Booking` object by the `BookingEventCodec`.
+     *                       Only the save drives the retries; once the booking is committed a failure of
+     *                       the Redis steps makes the retry find the saved booking and apply them again.
      */
     @RetryableTopic
-    @KafkaListener(topics = "${booking.topic}")
-    public void bookingConsumer(String bookingMessage) {
+    @KafkaListener(topics = "#{${booking.consumer.batch.enabled:false} ? '${booking.consumer.poison-topic}' : '${booking.topic}'}")
+    public void bookingConsumer(byte[] bookingMessage) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            Booking booking = objectMapper.readValue(bookingMessage, Booking.class);
-            bookingRepo.save(booking);
+            Booking booking;
+            try {
+                booking = persist(bookingEventCodec.decode(bookingMessage));
+            } catch (Exception e) {
+                meterRegistry.counter(RECORD_COUNTER, "result", "failed").increment();
+                throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage());
+            }
+            if (booking != null) {
+                applyFollowUps(List.of(booking));
+            }
+        } finally {
+            sample.stop(meterRegistry.timer(PROCESSING_TIMER, "mode", "single"));
+        }
+    }
+
+    /**
+     * This function is the batch mode of the booking consumer, started when
+     * `booking.consumer.batch.enabled` is true. A whole poll is persisted in one transaction so that
+     * Hibernate can send the inserts as JDBC batches. When the batch fails, the records are saved one
+     * by one and only the ones that still fail are forwarded to the poison topic, which is consumed by
+     * `bookingConsumer` with its usual retry and dead letter handling. The Redis steps run once the
+     * bookings are committed; if they keep failing the poll is delivered again, its bookings are then
+     * found saved and only the Redis steps are repeated.
+     *
+     * @param bookingMessages The booking events of one poll of the booking topic.
+     */
+    @KafkaListener(id = "bookingBatchConsumer", topics = "${booking.topic}",
+            containerFactory = "batchKafkaListenerContainerFactory", autoStartup = "${booking.consumer.batch.enabled:false}")
+    public void bookingBatchConsumer(List<byte[]> bookingMessages) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Booking> bookings = new ArrayList<>(bookingMessages.size());
+        List<byte[]> parsedMessages = new ArrayList<>(bookingMessages.size());
+        for (byte[] bookingMessage : bookingMessages) {
+            try {
+                bookings.add(bookingEventCodec.decode(bookingMessage));
+                parsedMessages.add(bookingMessage);
+            } catch (IllegalArgumentException e) {
+                forwardToPoison(bookingMessage);
+            }
+        }
+        try {
+            // events seen before, e.g. sent twice by the outbox relay, are not saved again
+            List<Booking> saved = new ArrayList<>(skipSeen(bookings, parsedMessages));
+            try {
+                transactionTemplate.executeWithoutResult(status -> bookingRepo.saveAll(bookings));
+                meterRegistry.counter(RECORD_COUNTER, "result", "saved").increment(bookings.size());
+                saved.addAll(bookings);
+            } catch (Exception e) {
+                log.warn("batch of {} bookings failed, saving them one by one : {}", bookings.size(), e.getMessage());
+                // decode again, the entities of the failed batch may already carry generated ids
+                for (byte[] bookingMessage : parsedMessages) {
+                    Booking booking = saveOrForward(bookingMessage);
+                    if (booking != null) {
+                        saved.add(booking);
+                    }
+                }
+            }
+            applyFollowUps(saved);
+        } finally {
+            sample.stop(meterRegistry.timer(PROCESSING_TIMER, "mode", "batch"));
+        }
+    }
+
+    /**
+     * Takes the bookings of events already persisted out of the poll, together with their messages.
+     *
+     * @return The saved bookings of those events that are still active, whose Redis steps are applied
+     * again in case they failed the first time.
+     */
+    private List<Booking> skipSeen(List<Booking> bookings, List<byte[]> messages) {
+        Set<UUID> eventIds = bookings.stream().map(Booking::getEventId).filter(Objects::nonNull).collect(Collectors.toSet());
+        List<Booking> seen = eventIds.isEmpty() ? List.of() : bookingRepo.findAllByEventIdIn(eventIds);
+        if (seen.isEmpty()) {
+            return List.of();
+        }
+        Set<UUID> seenIds = seen.stream().map(Booking::getEventId).collect(Collectors.toSet());
+        for (int i = bookings.size() - 1; i >= 0; i--) {
+            if (seenIds.contains(bookings.get(i).getEventId())) {
+                bookings.remove(i);
+                messages.remove(i);
+                meterRegistry.counter(RECORD_COUNTER, "result", "redelivered").increment();
+            }
+        }
+        return seen.stream().filter(booking -> booking.getStatus() == BookingStatus.BOOKED).toList();
+    }
+
+    private Booking saveOrForward(byte[] bookingMessage) {
+        try {
+            return persist(bookingEventCodec.decode(bookingMessage));
         } catch (Exception e) {
-            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage());
+            forwardToPoison(bookingMessage);
+            return null;
+        }
+    }
+
+    /**
+     * Forwards a record to the poison topic and waits for the broker, as the poll is committed once
+     * the listener returns and an unacknowledged forward would lose the booking.
+     *
+     * @throws CustomException If the broker did not acknowledge the record in time, so that the whole
+     *                         poll is delivered again.
+     */
+    private void forwardToPoison(byte[] bookingMessage) {
+        try {
+            messageProducer.send(poisonTopic, null, bookingMessage).get(poisonSendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Could not forward a booking record to the poison topic : " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Interrupted while forwarding a booking record to the poison topic");
+        }
+        meterRegistry.counter(RECORD_COUNTER, "result", "forwarded").increment();
+    }
+
+    /**
+     * Saves the booking of an event. An event delivered again after its booking was committed, e.g.
+     * because the Redis steps failed, violates the unique event id or the no-overlap constraint; the
+     * booking saved the first time is then looked up instead of failing the event.
+     *
+     * @return The booking whose Redis steps are to be applied, or null if the booking was saved before
+     * and is no longer active, e.g. cancelled since.
+     */
+    private Booking persist(Booking booking) {
+        try {
+            bookingRepo.save(booking);
+            meterRegistry.counter(RECORD_COUNTER, "result", "saved").increment();
+            return booking;
+        } catch (DataIntegrityViolationException e) {
+            Booking persisted = findPersisted(booking).orElseThrow(() -> e);
+            meterRegistry.counter(RECORD_COUNTER, "result", "redelivered").increment();
+            return persisted.getStatus() == BookingStatus.BOOKED ? persisted : null;
         }
     }
 
+    private Optional<Booking> findPersisted(Booking booking) {
+        return booking.getEventId() == null ? Optional.empty() : bookingRepo.findByEventId(booking.getEventId());
+    }
+
     /**
-     * The `dltHandler` function logs an error message with the provided booking message.
+     * Applies the Redis steps following the commit of bookings: confirming their holds, queueing their
+     * check-outs and adding them to the user histories. Every step is idempotent and retried on its
+     * own, so repeating them for a booking that was already handled changes nothing.
      *
-     * @param bookingMessage The `bookingMessage` parameter in the `dltHandler` method is a string that
-     *                       contains information related to a booking error.
+     * @throws CustomException If a step still fails after `booking.consumer.follow-up.attempts`
+     *                         attempts, so that the event is delivered again.
+     */
+    private void applyFollowUps(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        followUp("confirm", () -> roomNightAvailabilityStore.confirmAll(bookings));
+        followUp("checkout-queue", () -> checkoutDueQueue.addAll(bookings));
+        followUp("history", () -> userBookingHistory.addAll(bookings));
+    }
+
+    private void followUp(String step, Runnable action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                action.run();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= followUpAttempts) {
+                    meterRegistry.counter(FOLLOW_UP_FAILURE_COUNTER, "step", step).increment();
+                    throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                            "Redis step " + step + " failed after " + attempt + " attempts : " + e.getMessage());
+                }
+                log.warn("redis step {} failed on attempt {}, retrying : {}", step, attempt, e.getMessage());
+                try {
+                    Thread.sleep(followUpBackoff.toMillis() * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Interrupted while retrying redis step " + step);
+                }
+            }
+        }
+    }
+
+    /**
+     * The `dltHandler` function logs an error message with the provided booking message. The hold of
+     * the booking is dropped unless the booking was saved after all, in which case only its Redis steps
+     * had failed and they are tried once more.
+     *
+     * @param bookingMessage The `bookingMessage` parameter in the `dltHandler` method is the booking
+     *                       event that could not be persisted.
      */
     @DltHandler
-    public void dltHandler(String bookingMessage) {
+    public void dltHandler(byte[] bookingMessage) {
+        meterRegistry.counter(DLT_COUNTER).increment();
+        Booking booking;
         try {
-            // removing error key from redis as room is still available
-            Booking booking = objectMapper.readValue(bookingMessage, Booking.class);
-            String redisKeys = ApplicationConstants.ROOM_AVAILABILITY + booking.getRoom().getId();
-            redisTemplate.delete(redisKeys);
-        } catch (JsonProcessingException e) {
+            booking = bookingEventCodec.decode(bookingMessage);
+        } catch (IllegalArgumentException e) {
             throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR.value(),e.getMessage());
         }
-        log.info("error with this message : {}", bookingMessage);
+        Optional<Booking> persisted = findPersisted(booking);
+        if (persisted.isPresent()) {
+            log.error("booking {} was saved but its redis steps kept failing, applying them again", persisted.get().getId());
+            if (persisted.get().getStatus() == BookingStatus.BOOKED) {
+                applyFollowUps(List.of(persisted.get()));
+            }
+            return;
+        }
+        // dropping the hold of the failed booking as room is still available
+        roomNightAvailabilityStore.releaseHold(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+        roomAvailabilityIndex.remove(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+        log.info("error with this message : {}", booking);
     }
 
 }
@@ -0,0 +1,42 @@
+-- Runs after Hibernate updated the tables (spring.jpa.defer-datasource-initialization) and on every
+-- start, so each statement is idempotent. Statements are separated by @@ as the DO blocks contain ;
+
+-- btree_gist lets the plain room_id column take part in a GiST index next to the stay range
+CREATE EXTENSION IF NOT EXISTS btree_gist@@
+
+-- no two active bookings of a room may share a moment of their stay; the constraint is backed by a
+-- GiST index on (room_id, stay range) over the BOOKED rows only, which also serves the overlap
+-- lookups of BookingRepo.findByRoomIdAndDateRange. Stays are half-open, [check-in, check-out), like
+-- Booking.overlaps and the night bitmaps, so a stay may start at the check-out of the previous one;
+-- a constraint created with the former inclusive bounds is replaced.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'booking_room_stay_no_overlap'
+               AND pg_get_constraintdef(oid) LIKE '%''[]''%') THEN
+        ALTER TABLE booking DROP CONSTRAINT booking_room_stay_no_overlap;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'booking_room_stay_no_overlap') THEN
+        ALTER TABLE booking ADD CONSTRAINT booking_room_stay_no_overlap
+            EXCLUDE USING gist (room_id WITH =, int8range(check_in_date, check_out_date, '[)') WITH &&)
+            WHERE (status = 'BOOKED');
+    END IF;
+EXCEPTION
+    WHEN exclusion_violation OR data_exception THEN
+        RAISE WARNING 'booking_room_stay_no_overlap not created, existing active bookings overlap or have invalid stays: %', SQLERRM;
+END
+$$@@
+
+-- active stays of a room ordered by check-out, for the JPQL overlap checks such as the room search;
+-- expired and cancelled rows, i.e. almost all of the history, are left out of the index
+CREATE INDEX IF NOT EXISTS booking_active_room_check_out_idx
+    ON booking (room_id, check_out_date, check_in_date) WHERE status = 'BOOKED'@@
+
+-- outbox payloads are encoded booking events; schemas created before that held them as text
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'outbox_event' AND column_name = 'payload' AND data_type = 'text') THEN
+        ALTER TABLE outbox_event ALTER COLUMN payload TYPE bytea USING convert_to(payload, 'UTF8');
+    END IF;
+END
+$$@@
@@ -0,0 +1,76 @@
+package com.hotel.booking.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    public void testTryAcquire_RejectsAboveLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, THRESHOLD, 0.5);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+        assertEquals(2, limit.getAccepted());
+        assertEquals(1, limit.getRejected());
+
+        limit.release(FAST, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void testRelease_GrowsUsedLimitAdditively() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 5, THRESHOLD, 0.5);
+        limit.tryAcquire();
+        limit.tryAcquire();
+
+        limit.release(FAST, false);
+        assertEquals(5, limit.getLimit());
+        // one request in flight out of five is too little use to grow, the maximum caps it anyway
+        limit.release(FAST, false);
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    public void testRelease_ShrinksOnSlowOrFailedRequestsDownToMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100, THRESHOLD, 0.5);
+
+        limit.tryAcquire();
+        limit.release(THRESHOLD + 1, false, 0);
+        assertEquals(10, limit.getLimit());
+        limit.tryAcquire();
+        limit.release(FAST, true, THRESHOLD);
+        assertEquals(5, limit.getLimit());
+        limit.tryAcquire();
+        limit.release(FAST, true, 2 * THRESHOLD);
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testRelease_ShrinksOncePerWindow() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100, THRESHOLD, 0.5);
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+        }
+
+        // requests caught in the same slowdown complete together
+        for (int i = 0; i < 4; i++) {
+            limit.release(THRESHOLD + 1, false, i);
+        }
+        assertEquals(10, limit.getLimit());
+        limit.release(THRESHOLD + 1, false, THRESHOLD);
+        assertEquals(5, limit.getLimit());
+    }
+}
@@ -0,0 +1,131 @@
+package com.hotel.booking.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.User;
+import com.hotel.booking.enums.BookingStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookingEventCodecTest {
+
+    private static final UUID EVENT_ID = UUID.fromString("5b3f8c9e-2d41-4a7e-9f0c-6e1d2a3b4c5d");
+
+    private final BinaryBookingEventCodec binary = new BinaryBookingEventCodec();
+
+    @Test
+    public void testBinaryRoundTrip() {
+        Booking booking = booking(5L, BookingStatus.BOOKED);
+
+        byte[] payload = binary.encode(booking);
+        Booking decoded = binary.decode(payload);
+
+        assertEquals(BinaryBookingEventCodec.SIZE, payload.length);
+        assertEquals(BinaryBookingEventCodec.VERSION, payload[0]);
+        assertEquals(5L, decoded.getId());
+        assertEquals(7L, decoded.getRoom().getId());
+        assertEquals(11L, decoded.getUser().getId());
+        assertEquals(1_780_000_000_000L, decoded.getCheckInDate());
+        assertEquals(1_780_259_200_000L, decoded.getCheckOutDate());
+        assertEquals(361.5, decoded.getTotalPrice());
+        assertEquals(BookingStatus.BOOKED, decoded.getStatus());
+        assertEquals(EVENT_ID, decoded.getEventId());
+    }
+
+    @Test
+    public void testBinaryPayload_LessThanHalfOfJson() {
+        Booking booking = booking(5L, BookingStatus.BOOKED);
+        JsonBookingEventCodec json = new JsonBookingEventCodec(new ObjectMapper());
+
+        byte[] jsonPayload = json.encode(booking);
+        byte[] binaryPayload = binary.encode(booking);
+
+        assertEquals(67, binaryPayload.length);
+        assertTrue(jsonPayload.length > 2 * binaryPayload.length, "json event of " + jsonPayload.length + " bytes");
+    }
+
+    @Test
+    public void testBinaryRoundTrip_WithoutIdAndStatus() {
+        Booking booking = booking(null, null);
+        booking.setEventId(null);
+        Booking decoded = binary.decode(binary.encode(booking));
+
+        assertNull(decoded.getId());
+        assertNull(decoded.getStatus());
+        assertNull(decoded.getEventId());
+        assertEquals(7L, decoded.getRoom().getId());
+    }
+
+    @Test
+    public void testBinaryDecode_ReadsVersion1WithoutEventId() {
+        byte[] payload = Arrays.copyOf(binary.encode(booking(5L, BookingStatus.BOOKED)), BinaryBookingEventCodec.SIZE - 2 * Long.BYTES);
+        payload[0] = BinaryBookingEventCodec.VERSION_1;
+        payload[1] = 1;
+
+        Booking decoded = binary.decode(payload);
+
+        assertEquals(5L, decoded.getId());
+        assertEquals(BookingStatus.BOOKED, decoded.getStatus());
+        assertNull(decoded.getEventId());
+    }
+
+    @Test
+    public void testBinaryDecode_RejectsUnknownVersionAndTruncatedPayload() {
+        byte[] payload = binary.encode(booking(5L, BookingStatus.BOOKED));
+        byte[] future = payload.clone();
+        future[0] = 3;
+
+        assertThrows(IllegalArgumentException.class, () -> binary.decode(future));
+        assertThrows(IllegalArgumentException.class, () -> binary.decode(Arrays.copyOf(payload, 20)));
+        assertThrows(IllegalArgumentException.class, () -> binary.decode(new byte[0]));
+    }
+
+    @Test
+    public void testBookingEvents_EncodesInConfiguredFormatAndDecodesBoth() {
+        BookingEvents bookingEvents = new BookingEvents();
+        ReflectionTestUtils.setField(bookingEvents, "objectMapper",
+                new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        Booking booking = booking(5L, BookingStatus.BOOKED);
+
+        ReflectionTestUtils.setField(bookingEvents, "format", "json");
+        byte[] json = bookingEvents.encode(booking);
+        ReflectionTestUtils.setField(bookingEvents, "format", "binary");
+        byte[] encoded = bookingEvents.encode(booking);
+
+        assertEquals('{', json[0]);
+        assertEquals(BinaryBookingEventCodec.SIZE, encoded.length);
+        assertEquals(7L, bookingEvents.decode(json).getRoom().getId());
+        assertEquals(EVENT_ID, bookingEvents.decode(json).getEventId());
+        assertEquals(7L, bookingEvents.decode(encoded).getRoom().getId());
+        assertThrows(IllegalArgumentException.class,
+                () -> bookingEvents.decode("{not json".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Booking booking(Long id, BookingStatus status) {
+        Room room = new Room();
+        room.setId(7L);
+        User user = new User();
+        user.setId(11L);
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setRoom(room);
+        booking.setUser(user);
+        booking.setCheckInDate(1_780_000_000_000L);
+        booking.setCheckOutDate(1_780_259_200_000L);
+        booking.setTotalPrice(361.5);
+        booking.setStatus(status);
+        booking.setEventId(EVENT_ID);
+        return booking;
+    }
+}
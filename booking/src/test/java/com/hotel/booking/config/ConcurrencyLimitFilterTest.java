@@ -0,0 +1,63 @@
+package com.hotel.booking.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "initialLimit", 1);
+        ReflectionTestUtils.setField(filter, "minLimit", 1);
+        ReflectionTestUtils.setField(filter, "maxLimit", 10);
+        ReflectionTestUtils.setField(filter, "latencyThreshold", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(filter, "batchLatencyThreshold", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(filter, "backoffRatio", 0.9);
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 2);
+        filter.init();
+    }
+
+    @Test
+    public void testGroupOf() {
+        assertEquals(ConcurrencyLimitFilter.BOOKINGS_GROUP, ConcurrencyLimitFilter.groupOf(new MockHttpServletRequest("POST", "/bookings")));
+        assertEquals(ConcurrencyLimitFilter.BOOKINGS_BATCH_GROUP, ConcurrencyLimitFilter.groupOf(new MockHttpServletRequest("POST", "/bookings/batch")));
+        assertEquals(ConcurrencyLimitFilter.BOOKINGS_GROUP, ConcurrencyLimitFilter.groupOf(new MockHttpServletRequest("DELETE", "/bookings/7")));
+        assertNull(ConcurrencyLimitFilter.groupOf(new MockHttpServletRequest("GET", "/bookings")));
+        assertNull(ConcurrencyLimitFilter.groupOf(new MockHttpServletRequest("POST", "/bookings/user/1/filter")));
+    }
+
+    @Test
+    public void testDoFilter_ShedsBookingsAboveLimitButNotReads() throws Exception {
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        // the first booking is still in progress while the next requests arrive
+        FilterChain slowBooking = (request, response) -> {
+            filter.doFilter(new MockHttpServletRequest("POST", "/bookings"), shed, new MockFilterChain());
+            filter.doFilter(new MockHttpServletRequest("GET", "/bookings"), read, new MockFilterChain());
+        };
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/bookings"), new MockHttpServletResponse(), slowBooking);
+
+        assertEquals(503, shed.getStatus());
+        assertEquals("2", shed.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(200, read.getStatus());
+        AdaptiveConcurrencyLimit limit = filter.getLimits().get(ConcurrencyLimitFilter.BOOKINGS_GROUP);
+        assertEquals(1, limit.getAccepted());
+        assertEquals(1, limit.getRejected());
+        assertEquals(0, limit.getInFlight());
+    }
+}
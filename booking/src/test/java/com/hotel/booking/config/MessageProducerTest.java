@@ -0,0 +1,94 @@
+package com.hotel.booking.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageProducerTest {
+
+    private static final byte[] MESSAGE = {1, 2, 3};
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @InjectMocks
+    private MessageProducer messageProducer;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(messageProducer, "callbackExecutor", (Executor) Runnable::run);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSendMessage() {
+        when(kafkaTemplate.send("topic", "1", MESSAGE))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        messageProducer.sendMessage("topic", "1", MESSAGE, failure::set);
+
+        assertEquals(1, messageProducer.getSentCount());
+        assertEquals(0, messageProducer.getFailedCount());
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testSendMessage_Failure() {
+        RuntimeException cause = new RuntimeException("broker down");
+        when(kafkaTemplate.send("topic", "1", MESSAGE)).thenReturn(CompletableFuture.failedFuture(cause));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        messageProducer.sendMessage("topic", "1", MESSAGE, failure::set);
+
+        assertEquals(0, messageProducer.getSentCount());
+        assertEquals(1, messageProducer.getFailedCount());
+        assertEquals(cause, failure.get());
+    }
+
+    @Test
+    public void testSendMessage_FailureCallbackLeavesCompletingThread() {
+        CompletableFuture<SendResult<String, byte[]>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send("topic", "1", MESSAGE)).thenReturn(pending);
+        List<Runnable> queued = new ArrayList<>();
+        ReflectionTestUtils.setField(messageProducer, "callbackExecutor", (Executor) queued::add);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        messageProducer.sendMessage("topic", "1", MESSAGE, failure::set);
+        pending.completeExceptionally(new RuntimeException("broker down"));
+
+        assertNull(failure.get());
+        queued.forEach(Runnable::run);
+        assertEquals("broker down", failure.get().getMessage());
+    }
+
+    @Test
+    public void testSend_CompletesWithBrokerOutcome() {
+        RuntimeException cause = new RuntimeException("broker down");
+        when(kafkaTemplate.send("topic", "1", MESSAGE)).thenReturn(CompletableFuture.failedFuture(cause));
+
+        CompletableFuture<SendResult<String, byte[]>> result = messageProducer.send("topic", "1", MESSAGE);
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(1, messageProducer.getFailedCount());
+    }
+}
@@ -0,0 +1,144 @@
+package com.hotel.booking.config;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource firstReplica;
+
+    @Mock
+    private DataSource secondReplica;
+
+    private final ReplicaRoutingDataSource.ReadReplicaInterceptor interceptor = new ReplicaRoutingDataSource.ReadReplicaInterceptor();
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    public void testGetConnection_PrimaryForUnmarkedMethods() throws Throwable {
+        ReplicaRoutingDataSource dataSource = routing(0, firstReplica);
+        Connection connection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(connection);
+
+        assertSame(connection, call(dataSource, "listing"));
+        assertSame(connection, dataSource.getConnection());
+        verify(firstReplica, never()).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_ReplicasInTurnOutsideOfTransactions() throws Throwable {
+        ReplicaRoutingDataSource dataSource = routing(0, firstReplica, secondReplica);
+        Connection first = mock(Connection.class);
+        Connection second = mock(Connection.class);
+        when(firstReplica.getConnection()).thenReturn(first);
+        when(secondReplica.getConnection()).thenReturn(second);
+
+        assertSame(first, call(dataSource, "replicaListing"));
+        assertSame(second, call(dataSource, "replicaListing"));
+        assertEquals(2, dataSource.getReplicaConnections());
+    }
+
+    @Test
+    public void testGetConnection_ReplicaInReadOnlyAndPrimaryInWritingTransactions() throws Throwable {
+        ReplicaRoutingDataSource dataSource = routing(0, firstReplica);
+        Connection replicaConnection = mock(Connection.class);
+        Connection primaryConnection = mock(Connection.class);
+        when(firstReplica.getConnection()).thenReturn(replicaConnection);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaConnection, call(dataSource, "replicaListing"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertSame(primaryConnection, call(dataSource, "replicaListing"));
+    }
+
+    @Test
+    public void testGetConnection_FallsBackToPrimaryUntilReplicaIsHealthyAgain() throws Throwable {
+        ReplicaRoutingDataSource dataSource = routing(0, firstReplica);
+        Connection primaryConnection = mock(Connection.class);
+        Connection replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenThrow(new SQLException("connection refused"))
+                .thenReturn(replicaConnection);
+        when(replicaConnection.isValid(1)).thenReturn(true);
+
+        assertSame(primaryConnection, call(dataSource, "replicaListing"));
+        assertSame(primaryConnection, call(dataSource, "replicaListing"));
+        assertEquals(0, dataSource.getHealthyReplicas());
+        assertEquals(2, dataSource.getPrimaryFallbacks());
+
+        dataSource.checkReplicas();
+        assertEquals(1, dataSource.getHealthyReplicas());
+        assertSame(replicaConnection, call(dataSource, "replicaListing"));
+    }
+
+    @Test
+    public void testCheckReplicas_MarksLaggingReplicaDown() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(1000, firstReplica);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet lag = mock(ResultSet.class);
+        when(firstReplica.getConnection()).thenReturn(connection);
+        when(connection.isValid(1)).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReplicaRoutingDataSource.LAG_QUERY)).thenReturn(lag);
+        when(lag.next()).thenReturn(true);
+        when(lag.getLong(1)).thenReturn(5000L);
+
+        dataSource.checkReplicas();
+
+        assertEquals(0, dataSource.getHealthyReplicas());
+        verify(connection).close();
+    }
+
+    private ReplicaRoutingDataSource routing(long maxLagMillis, DataSource... replicas) {
+        return new ReplicaRoutingDataSource(primary, List.of(replicas), maxLagMillis, 1);
+    }
+
+    /**
+     * Takes a connection from within a call of the given `Repository` method, the way the advice of
+     * the repository proxies runs it.
+     */
+    private Connection call(ReplicaRoutingDataSource dataSource, String method) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(Repository.class.getMethod(method));
+        when(invocation.proceed()).thenAnswer(i -> dataSource.getConnection());
+        return (Connection) interceptor.invoke(invocation);
+    }
+
+    interface Repository {
+
+        List<Object> listing();
+
+        @ReadReplica
+        List<Object> replicaListing();
+    }
+}
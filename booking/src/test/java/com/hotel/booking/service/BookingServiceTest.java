@@ -1,36 +1,53 @@
 package com.hotel.booking.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.config.BookingEventCodec;
 import com.hotel.booking.config.MessageProducer;
+import com.hotel.booking.dtos.request.BookingFilter;
 import com.hotel.booking.dtos.request.CreateBooking;
+import com.hotel.booking.dtos.response.BookingBatchResult;
+import com.hotel.booking.dtos.response.BookingView;
+import com.hotel.booking.dtos.response.CursorPage;
 import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.OutboxEvent;
 import com.hotel.booking.entity.Hotel;
 import com.hotel.booking.entity.Room;
 import com.hotel.booking.entity.User;
 import com.hotel.booking.enums.BookingStatus;
+import com.hotel.booking.exception.CustomException;
 import com.hotel.booking.repository.BookingRepo;
+import com.hotel.booking.repository.OutboxRepo;
 import com.hotel.booking.repository.RoomRepo;
 import com.hotel.booking.repository.UserRepo;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,9 +67,36 @@ public class BookingServiceTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private BookingEventCodec mockBookingEventCodec;
+
     @Mock
     private HashOperations hashOperations;
 
+    @Mock
+    private RoomAvailabilityIndex mockRoomAvailabilityIndex;
+
+    @Mock
+    private RoomNightAvailabilityStore mockRoomNightAvailabilityStore;
+
+    @Mock
+    private EntityCache mockEntityCache;
+
+    @Mock
+    private CheckoutDueQueue mockCheckoutDueQueue;
+
+    @Mock
+    private OutboxRepo mockOutboxRepo;
+
+    @Mock
+    private RateCalendar mockRateCalendar;
+
+    @Mock
+    private UserBookingHistory mockUserBookingHistory;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private BookingService bookingServiceUnderTest;
 
@@ -85,7 +129,7 @@ public class BookingServiceTest {
         user2.setPassword("password");
         user2.setFirstName("firstName");
         final Optional<User> user1 = Optional.of(user2);
-        when(mockUserRepo.findById(any())).thenReturn(user1);
+        when(mockEntityCache.findUser(any())).thenReturn(user1);
 
         final Room room2 = new Room();
         room2.setId(0L);
@@ -95,45 +139,221 @@ public class BookingServiceTest {
         room2.setHotel(hotel);
         room2.setPricePerNight(0.0);
         final Optional<Room> room1 = Optional.of(room2);
-        when(mockRoomRepo.findById(1L)).thenReturn(room1);
-        when(mockRedisTemplate.opsForHash()).thenReturn(hashOperations);
-
-        when(mockBookingRepo.findByRoomIdAndDateRange(any(), anyLong(), anyLong())).thenReturn(Collections.emptyList());
+        when(mockEntityCache.findRoom(1L)).thenReturn(room1);
+        when(mockRoomNightAvailabilityStore.isAvailable(1L, checkinTime, checkOutTime)).thenReturn(true);
         when(objectMapper.convertValue(createBooking, Booking.class)).thenReturn(expectedResult);
+        when(mockRoomNightAvailabilityStore.hold(expectedResult)).thenReturn(true);
 
         final Booking result = bookingServiceUnderTest.bookHotel(createBooking);
         assertEquals(expectedResult, result);
+        assertNotNull(result.getEventId());
+        verify(mockRoomNightAvailabilityStore).hold(expectedResult);
+        verify(mockMessageProducer).sendMessage(any(), eq("0"), any(), any());
+        assertEquals(1, meterRegistry.counter(BookingService.REQUEST_COUNTER, "outcome", "created", "stage", "publish").count());
+        assertEquals(1, meterRegistry.timer(BookingService.STAGE_TIMER, "stage", "availability").count());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testBookHotel_OutboxMode() throws Exception {
+        ReflectionTestUtils.setField(bookingServiceUnderTest, "outboxEnabled", true);
+        final CreateBooking createBooking = new CreateBooking();
+        createBooking.setRoomId(1L);
+        createBooking.setUserId(0L);
+        createBooking.setCheckInDate(checkinTime);
+        createBooking.setCheckOutDate(checkOutTime);
+        createBooking.setTotalPrice(0.0);
+        final Room room = new Room();
+        room.setId(1L);
+        room.setPricePerNight(0.0);
+        final Booking booking = new Booking();
+        when(mockEntityCache.findUser(0L)).thenReturn(Optional.of(new User()));
+        when(mockEntityCache.findRoom(1L)).thenReturn(Optional.of(room));
+        when(mockRoomNightAvailabilityStore.isAvailable(1L, checkinTime, checkOutTime)).thenReturn(true);
+        when(objectMapper.convertValue(createBooking, Booking.class)).thenReturn(booking);
+        when(mockRoomNightAvailabilityStore.hold(booking)).thenReturn(true);
+        when(mockBookingEventCodec.encode(booking)).thenReturn(new byte[]{1, 0});
+
+        bookingServiceUnderTest.bookHotel(createBooking);
+        final ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass((Class) List.class);
+        verify(mockOutboxRepo).saveAll(events.capture());
+        assertEquals(1, events.getValue().size());
+        assertEquals("1", events.getValue().get(0).getMessageKey());
+        assertArrayEquals(new byte[]{1, 0}, events.getValue().get(0).getPayload());
+        verifyNoInteractions(mockMessageProducer);
+    }
+
+    @Test
+    public void testBookHotel_HoldTakenConcurrently() {
+        final CreateBooking createBooking = new CreateBooking();
+        createBooking.setRoomId(1L);
+        createBooking.setUserId(0L);
+        createBooking.setCheckInDate(checkinTime);
+        createBooking.setCheckOutDate(checkOutTime);
+        createBooking.setTotalPrice(0.0);
+        final Room room = new Room();
+        room.setId(1L);
+        room.setPricePerNight(0.0);
+        final Booking booking = new Booking();
+        when(mockEntityCache.findUser(0L)).thenReturn(Optional.of(new User()));
+        when(mockEntityCache.findRoom(1L)).thenReturn(Optional.of(room));
+        when(mockRoomNightAvailabilityStore.isAvailable(1L, checkinTime, checkOutTime)).thenReturn(true);
+        when(objectMapper.convertValue(createBooking, Booking.class)).thenReturn(booking);
+        when(mockRoomNightAvailabilityStore.hold(booking)).thenReturn(false);
+
+        final CustomException exception = Assertions.assertThrows(CustomException.class,
+                () -> bookingServiceUnderTest.bookHotel(createBooking));
+        assertEquals(404, exception.getCode());
+        verifyNoInteractions(mockMessageProducer);
+        assertEquals(1, meterRegistry.counter(BookingService.REQUEST_COUNTER, "outcome", "rejected", "stage", "hold").count());
+    }
+
+    @Test
+    public void testBookHotels() {
+        final User user = new User();
+        user.setId(1L);
+        final Room room = new Room();
+        room.setId(2L);
+        room.setPricePerNight(0.0);
+        when(mockUserRepo.findAllById(any())).thenReturn(List.of(user));
+        when(mockRoomRepo.findAllById(any())).thenReturn(List.of(room));
+        when(mockRoomNightAvailabilityStore.areAvailable(anyList())).thenReturn(new boolean[]{true, true});
+        when(mockRoomNightAvailabilityStore.holdAll(anyList())).thenReturn(new boolean[]{true});
+
+        final CreateBooking first = new CreateBooking();
+        first.setUserId(1L);
+        first.setRoomId(2L);
+        first.setCheckInDate(checkinTime);
+        first.setCheckOutDate(checkOutTime);
+        final CreateBooking overlapping = new CreateBooking();
+        overlapping.setUserId(1L);
+        overlapping.setRoomId(2L);
+        overlapping.setCheckInDate(checkinTime);
+        overlapping.setCheckOutDate(checkOutTime + 60 * 60 * 1000);
+        final CreateBooking unknownUser = new CreateBooking();
+        unknownUser.setUserId(3L);
+        unknownUser.setRoomId(2L);
+        for (CreateBooking createBooking : List.of(first, overlapping)) {
+            final Booking booking = new Booking();
+            booking.setCheckInDate(createBooking.getCheckInDate());
+            booking.setCheckOutDate(createBooking.getCheckOutDate());
+            when(objectMapper.convertValue(createBooking, Booking.class)).thenReturn(booking);
+        }
+
+        final List<BookingBatchResult> result = bookingServiceUnderTest.bookHotels(List.of(first, overlapping, unknownUser));
+
+        assertEquals(3, result.size());
+        assertEquals(201, result.get(0).getStatus());
+        assertEquals(404, result.get(1).getStatus());
+        assertEquals(404, result.get(2).getStatus());
+        verify(mockRoomNightAvailabilityStore).holdAll(List.of(result.get(0).getBooking()));
+        verify(mockMessageProducer).sendMessage(any(), eq("2"), any(), any());
     }
 
     @Test
     public void testIsRoomAvailable() {
-        when(mockRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(mockRoomNightAvailabilityStore.isAvailable(1L, checkinTime, checkOutTime)).thenReturn(true);
+        final boolean result = bookingServiceUnderTest.isRoomAvailable(1L, checkinTime, checkOutTime);
+        assertTrue(result);
+    }
+
+    @Test
+    public void testIsRoomAvailable_FromIndex() {
+        when(mockRoomAvailabilityIndex.isReady()).thenReturn(true);
+        when(mockRoomAvailabilityIndex.overlaps(1L, checkinTime, checkOutTime)).thenReturn(false);
         final boolean result = bookingServiceUnderTest.isRoomAvailable(1L, checkinTime, checkOutTime);
         assertTrue(result);
+        verifyNoInteractions(mockRoomNightAvailabilityStore, mockBookingRepo);
     }
 
     @Test
-    public void testCalculateTotalPrice() {
-        assertEquals(0.0, bookingServiceUnderTest.calculateTotalPrice(checkinTime, checkOutTime, 0.0), 0.0001);
+    public void testIsRoomAvailable_ConfirmsIndexHitWithBitmaps() {
+        when(mockRoomAvailabilityIndex.isReady()).thenReturn(true);
+        when(mockRoomAvailabilityIndex.overlaps(1L, checkinTime, checkOutTime)).thenReturn(true);
+        when(mockRoomNightAvailabilityStore.isAvailable(1L, checkinTime, checkOutTime)).thenReturn(true);
+        final boolean result = bookingServiceUnderTest.isRoomAvailable(1L, checkinTime, checkOutTime);
+        assertTrue(result);
+        verifyNoInteractions(mockBookingRepo);
     }
 
     @Test
     public void testGetBookings() {
-        final Booking booking = new Booking();
-        booking.setId(0L);
-        final Room room = new Room();
-        room.setPricePerNight(0.0);
-        booking.setRoom(room);
-        final User user = new User();
-        booking.setUser(user);
-        booking.setStatus(BookingStatus.BOOKED);
-        final Page<Booking> bookings = new PageImpl<>(List.of(booking));
-        when(mockBookingRepo.findAll(any(Pageable.class))).thenReturn(bookings);
+        final BookingView booking = new BookingView(0L, 1L, 2L, 3L, checkinTime, checkOutTime, 0.0, BookingStatus.BOOKED);
+        ReflectionTestUtils.setField(bookingServiceUnderTest, "maxPageSize", 100);
+        when(mockBookingRepo.findViewsByIdGreaterThan(0L, Pageable.ofSize(11))).thenReturn(List.of(booking));
 
-        final Page<Booking> result = bookingServiceUnderTest.getBookings(0, 10);
+        final CursorPage<BookingView> result = bookingServiceUnderTest.getBookings(null, 10);
         Assertions.assertNotNull(result);
+        assertEquals(List.of(booking), result.getItems());
+        Assertions.assertNull(result.getNextCursor());
+    }
+
+    @Test
+    public void testGetBookings_NextPage() {
+        final BookingView first = new BookingView();
+        first.setId(5L);
+        final BookingView second = new BookingView();
+        second.setId(8L);
+        ReflectionTestUtils.setField(bookingServiceUnderTest, "maxPageSize", 100);
+        when(mockBookingRepo.findViewsByIdGreaterThan(3L, Pageable.ofSize(2))).thenReturn(List.of(first, second));
+
+        final CursorPage<BookingView> result = bookingServiceUnderTest.getBookings(CursorPage.encode(3L), 1);
+
+        assertEquals(List.of(first), result.getItems());
+        assertEquals(5L, CursorPage.decode(result.getNextCursor()));
     }
 
+    @Test
+    public void testGetBookings_InvalidCursor() {
+        ReflectionTestUtils.setField(bookingServiceUnderTest, "maxPageSize", 100);
+
+        final CustomException exception = Assertions.assertThrows(CustomException.class,
+                () -> bookingServiceUnderTest.getBookings("not-a-cursor", 10));
+
+        assertEquals(400, exception.getCode());
+        verifyNoInteractions(mockBookingRepo);
+    }
+
+    @Test
+    public void testGetBooking() {
+        final BookingView booking = new BookingView(0L, 1L, 2L, 3L, checkinTime, checkOutTime, 0.0, BookingStatus.BOOKED);
+        when(mockBookingRepo.findViewById(0L)).thenReturn(Optional.of(booking));
+
+        assertEquals(booking, bookingServiceUnderTest.getBooking(0L));
+    }
+
+    @Test
+    public void testGetBooking_NotFound() {
+        when(mockBookingRepo.findViewById(0L)).thenReturn(Optional.empty());
+
+        final CustomException exception = Assertions.assertThrows(CustomException.class,
+                () -> bookingServiceUnderTest.getBooking(0L));
+
+        assertEquals(404, exception.getCode());
+    }
+
+    @Test
+    public void testBookHotel_PriceBelowQuote() {
+        final CreateBooking createBooking = new CreateBooking();
+        createBooking.setRoomId(1L);
+        createBooking.setUserId(0L);
+        createBooking.setCheckInDate(checkinTime);
+        createBooking.setCheckOutDate(checkOutTime);
+        createBooking.setTotalPrice(100.0);
+        final Room room = new Room();
+        room.setId(1L);
+        room.setPricePerNight(100.0);
+        when(mockEntityCache.findUser(0L)).thenReturn(Optional.of(new User()));
+        when(mockEntityCache.findRoom(1L)).thenReturn(Optional.of(room));
+        when(mockRoomNightAvailabilityStore.isAvailable(1L, checkinTime, checkOutTime)).thenReturn(true);
+        when(mockRateCalendar.quote(room, checkinTime, checkOutTime)).thenReturn(150.0);
+
+        final CustomException exception = Assertions.assertThrows(CustomException.class,
+                () -> bookingServiceUnderTest.bookHotel(createBooking));
+
+        assertEquals(400, exception.getCode());
+        verify(mockRoomNightAvailabilityStore, never()).hold(any());
+    }
 
     @Test
     public void testCancelBooking() {
@@ -150,33 +370,50 @@ public class BookingServiceTest {
 
         final String result = bookingServiceUnderTest.cancelBooking(0L);
         assertEquals("Booking cancel successful", result);
+        verify(mockRoomNightAvailabilityStore).releaseAll(List.of(booking1));
+        verify(mockCheckoutDueQueue).remove(booking1);
+        verify(mockUserBookingHistory).updateStatus(List.of(0L), BookingStatus.VACANT);
     }
 
     @Test
     public void testGetBookingsByUser() {
-        final Booking booking = new Booking();
-        booking.setId(0L);
-        final Room room = new Room();
-        room.setPricePerNight(0.0);
-        booking.setRoom(room);
-        final User user = new User();
-        booking.setUser(user);
-        booking.setStatus(BookingStatus.BOOKED);
-        final List<Booking> expectedResult = List.of(booking);
+        final BookingView booking = new BookingView(0L, 0L, 0L, 0L, checkinTime, checkOutTime, 0.0, BookingStatus.BOOKED);
+        final List<BookingView> expectedResult = List.of(booking);
 
-        final Booking booking1 = new Booking();
-        booking1.setId(0L);
-        final Room room1 = new Room();
-        room1.setPricePerNight(0.0);
-        booking1.setRoom(room1);
-        final User user1 = new User();
-        booking1.setUser(user1);
-        booking1.setStatus(BookingStatus.BOOKED);
-        final List<Booking> bookings = List.of(booking1);
-        when(mockBookingRepo.getBookingsByUser(eq(0), any(Pageable.class))).thenReturn(bookings);
+        final BookingView booking1 = new BookingView(0L, 0L, 0L, 0L, checkinTime, checkOutTime, 0.0, BookingStatus.BOOKED);
+        final List<BookingView> bookings = List.of(booking1);
+        ReflectionTestUtils.setField(bookingServiceUnderTest, "maxPageSize", 100);
+        when(mockBookingRepo.findUserViewsBefore(eq(0L), eq(Long.MAX_VALUE), eq(Long.MAX_VALUE), any(Pageable.class))).thenReturn(bookings);
 
-        final List<Booking> result = bookingServiceUnderTest.getBookingsByUser(0, 10);
-        assertEquals(expectedResult, result);
+        final CursorPage<BookingView> result = bookingServiceUnderTest.getBookingsByUser(0, null, 10);
+        assertEquals(expectedResult, result.getItems());
+        assertEquals(null, result.getNextCursor());
+    }
+
+    @Test
+    public void testGetBookingsByUser_FromHistory() {
+        final CursorPage<BookingView> page = new CursorPage<>(List.of(), null);
+        ReflectionTestUtils.setField(bookingServiceUnderTest, "maxPageSize", 100);
+        when(mockUserBookingHistory.isEnabled()).thenReturn(true);
+        when(mockUserBookingHistory.page(0L, "cursor", 100)).thenReturn(page);
+
+        assertEquals(page, bookingServiceUnderTest.getBookingsByUser(0, "cursor", 500));
+        verifyNoInteractions(mockBookingRepo);
+    }
+
+    @Test
+    public void testGetBookingsByUserWithFilter() {
+        final BookingView booking = new BookingView(0L, 0L, 0L, 0L, checkinTime, checkOutTime, 150.0, BookingStatus.BOOKED);
+        final List<BookingView> bookings = List.of(booking);
+        final BookingFilter filter = new BookingFilter();
+        filter.setStatus(BookingStatus.BOOKED);
+        filter.setMinPrice(100.0);
+        ReflectionTestUtils.setField(bookingServiceUnderTest, "maxPageSize", 100);
+        when(mockBookingRepo.findViews(any(), eq(100))).thenReturn(bookings);
+
+        final List<BookingView> result = bookingServiceUnderTest.getBookingsByUser(0, filter, 500);
+
+        assertEquals(bookings, result);
     }
 
 
@@ -0,0 +1,53 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.service.CheckoutDueQueue.DueCheckout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CheckoutDueQueueTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @InjectMocks
+    private CheckoutDueQueue checkoutDueQueue;
+
+    @Test
+    public void testDueCheckoutMember() {
+        DueCheckout checkout = new DueCheckout(7L, 42L, 1000L, 2000L);
+
+        assertEquals("7:42:1000:2000", checkout.member());
+        assertEquals(checkout, DueCheckout.parse(checkout.member()));
+        assertEquals(checkout, DueCheckout.of(checkout.toBooking()));
+    }
+
+    @Test
+    public void testDue() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.rangeByScore(ApplicationConstants.CHECKOUT_QUEUE, Double.NEGATIVE_INFINITY, 5000, 0, 10))
+                .thenReturn(new LinkedHashSet<>(List.of("1:10:100:200", "2:11:100:300")));
+
+        List<DueCheckout> due = checkoutDueQueue.due(5000, 10);
+        assertEquals(List.of(new DueCheckout(1L, 10L, 100L, 200L), new DueCheckout(2L, 11L, 100L, 300L)), due);
+        Booking booking = due.get(1).toBooking();
+        assertEquals(11L, booking.getRoom().getId());
+        assertEquals(300L, booking.getCheckOutDate());
+    }
+}
@@ -0,0 +1,105 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.repository.HotelRepo;
+import com.hotel.booking.repository.RoomRepo;
+import com.hotel.booking.repository.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EntityCacheTest {
+
+    @Mock
+    private RoomRepo roomRepo;
+
+    @Mock
+    private HotelRepo hotelRepo;
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @InjectMocks
+    private EntityCache entityCache;
+
+    @BeforeEach
+    public void setUp() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(EntityCache.ROOMS, EntityCache.HOTELS, EntityCache.USERS);
+        cacheManager.setAllowNullValues(false);
+        ReflectionTestUtils.setField(entityCache, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(entityCache, "invalidationChannel", "entity-cache-invalidation");
+    }
+
+    @Test
+    public void testFindRoom_ReadThrough() {
+        Room room = new Room();
+        room.setId(1L);
+        when(roomRepo.findById(1L)).thenReturn(Optional.of(room));
+
+        assertEquals(Optional.of(room), entityCache.findRoom(1L));
+        assertEquals(Optional.of(room), entityCache.findRoom(1L));
+
+        verify(roomRepo, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testFindRoom_MissIsNotCached() {
+        when(roomRepo.findById(1L)).thenReturn(Optional.empty());
+
+        assertFalse(entityCache.findRoom(1L).isPresent());
+        assertFalse(entityCache.findRoom(1L).isPresent());
+
+        verify(roomRepo, times(2)).findById(1L);
+    }
+
+    @Test
+    public void testInvalidate() {
+        Room room = new Room();
+        room.setId(1L);
+        when(roomRepo.findById(1L)).thenReturn(Optional.of(room));
+        entityCache.findRoom(1L);
+
+        entityCache.invalidate(EntityCache.ROOMS, 1L);
+        entityCache.findRoom(1L);
+
+        verify(redisTemplate).convertAndSend("entity-cache-invalidation", "rooms:1");
+        verify(roomRepo, times(2)).findById(1L);
+    }
+
+    @Test
+    public void testOnInvalidation() {
+        Room room = new Room();
+        room.setId(1L);
+        when(roomRepo.findById(1L)).thenReturn(Optional.of(room));
+        entityCache.findRoom(1L);
+
+        entityCache.onInvalidation("rooms:1");
+        entityCache.onInvalidation("malformed");
+        entityCache.findRoom(1L);
+
+        verify(roomRepo, times(2)).findById(1L);
+        verify(applicationEventPublisher).publishEvent(new EntityChangedEvent(EntityCache.ROOMS, 1L));
+    }
+}
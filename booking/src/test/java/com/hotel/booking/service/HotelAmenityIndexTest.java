@@ -0,0 +1,104 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.enums.AmenityMatch;
+import com.hotel.booking.repository.HotelRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HotelAmenityIndexTest {
+
+    @Mock
+    private HotelRepo hotelRepo;
+
+    @InjectMocks
+    private HotelAmenityIndex hotelAmenityIndex;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(hotelAmenityIndex, "enabled", true);
+        hotelAmenityIndex.put(hotel(1L, "Goa", "Pool", "Parking", "Wifi"));
+        hotelAmenityIndex.put(hotel(2L, "Goa", "pool"));
+        hotelAmenityIndex.put(hotel(3L, "Delhi", "Parking", "Gym"));
+        hotelAmenityIndex.put(hotel(4L, "Goa", "Gym"));
+    }
+
+    @Test
+    public void testSearch_All() {
+        assertArrayEquals(new long[]{1L}, hotelAmenityIndex.search(null, List.of("pool", " PARKING "), AmenityMatch.ALL, 0L, 10));
+    }
+
+    @Test
+    public void testSearch_Any() {
+        assertArrayEquals(new long[]{1L, 2L, 3L}, hotelAmenityIndex.search(null, List.of("pool", "parking"), AmenityMatch.ANY, 0L, 10));
+    }
+
+    @Test
+    public void testSearch_LocationAfterIdAndLimit() {
+        assertArrayEquals(new long[]{2L, 4L}, hotelAmenityIndex.search("Goa", List.of(), AmenityMatch.ALL, 1L, 10));
+        assertArrayEquals(new long[]{1L}, hotelAmenityIndex.search("Goa", List.of(), AmenityMatch.ALL, 0L, 1));
+        assertArrayEquals(new long[0], hotelAmenityIndex.search("Goa", List.of("sauna"), AmenityMatch.ALL, 0L, 10));
+    }
+
+    @Test
+    public void testSearch_PagesInIdOrderWhateverTheInsertionOrder() {
+        hotelAmenityIndex.put(hotel(9L, "Goa", "Pool"));
+        hotelAmenityIndex.put(hotel(7L, "Goa", "Pool"));
+
+        assertArrayEquals(new long[]{1L, 2L}, hotelAmenityIndex.search(null, List.of("pool"), AmenityMatch.ALL, 0L, 2));
+        assertArrayEquals(new long[]{7L, 9L}, hotelAmenityIndex.search(null, List.of("pool"), AmenityMatch.ALL, 2L, 2));
+        assertArrayEquals(new long[0], hotelAmenityIndex.search(null, List.of("pool"), AmenityMatch.ALL, 9L, 2));
+    }
+
+    @Test
+    public void testPut_ReplacesAmenities() {
+        hotelAmenityIndex.put(hotel(2L, "Delhi", "Gym"));
+
+        assertArrayEquals(new long[]{1L}, hotelAmenityIndex.search(null, List.of("pool"), AmenityMatch.ALL, 0L, 10));
+        assertArrayEquals(new long[]{2L, 3L}, hotelAmenityIndex.search("Delhi", List.of("gym"), AmenityMatch.ALL, 0L, 10));
+    }
+
+    @Test
+    public void testOnEntityChanged() {
+        when(hotelRepo.findById(1L)).thenReturn(Optional.empty());
+        when(hotelRepo.findById(5L)).thenReturn(Optional.of(hotel(5L, "Goa", "Pool")));
+
+        hotelAmenityIndex.onEntityChanged(new EntityChangedEvent(EntityCache.HOTELS, 1L));
+        hotelAmenityIndex.onEntityChanged(new EntityChangedEvent(EntityCache.HOTELS, 5L));
+        hotelAmenityIndex.onEntityChanged(new EntityChangedEvent(EntityCache.ROOMS, 1L));
+
+        assertArrayEquals(new long[]{2L, 5L}, hotelAmenityIndex.search(null, List.of("pool"), AmenityMatch.ALL, 0L, 10));
+    }
+
+    @Test
+    public void testRebuild() {
+        when(hotelRepo.findAll()).thenReturn(List.of(hotel(6L, "Pune", "Spa")));
+        assertFalse(hotelAmenityIndex.isReady());
+
+        hotelAmenityIndex.rebuild();
+
+        assertTrue(hotelAmenityIndex.isReady());
+        assertArrayEquals(new long[]{6L}, hotelAmenityIndex.search("Pune", List.of("spa"), AmenityMatch.ALL, 0L, 10));
+    }
+
+    private static Hotel hotel(Long id, String location, String... amenities) {
+        Hotel hotel = new Hotel(id);
+        hotel.setLocation(location);
+        hotel.setAmenities(List.of(amenities));
+        return hotel;
+    }
+}
@@ -0,0 +1,152 @@
+package com.hotel.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.dtos.response.ImportError;
+import com.hotel.booking.dtos.response.ImportProgress;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HotelImportServiceTest {
+
+    private static final String FILE = String.join("\n",
+            hotel("Alpha", 2),
+            "{not json",
+            hotel("Beta", 1),
+            hotel("", 1),
+            hotel("Gamma", 1),
+            "");
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private EntityCache entityCache;
+
+    @InjectMocks
+    private HotelImportService hotelImportService;
+
+    @BeforeEach
+    public void setUp() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        ReflectionTestUtils.setField(hotelImportService, "validator", validator);
+        ReflectionTestUtils.setField(hotelImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(hotelImportService, "progressTtl", Duration.ofDays(7));
+    }
+
+    @Test
+    public void testImportHotels() throws IOException {
+        runInTransaction();
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("hotel"), eq(2))).thenReturn(List.of(1L, 2L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("room"), eq(3))).thenReturn(List.of(10L, 11L, 12L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("hotel"), eq(1))).thenReturn(List.of(3L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("room"), eq(1))).thenReturn(List.of(13L));
+
+        List<ImportProgress> reports = importHotels(null);
+
+        assertEquals(2, reports.size());
+        assertEquals(new ImportProgress(3, 2, 3, List.of(reports.get(0).getErrors().get(0)), false), reports.get(0));
+        assertEquals(2, reports.get(0).getErrors().get(0).getLine());
+        assertTrue(reports.get(0).getErrors().get(0).getMessage().startsWith("Invalid JSON"));
+        assertEquals(new ImportProgress(6, 3, 4, List.of(new ImportError(4, "name: Name is required")), true), reports.get(1));
+        verify(entityCache).invalidate(EntityCache.HOTELS, 1L);
+        verify(entityCache).invalidate(EntityCache.HOTELS, 2L);
+        verify(entityCache).invalidate(EntityCache.HOTELS, 3L);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    public void testImportHotels_ResumesAfterCommittedLine() throws IOException {
+        runInTransaction();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("hotel_import:import-1")).thenReturn("3");
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("hotel"), eq(1))).thenReturn(List.of(3L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("room"), eq(1))).thenReturn(List.of(13L));
+
+        List<ImportProgress> reports = importHotels("import-1");
+
+        assertEquals(List.of(new ImportProgress(6, 1, 1, List.of(new ImportError(4, "name: Name is required")), true)), reports);
+        verify(valueOperations).set("hotel_import:import-1", "6", Duration.ofDays(7));
+        verify(entityCache).invalidate(EntityCache.HOTELS, 3L);
+    }
+
+    @Test
+    public void testImportHotels_FailedChunkReportsItsLines() throws IOException {
+        when(transactionTemplate.execute(any())).thenThrow(new DataIntegrityViolationException("value too long"));
+
+        List<ImportProgress> reports = importHotels(null);
+
+        assertEquals(2, reports.size());
+        assertEquals(0, reports.get(1).getHotels());
+        List<Long> lines = reports.stream().flatMap(report -> report.getErrors().stream()).map(ImportError::getLine).toList();
+        assertEquals(List.of(2L, 1L, 3L, 4L, 5L), lines);
+        assertEquals("Not imported: value too long", reports.get(0).getErrors().get(1).getMessage());
+        verify(entityCache, never()).invalidate(any(), any());
+    }
+
+    private List<ImportProgress> importHotels(String importId) throws IOException {
+        List<ImportProgress> reports = new ArrayList<>();
+        InputStream body = new ByteArrayInputStream(FILE.getBytes(StandardCharsets.UTF_8));
+        hotelImportService.importHotels(body, importId, reports::add);
+        return reports;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runInTransaction() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+    }
+
+    private static String hotel(String name, int rooms) {
+        StringBuilder json = new StringBuilder("{\"name\":\"").append(name)
+                .append("\",\"location\":\"Goa\",\"description\":\"Sea view\",\"rating\":4.5,\"amenities\":[\"pool\"],\"rooms\":[");
+        for (int i = 0; i < rooms; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"type\":\"DELUXE\",\"description\":\"King bed\",\"maxOccupancy\":2,\"pricePerNight\":100}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -3,8 +3,11 @@ package com.hotel.booking.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hotel.booking.dtos.request.CreateHotel;
 import com.hotel.booking.dtos.request.RoomDTO;
+import com.hotel.booking.dtos.response.CursorPage;
 import com.hotel.booking.entity.Hotel;
 import com.hotel.booking.entity.Room;
+import com.hotel.booking.enums.AmenityMatch;
+import com.hotel.booking.exception.CustomException;
 import com.hotel.booking.repository.HotelRepo;
 import com.hotel.booking.repository.RoomRepo;
 import org.junit.jupiter.api.Test;
@@ -12,15 +15,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +39,9 @@ public class HotelServiceTest {
     @Mock
     private RoomRepo roomRepo;
 
+    @Mock
+    private HotelAmenityIndex hotelAmenityIndex;
+
     @InjectMocks
     private HotelService hotelService;
 
@@ -74,12 +81,53 @@ public class HotelServiceTest {
 
     @Test
     public void testGetHotels() {
-        Page<Hotel> page = new PageImpl<>(new ArrayList<>());
-        when(hotelRepo.findAll(any(Pageable.class))).thenReturn(page);
+        ReflectionTestUtils.setField(hotelService, "maxPageSize", 100);
+        when(hotelRepo.findByIdGreaterThanOrderByIdAsc(any(), any(Pageable.class))).thenReturn(new ArrayList<>());
 
-        Page<Hotel> resultPage = hotelService.getHotels(0, 10);
+        CursorPage<Hotel> resultPage = hotelService.getHotels(null, 10);
 
-        verify(hotelRepo).findAll(Pageable.ofSize(10));
+        verify(hotelRepo).findByIdGreaterThanOrderByIdAsc(0L, Pageable.ofSize(11));
         assertNotNull(resultPage);
+        assertNull(resultPage.getNextCursor());
+    }
+
+    @Test
+    public void testSearchHotels() {
+        Hotel first = new Hotel(2L);
+        Hotel second = new Hotel(5L);
+        ReflectionTestUtils.setField(hotelService, "maxPageSize", 100);
+        when(hotelAmenityIndex.isReady()).thenReturn(true);
+        when(hotelAmenityIndex.search("Goa", List.of("pool", "parking"), AmenityMatch.ALL, 0L, 2)).thenReturn(new long[]{2L, 5L});
+        when(hotelRepo.findAllById(List.of(2L, 5L))).thenReturn(List.of(second, first));
+
+        CursorPage<Hotel> result = hotelService.searchHotels("Goa", List.of("pool", "parking"), AmenityMatch.ALL, null, 1);
+
+        assertEquals(List.of(first), result.getItems());
+        assertEquals(2L, CursorPage.decode(result.getNextCursor()));
+    }
+
+    @Test
+    public void testSearchHotels_IndexNotReady() {
+        Hotel pool = new Hotel(1L);
+        pool.setAmenities(List.of("Pool"));
+        Hotel gym = new Hotel(2L);
+        gym.setAmenities(List.of("Gym"));
+        ReflectionTestUtils.setField(hotelService, "maxPageSize", 100);
+        when(hotelAmenityIndex.isReady()).thenReturn(false);
+        when(hotelRepo.findByLocationAndIdGreaterThanOrderByIdAsc("Goa", 0L)).thenReturn(List.of(pool, gym));
+
+        CursorPage<Hotel> result = hotelService.searchHotels("Goa", List.of("pool"), AmenityMatch.ANY, null, 10);
+
+        assertEquals(List.of(pool), result.getItems());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    public void testSearchHotels_NoCriteria() {
+        CustomException exception = assertThrows(CustomException.class,
+                () -> hotelService.searchHotels(" ", List.of(), AmenityMatch.ALL, null, 10));
+
+        assertEquals(400, exception.getCode());
+        verifyNoInteractions(hotelAmenityIndex, hotelRepo);
     }
 }
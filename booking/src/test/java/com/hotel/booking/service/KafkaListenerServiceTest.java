@@ -1,50 +1,242 @@
 package com.hotel.booking.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.config.BookingEventCodec;
+import com.hotel.booking.config.MessageProducer;
 import com.hotel.booking.entity.Booking;
 import com.hotel.booking.entity.Room;
+import com.hotel.booking.enums.BookingStatus;
+import com.hotel.booking.exception.CustomException;
 import com.hotel.booking.repository.BookingRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class KafkaListenerServiceTest {
 
+    private static final byte[] FIRST = {1, 0, 1};
+    private static final byte[] SECOND = {1, 0, 2};
+    private static final byte[] VALID = {1, 0, 3};
+    private static final byte[] INVALID = {1, 0, 4};
+    private static final byte[] GARBAGE = {9};
+
     @Mock
-    private ObjectMapper objectMapper;
+    private BookingEventCodec bookingEventCodec;
 
     @Mock
     private BookingRepo bookingRepo;
 
     @Mock
-    private RedisTemplate<String, String> redisTemplate;
+    private RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @Mock
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
+
+    @Mock
+    private MessageProducer messageProducer;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CheckoutDueQueue checkoutDueQueue;
+
+    @Mock
+    private UserBookingHistory userBookingHistory;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private kafkaListenerService kafkaListenerService;
 
     @Test
-    public void testBookingConsumer() throws JsonProcessingException {
-        String bookingMessage = "{\"id\":\"123\",\"name\":\"John Doe\"}";
+    public void testBookingConsumer() {
+        byte[] bookingMessage = {1, 1, 0, 0, 0, 0, 0, 0, 0, 123};
         Booking booking = new Booking();
         booking.setId(1L);
-        when(objectMapper.readValue(bookingMessage, Booking.class)).thenReturn(booking);
+        when(bookingEventCodec.decode(bookingMessage)).thenReturn(booking);
         kafkaListenerService.bookingConsumer(bookingMessage);
-        verify(objectMapper).readValue(bookingMessage, Booking.class);
+        verify(bookingEventCodec).decode(bookingMessage);
+        verify(bookingRepo).save(booking);
+        verify(roomNightAvailabilityStore).confirmAll(List.of(booking));
+        verify(checkoutDueQueue).addAll(List.of(booking));
+        verify(userBookingHistory).addAll(List.of(booking));
+        assertEquals(1, meterRegistry.counter("booking.consumer.records", "result", "saved").count());
+        assertEquals(1, meterRegistry.timer("booking.consumer.processing", "mode", "single").count());
+    }
+
+    @Test
+    public void testBookingConsumer_RedeliveredAfterCommitOnlyAppliesRedisSteps() {
+        byte[] bookingMessage = {2, 2, 0, 0, 0, 0, 0, 0, 0, 0};
+        Booking booking = new Booking();
+        booking.setEventId(UUID.randomUUID());
+        Booking persisted = new Booking();
+        persisted.setId(1L);
+        persisted.setStatus(BookingStatus.BOOKED);
+        when(bookingEventCodec.decode(bookingMessage)).thenReturn(booking);
+        when(bookingRepo.save(booking)).thenThrow(new DataIntegrityViolationException("booking_event_id"));
+        when(bookingRepo.findByEventId(booking.getEventId())).thenReturn(Optional.of(persisted));
+
+        kafkaListenerService.bookingConsumer(bookingMessage);
+
+        verify(roomNightAvailabilityStore).confirmAll(List.of(persisted));
+        verify(checkoutDueQueue).addAll(List.of(persisted));
+        verify(userBookingHistory).addAll(List.of(persisted));
+        assertEquals(1, meterRegistry.counter("booking.consumer.records", "result", "redelivered").count());
+        assertEquals(0, meterRegistry.counter("booking.consumer.records", "result", "failed").count());
+    }
+
+    @Test
+    public void testBookingConsumer_RetriesRedisStepWithoutSavingAgain() {
+        byte[] bookingMessage = {2, 0, 0, 0, 0, 0, 0, 0, 0, 1};
+        Booking booking = new Booking();
+        ReflectionTestUtils.setField(kafkaListenerService, "followUpAttempts", 2);
+        ReflectionTestUtils.setField(kafkaListenerService, "followUpBackoff", Duration.ZERO);
+        when(bookingEventCodec.decode(bookingMessage)).thenReturn(booking);
+        doThrow(new RuntimeException("redis down")).doNothing().when(checkoutDueQueue).addAll(List.of(booking));
+
+        kafkaListenerService.bookingConsumer(bookingMessage);
+
+        verify(bookingRepo).save(booking);
+        verify(roomNightAvailabilityStore).confirmAll(List.of(booking));
+        verify(checkoutDueQueue, times(2)).addAll(List.of(booking));
+        verify(userBookingHistory).addAll(List.of(booking));
+    }
+
+    @Test
+    public void testBookingConsumer_RedisStepFailureAfterCommitIsNotAFailedSave() {
+        byte[] bookingMessage = {2, 0, 0, 0, 0, 0, 0, 0, 0, 2};
+        Booking booking = new Booking();
+        ReflectionTestUtils.setField(kafkaListenerService, "followUpAttempts", 1);
+        when(bookingEventCodec.decode(bookingMessage)).thenReturn(booking);
+        doThrow(new RuntimeException("redis down")).when(roomNightAvailabilityStore).confirmAll(List.of(booking));
+
+        assertThrows(CustomException.class, () -> kafkaListenerService.bookingConsumer(bookingMessage));
+
         verify(bookingRepo).save(booking);
+        verifyNoInteractions(checkoutDueQueue, messageProducer);
+        assertEquals(1, meterRegistry.counter("booking.consumer.records", "result", "saved").count());
+        assertEquals(0, meterRegistry.counter("booking.consumer.records", "result", "failed").count());
+        assertEquals(1, meterRegistry.counter("booking.consumer.follow-up.failures", "step", "confirm").count());
+    }
+
+    @Test
+    public void testBookingBatchConsumer() {
+        Booking first = new Booking();
+        Booking second = new Booking();
+        when(bookingEventCodec.decode(FIRST)).thenReturn(first);
+        when(bookingEventCodec.decode(SECOND)).thenReturn(second);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        kafkaListenerService.bookingBatchConsumer(List.of(FIRST, SECOND));
+
+        verify(bookingRepo).saveAll(List.of(first, second));
+        verify(roomNightAvailabilityStore).confirmAll(List.of(first, second));
+        verify(checkoutDueQueue).addAll(List.of(first, second));
+        verify(userBookingHistory).addAll(List.of(first, second));
+        verify(bookingRepo, never()).save(any());
+        verifyNoInteractions(messageProducer);
+    }
+
+    @Test
+    public void testBookingBatchConsumer_SkipsEventsAlreadySaved() {
+        Booking first = new Booking();
+        first.setEventId(UUID.randomUUID());
+        Booking second = new Booking();
+        second.setEventId(UUID.randomUUID());
+        Booking persisted = new Booking();
+        persisted.setId(1L);
+        persisted.setEventId(first.getEventId());
+        persisted.setStatus(BookingStatus.BOOKED);
+        when(bookingEventCodec.decode(FIRST)).thenReturn(first);
+        when(bookingEventCodec.decode(SECOND)).thenReturn(second);
+        when(bookingRepo.findAllByEventIdIn(any())).thenReturn(List.of(persisted));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        kafkaListenerService.bookingBatchConsumer(List.of(FIRST, SECOND));
+
+        verify(bookingRepo).saveAll(List.of(second));
+        verify(checkoutDueQueue).addAll(List.of(persisted, second));
+        assertEquals(1, meterRegistry.counter("booking.consumer.records", "result", "redelivered").count());
     }
 
     @Test
-    public void testDltHandler() throws JsonProcessingException {
-        String bookingMessage = "{\"id\":\"123\",\"name\":\"John Doe\"}";
+    public void testBookingBatchConsumer_ForwardsPoisonRecords() {
+        ReflectionTestUtils.setField(kafkaListenerService, "poisonSendTimeout", Duration.ofSeconds(1));
+        when(messageProducer.send(any(), isNull(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        Booking valid = new Booking();
+        valid.setId(1L);
+        Booking invalid = new Booking();
+        invalid.setId(2L);
+        when(bookingEventCodec.decode(VALID)).thenReturn(valid);
+        when(bookingEventCodec.decode(INVALID)).thenReturn(invalid);
+        when(bookingEventCodec.decode(GARBAGE)).thenThrow(IllegalArgumentException.class);
+        doThrow(new RuntimeException("constraint violation")).when(transactionTemplate).executeWithoutResult(any());
+        when(bookingRepo.save(invalid)).thenThrow(new RuntimeException("constraint violation"));
+
+        kafkaListenerService.bookingBatchConsumer(List.of(VALID, INVALID, GARBAGE));
+
+        verify(bookingRepo).save(valid);
+        verify(checkoutDueQueue).addAll(List.of(valid));
+        verify(checkoutDueQueue, never()).addAll(List.of(invalid));
+        verify(messageProducer).send(any(), isNull(), eq(INVALID));
+        verify(messageProducer).send(any(), isNull(), eq(GARBAGE));
+        assertEquals(2, meterRegistry.counter("booking.consumer.records", "result", "forwarded").count());
+    }
+
+    @Test
+    public void testBookingBatchConsumer_FailsPollWhenPoisonForwardIsNotAcknowledged() {
+        ReflectionTestUtils.setField(kafkaListenerService, "poisonSendTimeout", Duration.ofSeconds(1));
+        when(bookingEventCodec.decode(GARBAGE)).thenThrow(IllegalArgumentException.class);
+        when(messageProducer.send(any(), isNull(), eq(GARBAGE)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        assertThrows(CustomException.class, () -> kafkaListenerService.bookingBatchConsumer(List.of(GARBAGE)));
+
+        verifyNoInteractions(transactionTemplate);
+        assertEquals(0, meterRegistry.counter("booking.consumer.records", "result", "forwarded").count());
+    }
+
+    @Test
+    public void testDltHandler() {
+        byte[] bookingMessage = {1, 1, 0, 0, 0, 0, 0, 0, 0, 123};
 
         Booking booking = new Booking();
         booking.setId(1L);
@@ -52,11 +244,29 @@ public class KafkaListenerServiceTest {
         room.setId(1L);
         booking.setRoom(room);
 
-        when(objectMapper.readValue(bookingMessage, Booking.class)).thenReturn(booking);
+        when(bookingEventCodec.decode(bookingMessage)).thenReturn(booking);
+        kafkaListenerService.dltHandler(bookingMessage);
+        verify(bookingEventCodec).decode(bookingMessage);
+        verify(roomNightAvailabilityStore).releaseHold(1L, booking.getCheckInDate(), booking.getCheckOutDate());
+        assertEquals(1, meterRegistry.counter("booking.consumer.dlt").count());
+
+    }
+
+    @Test
+    public void testDltHandler_KeepsHoldOfSavedBooking() {
+        byte[] bookingMessage = {2, 2, 0, 0, 0, 0, 0, 0, 0, 3};
+        Booking booking = new Booking();
+        booking.setEventId(UUID.randomUUID());
+        Booking persisted = new Booking();
+        persisted.setId(1L);
+        persisted.setStatus(BookingStatus.BOOKED);
+        when(bookingEventCodec.decode(bookingMessage)).thenReturn(booking);
+        when(bookingRepo.findByEventId(booking.getEventId())).thenReturn(Optional.of(persisted));
+
         kafkaListenerService.dltHandler(bookingMessage);
-        verify(objectMapper).readValue(bookingMessage, Booking.class);
-        String redisKey = ApplicationConstants.ROOM_AVAILABILITY + booking.getRoom().getId();
-        verify(redisTemplate).delete(redisKey);
 
+        verify(roomNightAvailabilityStore).confirmAll(List.of(persisted));
+        verify(roomNightAvailabilityStore, never()).releaseHold(any(), anyLong(), anyLong());
+        verifyNoInteractions(roomAvailabilityIndex);
     }
 }
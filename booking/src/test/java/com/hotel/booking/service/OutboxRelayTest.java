@@ -0,0 +1,131 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.config.MessageProducer;
+import com.hotel.booking.entity.OutboxEvent;
+import com.hotel.booking.repository.OutboxRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+
+    private static final byte[] PAYLOAD = {1, 0};
+
+    @Mock
+    private OutboxRepo outboxRepo;
+
+    @Mock
+    private MessageProducer messageProducer;
+
+    @Mock
+    private LeaderElection leaderElection;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(outboxRelay, "enabled", true);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 2);
+        ReflectionTestUtils.setField(outboxRelay, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(outboxRelay, "leaderTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(outboxRelay, "sendTimeout", Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void testRelay_Disabled() {
+        ReflectionTestUtils.setField(outboxRelay, "enabled", false);
+
+        outboxRelay.relay();
+        verifyNoInteractions(leaderElection, outboxRepo, messageProducer);
+    }
+
+    @Test
+    public void testRelay_NotLeader() {
+        when(leaderElection.tryAcquire(eq(OutboxRelay.RELAY_JOB), any())).thenReturn(false);
+
+        outboxRelay.relay();
+        verifyNoInteractions(outboxRepo, messageProducer);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRelay() {
+        OutboxEvent first = event(1L, "10");
+        OutboxEvent second = event(2L, "11");
+        OutboxEvent third = event(3L, "10");
+        when(leaderElection.tryAcquire(eq(OutboxRelay.RELAY_JOB), any())).thenReturn(true);
+        when(outboxRepo.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(List.of(first, second), List.of(third));
+        when(messageProducer.send(eq("booking-topic"), any(), eq(PAYLOAD)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        outboxRelay.relay();
+        verify(outboxRepo).deleteRelayed(List.of(1L, 2L));
+        verify(outboxRepo).deleteRelayed(List.of(3L));
+        verify(leaderElection, times(2)).tryAcquire(eq(OutboxRelay.RELAY_JOB), any());
+        assertEquals(3, meterRegistry.counter(OutboxRelay.RELAYED_COUNTER).count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRelay_StopsWhenLeaseIsLost() {
+        when(leaderElection.tryAcquire(eq(OutboxRelay.RELAY_JOB), any())).thenReturn(true, false);
+        when(outboxRepo.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(List.of(event(1L, "10"), event(2L, "11")));
+        when(messageProducer.send(eq("booking-topic"), any(), eq(PAYLOAD)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        outboxRelay.relay();
+        verify(outboxRepo, times(1)).findAllByOrderByIdAsc(any(Pageable.class));
+        verify(outboxRepo).deleteRelayed(List.of(1L, 2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRelay_KeepsFailedEvents() {
+        OutboxEvent sent = event(1L, "10");
+        OutboxEvent failed = event(2L, "11");
+        when(leaderElection.tryAcquire(eq(OutboxRelay.RELAY_JOB), any())).thenReturn(true);
+        when(outboxRepo.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(List.of(sent, failed));
+        when(messageProducer.send("booking-topic", "10", PAYLOAD))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        when(messageProducer.send("booking-topic", "11", PAYLOAD))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        outboxRelay.relay();
+        verify(outboxRepo).deleteRelayed(List.of(1L));
+        verify(outboxRepo, never()).deleteRelayed(List.of(1L, 2L));
+    }
+
+    private static OutboxEvent event(Long id, String key) {
+        OutboxEvent event = OutboxEvent.of("booking-topic", key, PAYLOAD);
+        event.setId(id);
+        return event;
+    }
+}
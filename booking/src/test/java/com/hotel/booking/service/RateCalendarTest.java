@@ -0,0 +1,138 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.RoomRate;
+import com.hotel.booking.repository.RoomRateRepo;
+import com.hotel.booking.repository.RoomRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RateCalendarTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Mock
+    private RoomRepo roomRepo;
+
+    @Mock
+    private RoomRateRepo roomRateRepo;
+
+    @InjectMocks
+    private RateCalendar rateCalendar;
+
+    private final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(rateCalendar, "horizonDays", 10);
+        ReflectionTestUtils.setField(rateCalendar, "maximumRooms", 100L);
+        ReflectionTestUtils.setField(rateCalendar, "ttl", Duration.ofHours(1));
+        rateCalendar.init();
+    }
+
+    @Test
+    public void testQuote() {
+        Room room = room(1L, "UTC");
+        when(roomRateRepo.findRates(any(), any(), any())).thenReturn(List.of(rate(1L, today.plusDays(2), 200.0)));
+
+        // today, tomorrow at the base price and the night with a rate
+        assertEquals(400.0, rateCalendar.quote(room, at(today, 14), at(today.plusDays(3), 11)), 0.0001);
+        // the calendar ends after today + 8, later nights are priced at the base price
+        assertEquals(400.0, rateCalendar.quote(room, at(today.plusDays(8), 14), at(today.plusDays(12), 11)), 0.0001);
+        verify(roomRateRepo).findRates(Set.of(1L), today.minusDays(1), today.plusDays(8));
+    }
+
+    @Test
+    public void testQuote_CountsNightsInHotelTimeZone() {
+        Room room = room(1L, "Asia/Kolkata");
+        when(roomRateRepo.findRates(any(), any(), any())).thenReturn(List.of());
+
+        // 20:00 UTC is already the next day in Kolkata, so both times fall on the same local date
+        assertThrows(IllegalArgumentException.class,
+                () -> rateCalendar.quote(room, at(today.plusDays(1), 20), at(today.plusDays(2), 8)));
+        assertEquals(100.0, rateCalendar.quote(room, at(today.plusDays(1), 8), at(today.plusDays(2), 8)), 0.0001);
+    }
+
+    @Test
+    public void testQuote_RejectsStayWithoutNights() {
+        Room room = room(1L, "UTC");
+        when(roomRateRepo.findRates(any(), any(), any())).thenReturn(List.of());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> rateCalendar.quote(room, at(today.plusDays(2), 14), at(today.plusDays(1), 11)));
+    }
+
+    @Test
+    public void testQuoteAll() {
+        Room first = room(1L, "UTC");
+        Room second = room(2L, "UTC");
+        second.setPricePerNight(80.0);
+        when(roomRepo.findAllById(any())).thenReturn(List.of(first, second));
+        when(roomRateRepo.findRates(any(), any(), any())).thenReturn(List.of(rate(2L, today.plusDays(1), 50.0)));
+
+        double[] totals = rateCalendar.quoteAll(List.of(1L, 2L, 3L), at(today.plusDays(1), 14), at(today.plusDays(3), 11));
+
+        assertEquals(200.0, totals[0], 0.0001);
+        assertEquals(130.0, totals[1], 0.0001);
+        assertTrue(Double.isNaN(totals[2]));
+    }
+
+    @Test
+    public void testOnEntityChanged_ReloadsCalendar() {
+        Room room = room(1L, "UTC");
+        when(roomRateRepo.findRates(any(), any(), any())).thenReturn(List.of());
+
+        rateCalendar.quote(room, at(today, 14), at(today.plusDays(1), 11));
+        rateCalendar.quote(room, at(today, 14), at(today.plusDays(1), 11));
+        verify(roomRateRepo, times(1)).findRates(any(), any(), any());
+
+        rateCalendar.onEntityChanged(new EntityChangedEvent(EntityCache.ROOMS, 1L));
+        rateCalendar.quote(room, at(today, 14), at(today.plusDays(1), 11));
+        rateCalendar.onEntityChanged(new EntityChangedEvent(EntityCache.HOTELS, 7L));
+        rateCalendar.quote(room, at(today, 14), at(today.plusDays(1), 11));
+        verify(roomRateRepo, times(3)).findRates(any(), any(), any());
+    }
+
+    private static Room room(Long id, String timeZone) {
+        Hotel hotel = new Hotel(7L);
+        hotel.setTimeZone(timeZone);
+        Room room = new Room();
+        room.setId(id);
+        room.setHotel(hotel);
+        room.setPricePerNight(100.0);
+        return room;
+    }
+
+    private static RoomRate rate(Long roomId, LocalDate night, double price) {
+        RoomRate rate = new RoomRate();
+        rate.setRoomId(roomId);
+        rate.setNight(night);
+        rate.setPrice(price);
+        return rate;
+    }
+
+    private static long at(LocalDate date, int hour) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() + hour * HOUR;
+    }
+}
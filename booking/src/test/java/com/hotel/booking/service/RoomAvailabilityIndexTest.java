@@ -0,0 +1,119 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.dtos.projection.BookingStay;
+import com.hotel.booking.repository.BookingRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RoomAvailabilityIndexTest {
+
+    @Mock
+    private BookingRepo bookingRepo;
+
+    @InjectMocks
+    private RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(roomAvailabilityIndex, "enabled", true);
+    }
+
+    @Test
+    public void testOverlaps() {
+        roomAvailabilityIndex.add(1L, 100, 200);
+        roomAvailabilityIndex.add(1L, 300, 400);
+
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 150, 160));
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 50, 101));
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 199, 250));
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 0, 1000));
+        assertFalse(roomAvailabilityIndex.overlaps(1L, 201, 299));
+        assertFalse(roomAvailabilityIndex.overlaps(1L, 401, 500));
+        assertFalse(roomAvailabilityIndex.overlaps(2L, 150, 160));
+    }
+
+    @Test
+    public void testOverlaps_BackToBackStays() {
+        roomAvailabilityIndex.add(1L, 100, 200);
+
+        assertFalse(roomAvailabilityIndex.overlaps(1L, 50, 100));
+        assertFalse(roomAvailabilityIndex.overlaps(1L, 200, 300));
+    }
+
+    @Test
+    public void testOverlaps_NestedStays() {
+        roomAvailabilityIndex.add(1L, 100, 1000);
+        roomAvailabilityIndex.add(1L, 200, 300);
+
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 500, 600));
+    }
+
+    @Test
+    public void testRemove_CountsIdenticalStays() {
+        roomAvailabilityIndex.add(1L, 100, 200);
+        roomAvailabilityIndex.add(1L, 100, 200);
+        roomAvailabilityIndex.remove(1L, 100, 200);
+
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 150, 160));
+        roomAvailabilityIndex.remove(1L, 100, 200);
+        assertFalse(roomAvailabilityIndex.overlaps(1L, 150, 160));
+    }
+
+    @Test
+    public void testRebuild() {
+        BookingStay stay = mock(BookingStay.class);
+        when(stay.getRoomId()).thenReturn(1L);
+        when(stay.getCheckInDate()).thenReturn(100L);
+        when(stay.getCheckOutDate()).thenReturn(200L);
+        when(bookingRepo.findAllActiveStays()).thenReturn(List.of(stay));
+
+        assertFalse(roomAvailabilityIndex.isReady());
+        roomAvailabilityIndex.rebuild();
+
+        assertTrue(roomAvailabilityIndex.isReady());
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 150, 160));
+    }
+
+    @Test
+    public void testRebuild_ReplacesStaysInsteadOfAddingToThem() {
+        BookingStay stay = mock(BookingStay.class);
+        when(stay.getRoomId()).thenReturn(1L);
+        when(stay.getCheckInDate()).thenReturn(100L);
+        when(stay.getCheckOutDate()).thenReturn(200L);
+        when(bookingRepo.findAllActiveStays()).thenReturn(List.of(stay));
+        roomAvailabilityIndex.add(1L, 100, 200);
+        roomAvailabilityIndex.add(2L, 100, 200);
+
+        roomAvailabilityIndex.rebuild();
+        roomAvailabilityIndex.remove(1L, 100, 200);
+
+        assertFalse(roomAvailabilityIndex.overlaps(1L, 150, 160));
+        assertFalse(roomAvailabilityIndex.overlaps(2L, 150, 160));
+    }
+
+    @Test
+    public void testRemoveEndedBefore() {
+        roomAvailabilityIndex.add(1L, 100, 200);
+        roomAvailabilityIndex.add(1L, 150, 400);
+        roomAvailabilityIndex.add(2L, 100, 250);
+
+        roomAvailabilityIndex.removeEndedBefore(300);
+
+        assertFalse(roomAvailabilityIndex.overlaps(1L, 100, 120));
+        assertTrue(roomAvailabilityIndex.overlaps(1L, 350, 360));
+        assertFalse(roomAvailabilityIndex.overlaps(2L, 100, 250));
+    }
+}
@@ -0,0 +1,361 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.repository.BookingRepo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RoomNightAvailabilityStoreTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private BookingRepo bookingRepo;
+
+    @Mock
+    private EntityCache entityCache;
+
+    @Mock
+    private RedisOperations<String, String> pipelineOperations;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisScriptingCommands scriptingCommands;
+
+    @InjectMocks
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
+
+    private static long millis(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void testSegments() {
+        List<RoomNightAvailabilityStore.Segment> segments = RoomNightAvailabilityStore.segments(1L,
+                millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7)), ZoneId.systemDefault());
+
+        assertEquals(1, segments.size());
+        assertEquals("room_nights:1:2026", segments.get(0).key());
+        assertEquals(LocalDate.of(2026, 6, 3).getDayOfYear() - 1, segments.get(0).fromBit());
+        assertEquals(4, segments.get(0).toBit() - segments.get(0).fromBit());
+    }
+
+    @Test
+    public void testSegments_AcrossYears() {
+        List<RoomNightAvailabilityStore.Segment> segments = RoomNightAvailabilityStore.segments(1L,
+                millis(LocalDate.of(2026, 12, 30)), millis(LocalDate.of(2027, 1, 2)), ZoneId.systemDefault());
+
+        assertEquals(2, segments.size());
+        assertEquals(2026, segments.get(0).year());
+        assertEquals(363, segments.get(0).fromBit());
+        assertEquals(365, segments.get(0).toBit());
+        assertEquals(2027, segments.get(1).year());
+        assertEquals(0, segments.get(1).fromBit());
+        assertEquals(1, segments.get(1).toBit());
+    }
+
+    @Test
+    public void testIsAvailable() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class))).thenReturn(List.of(1L, 0L));
+
+        assertTrue(roomNightAvailabilityStore.isAvailable(1L, millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7))));
+        verifyNoInteractions(bookingRepo);
+    }
+
+    @Test
+    public void testIsAvailable_CountsNightsInTheZoneOfTheHotel() {
+        Hotel hotel = new Hotel(2L);
+        hotel.setTimeZone("Pacific/Kiritimati");
+        Room room = new Room();
+        room.setId(1L);
+        room.setHotel(hotel);
+        when(entityCache.findRoom(1L)).thenReturn(Optional.of(room));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        // noon on the last day of 2026 in UTC is already the first night of 2027 at UTC+14
+        when(valueOperations.bitField(eq("room_nights:1:2027"), any(BitFieldSubCommands.class))).thenReturn(List.of(1L, 0L));
+
+        assertTrue(roomNightAvailabilityStore.isAvailable(1L, Instant.parse("2026-12-31T12:00:00Z").toEpochMilli(),
+                Instant.parse("2027-01-01T12:00:00Z").toEpochMilli()));
+    }
+
+    @Test
+    public void testIsAvailable_NightTaken() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class))).thenReturn(List.of(1L, 2L));
+
+        assertFalse(roomNightAvailabilityStore.isAvailable(1L, millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7))));
+    }
+
+    @Test
+    public void testIsAvailable_LoadsYearOnFirstProbe() {
+        Booking booking = new Booking();
+        booking.setCheckInDate(millis(LocalDate.of(2026, 6, 4)));
+        booking.setCheckOutDate(millis(LocalDate.of(2026, 6, 5)));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class)))
+                .thenReturn(List.of(0L, 0L), List.of(1L, 2L));
+        when(bookingRepo.findByRoomIdAndDateRange(eq(1L), anyLong(), anyLong())).thenReturn(List.of(booking));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        assertFalse(roomNightAvailabilityStore.isAvailable(1L, millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7))));
+        verify(valueOperations, times(2)).bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class));
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("room_nights:1:2026", "room_nights_releases:room_nights:1:2026")),
+                eq(String.valueOf(RoomNightAvailabilityStore.LOADED_BIT)), eq("0"), eq("154"), eq("155"));
+    }
+
+    @Test
+    public void testIsAvailable_ReloadsSnapshotOlderThanARelease() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class)))
+                .thenReturn(List.of(0L, 0L), List.of(1L, 0L));
+        when(valueOperations.get("room_nights_releases:room_nights:1:2026")).thenReturn(null, "1");
+        when(bookingRepo.findByRoomIdAndDateRange(eq(1L), anyLong(), anyLong())).thenReturn(Collections.emptyList());
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(-1L, 1L);
+
+        assertTrue(roomNightAvailabilityStore.isAvailable(1L, millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7))));
+        verify(bookingRepo, times(2)).findByRoomIdAndDateRange(eq(1L), anyLong(), anyLong());
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(),
+                eq(String.valueOf(RoomNightAvailabilityStore.LOADED_BIT)), eq("1"));
+        assertEquals(2, roomNightAvailabilityStore.getDatabaseLoads());
+    }
+
+    @Test
+    public void testIsAvailable_AsksDatabaseWhenYearCannotBeLoaded() {
+        long checkIn = millis(LocalDate.of(2026, 6, 3));
+        long checkOut = millis(LocalDate.of(2026, 6, 7));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class))).thenReturn(List.of(0L, 0L));
+        when(bookingRepo.findByRoomIdAndDateRange(eq(1L), anyLong(), anyLong())).thenReturn(Collections.emptyList());
+        when(bookingRepo.findByRoomIdAndDateRange(1L, checkIn, checkOut))
+                .thenReturn(List.of(booking(1L, LocalDate.of(2026, 6, 4), LocalDate.of(2026, 6, 5))));
+        // nights keep being released while the year is read, so the load gives up
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(-1L);
+
+        assertFalse(roomNightAvailabilityStore.isAvailable(1L, checkIn, checkOut));
+
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(List.of(0L, 0L)));
+        assertFalse(roomNightAvailabilityStore.areAvailable(List.of(booking(1L, LocalDate.of(2026, 6, 3), LocalDate.of(2026, 6, 7))))[0]);
+    }
+
+    @Test
+    public void testReleaseAll_CountsReleaseBeforeClearingNights() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<Object>>getArgument(0).execute(pipelineOperations);
+            return List.of();
+        });
+        when(pipelineOperations.opsForValue()).thenReturn(valueOperations);
+
+        roomNightAvailabilityStore.releaseAll(List.of(booking(1L, LocalDate.of(2026, 12, 30), LocalDate.of(2027, 1, 2))));
+
+        InOrder inOrder = inOrder(valueOperations);
+        inOrder.verify(valueOperations).increment("room_nights_releases:room_nights:1:2026");
+        inOrder.verify(valueOperations).bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class));
+        inOrder.verify(valueOperations).increment("room_nights_releases:room_nights:1:2027");
+        inOrder.verify(valueOperations).bitField(eq("room_nights:1:2027"), any(BitFieldSubCommands.class));
+    }
+
+    @Test
+    public void testHold() {
+        ReflectionTestUtils.setField(roomNightAvailabilityStore, "holdTtl", Duration.ofMinutes(5));
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("room_nights:1:2026", "room_holds")), any(Object[].class)))
+                .thenReturn(1L);
+
+        assertTrue(roomNightAvailabilityStore.hold(booking(1L, LocalDate.of(2026, 6, 3), LocalDate.of(2026, 6, 7))));
+        verifyNoInteractions(bookingRepo);
+    }
+
+    @Test
+    public void testHold_NightTaken() {
+        ReflectionTestUtils.setField(roomNightAvailabilityStore, "holdTtl", Duration.ofMinutes(5));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        assertFalse(roomNightAvailabilityStore.hold(booking(1L, LocalDate.of(2026, 6, 3), LocalDate.of(2026, 6, 7))));
+    }
+
+    @Test
+    public void testHold_LoadsMissingYear() {
+        ReflectionTestUtils.setField(roomNightAvailabilityStore, "holdTtl", Duration.ofMinutes(5));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(-2L, 1L, 1L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(bookingRepo.findByRoomIdAndDateRange(eq(1L), anyLong(), anyLong())).thenReturn(Collections.emptyList());
+
+        assertTrue(roomNightAvailabilityStore.hold(booking(1L, LocalDate.of(2026, 12, 30), LocalDate.of(2027, 1, 2))));
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("room_nights:1:2027", "room_nights_releases:room_nights:1:2027")), any(Object[].class));
+    }
+
+    @Test
+    public void testHoldAll_RunsOnEmptyScriptCache() {
+        ReflectionTestUtils.setField(roomNightAvailabilityStore, "holdTtl", Duration.ofMinutes(5));
+        emptyScriptCachePipeline(1L);
+
+        boolean[] held = roomNightAvailabilityStore.holdAll(List.of(booking(1L, LocalDate.of(2026, 6, 3), LocalDate.of(2026, 6, 7))));
+
+        assertTrue(held[0]);
+        verify(scriptingCommands).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(2), any(byte[][].class));
+        verify(scriptingCommands, never()).evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class));
+    }
+
+    @Test
+    public void testConfirmAll_RunsOnEmptyScriptCache() {
+        emptyScriptCachePipeline(1L);
+
+        roomNightAvailabilityStore.confirmAll(List.of(booking(1L, LocalDate.of(2026, 6, 3), LocalDate.of(2026, 6, 7))));
+
+        verify(scriptingCommands).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(2), any(byte[][].class));
+        verify(scriptingCommands, never()).evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class));
+    }
+
+    @Test
+    public void testExpireHolds() {
+        String expired = RoomNightAvailabilityStore.holdMember(1L, millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7)));
+        String confirmed = RoomNightAvailabilityStore.holdMember(2L, millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7)));
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.rangeByScore("room_holds", Double.NEGATIVE_INFINITY, 1000, 0, 10))
+                .thenReturn(new LinkedHashSet<>(List.of(expired, confirmed)));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L, 0L);
+
+        List<Booking> released = roomNightAvailabilityStore.expireHolds(1000, 10);
+        assertEquals(1, released.size());
+        assertEquals(1L, released.get(0).getRoom().getId());
+        assertEquals(millis(LocalDate.of(2026, 6, 7)), released.get(0).getCheckOutDate());
+    }
+
+    @Test
+    public void testIsAvailable_CoalescesConcurrentLoads() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class))).thenReturn(List.of(0L, 0L));
+        when(bookingRepo.findByRoomIdAndDateRange(eq(1L), anyLong(), anyLong())).thenAnswer(invocation -> {
+            loading.countDown();
+            finishLoad.await(5, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        });
+        long checkIn = millis(LocalDate.of(2026, 6, 3));
+        long checkOut = millis(LocalDate.of(2026, 6, 7));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor.submit(() -> roomNightAvailabilityStore.isAvailable(1L, checkIn, checkOut));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Boolean> second = executor.submit(() -> roomNightAvailabilityStore.isAvailable(1L, checkIn, checkOut));
+            while (roomNightAvailabilityStore.getCoalescedLoads() == 0) {
+                Thread.sleep(5);
+            }
+            finishLoad.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(bookingRepo, times(1)).findByRoomIdAndDateRange(eq(1L), anyLong(), anyLong());
+        assertEquals(1, roomNightAvailabilityStore.getDatabaseLoads());
+        assertEquals(1, roomNightAvailabilityStore.getCoalescedLoads());
+    }
+
+    @Test
+    public void testIsAvailable_WaitsForLoadLeaseOfOtherNode() {
+        ReflectionTestUtils.setField(roomNightAvailabilityStore, "loadLeaseEnabled", true);
+        ReflectionTestUtils.setField(roomNightAvailabilityStore, "loadLeaseTtl", Duration.ofSeconds(2));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.bitField(eq("room_nights:1:2026"), any(BitFieldSubCommands.class)))
+                .thenReturn(List.of(0L, 0L), List.of(1L, 0L));
+        when(valueOperations.setIfAbsent(eq("room_nights_load_lease:room_nights:1:2026"), any(), any(Duration.class))).thenReturn(false);
+        when(valueOperations.getBit("room_nights:1:2026", RoomNightAvailabilityStore.LOADED_BIT)).thenReturn(false, true);
+
+        assertTrue(roomNightAvailabilityStore.isAvailable(1L, millis(LocalDate.of(2026, 6, 3)), millis(LocalDate.of(2026, 6, 7))));
+        verifyNoInteractions(bookingRepo);
+        assertEquals(1, roomNightAvailabilityStore.getLeaseWaits());
+    }
+
+    /**
+     * Runs the pipelines against a server whose script cache is empty, failing every EVALSHA with
+     * NOSCRIPT, and answers them with the given results.
+     */
+    @SuppressWarnings("unchecked")
+    private void emptyScriptCachePipeline(Object... results) {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<Object>>getArgument(0).execute(pipelineOperations);
+            return List.of(results);
+        });
+        when(pipelineOperations.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection));
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        lenient().when(scriptingCommands.evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class)))
+                .thenThrow(new RedisSystemException("NOSCRIPT No matching script", null));
+    }
+
+    private static Booking booking(Long roomId, LocalDate checkIn, LocalDate checkOut) {
+        Room room = new Room();
+        room.setId(roomId);
+        Booking booking = new Booking();
+        booking.setRoom(room);
+        booking.setCheckInDate(millis(checkIn));
+        booking.setCheckOutDate(millis(checkOut));
+        return booking;
+    }
+}
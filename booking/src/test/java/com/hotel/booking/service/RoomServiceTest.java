@@ -3,20 +3,28 @@ package com.hotel.booking.service;
 import static org.mockito.Mockito.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.dtos.request.CreateRoomRate;
 import com.hotel.booking.dtos.request.RoomDTO;
+import com.hotel.booking.dtos.response.AvailableRoom;
+import com.hotel.booking.dtos.response.CursorPage;
+import com.hotel.booking.dtos.response.RoomView;
 import com.hotel.booking.entity.Hotel;
 import com.hotel.booking.entity.Room;
-import com.hotel.booking.repository.HotelRepo;
+import com.hotel.booking.exception.CustomException;
+import com.hotel.booking.repository.RoomRateRepo;
 import com.hotel.booking.repository.RoomRepo;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,7 +39,19 @@ public class RoomServiceTest {
     private RoomRepo roomRepo;
 
     @Mock
-    private HotelRepo hotelRepo;
+    private EntityCache entityCache;
+
+    @Mock
+    private RoomRateRepo roomRateRepo;
+
+    @Mock
+    private RateCalendar rateCalendar;
+
+    @Mock
+    private RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @Mock
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
 
     @InjectMocks
     private RoomService roomService;
@@ -41,12 +61,12 @@ public class RoomServiceTest {
         long hotelId = 1L;
         RoomDTO roomDTO = new RoomDTO();
         Hotel mockHotel = new Hotel();
-        when(hotelRepo.findById(hotelId)).thenReturn(Optional.of(mockHotel));
+        when(entityCache.findHotel(hotelId)).thenReturn(Optional.of(mockHotel));
         Room mockRoom = new Room();
         when(objectMapper.convertValue(roomDTO, Room.class)).thenReturn(mockRoom);
         when(roomRepo.save(mockRoom)).thenReturn(mockRoom);
         Room createdRoom = roomService.createRoom(hotelId, roomDTO);
-        verify(hotelRepo).findById(hotelId);
+        verify(entityCache).findHotel(hotelId);
         verify(objectMapper).convertValue(roomDTO, Room.class);
         verify(roomRepo).save(mockRoom);
         assertEquals(mockRoom, createdRoom);
@@ -56,20 +76,126 @@ public class RoomServiceTest {
     public void testCreateRoom_HotelNotFound() {
         long hotelId = 1L;
         RoomDTO roomDTO = new RoomDTO();
-        when(hotelRepo.findById(hotelId)).thenReturn(Optional.empty());
+        when(entityCache.findHotel(hotelId)).thenReturn(Optional.empty());
         assertThrows(NoSuchElementException.class, () -> {
             roomService.createRoom(hotelId, roomDTO);
         });
-        verify(hotelRepo).findById(hotelId);
+        verify(entityCache).findHotel(hotelId);
         verifyNoMoreInteractions(objectMapper, roomRepo);
     }
 
     @Test
     public void testGetRooms() {
-        Page<Room> mockPage = new PageImpl<>(Collections.emptyList());
-        when(roomRepo.findAll(any(Pageable.class))).thenReturn(mockPage);
-        Page<Room> resultPage = roomService.getRooms(0, 10);
-        verify(roomRepo).findAll(Pageable.ofSize(10));
+        ReflectionTestUtils.setField(roomService, "maxPageSize", 100);
+        when(roomRepo.findViewsByIdGreaterThan(any(), any(Pageable.class))).thenReturn(Collections.emptyList());
+        CursorPage<RoomView> resultPage = roomService.getRooms(null, 10);
+        verify(roomRepo).findViewsByIdGreaterThan(0L, Pageable.ofSize(11));
         assertNotNull(resultPage);
     }
+
+    @Test
+    public void testSearchAvailableRooms() {
+        ReflectionTestUtils.setField(roomService, "maxSearchLimit", 100);
+        AvailableRoom availableRoom = new AvailableRoom(1L, 2L, "name", "location", "DELUXE", 2, 50.0);
+        AvailableRoom weekendRoom = new AvailableRoom(3L, 2L, "name", "location", "DELUXE", 2, 60.0);
+        AvailableRoom deletedRoom = new AvailableRoom(4L, 2L, "name", "location", "DELUXE", 2, 70.0);
+        when(roomRepo.searchAvailableRooms(null, "location", null, 2, 100L, 200L, PageRequest.of(0, 10)))
+                .thenReturn(List.of(availableRoom, weekendRoom, deletedRoom));
+        when(rateCalendar.quoteAll(List.of(1L, 3L, 4L), 100L, 200L)).thenReturn(new double[]{150.0, 120.0, Double.NaN});
+
+        List<AvailableRoom> result = roomService.searchAvailableRooms(null, "location", null, 2, 100L, 200L, 10);
+
+        assertEquals(List.of(weekendRoom, availableRoom), result);
+        assertEquals(120.0, result.get(0).getTotalPrice(), 0.0001);
+        assertEquals(150.0, result.get(1).getTotalPrice(), 0.0001);
+    }
+
+    @Test
+    public void testSearchAvailableRooms_ConfirmsIndexHitsWithBitmaps() {
+        ReflectionTestUtils.setField(roomService, "maxSearchLimit", 100);
+        AvailableRoom heldRoom = new AvailableRoom(1L, 2L, "name", "location", "DELUXE", 2, 50.0);
+        AvailableRoom freedRoom = new AvailableRoom(3L, 2L, "name", "location", "DELUXE", 2, 60.0);
+        when(roomRepo.searchAvailableRooms(null, "location", null, 2, 100L, 200L, PageRequest.of(0, 10)))
+                .thenReturn(List.of(heldRoom, freedRoom));
+        when(roomAvailabilityIndex.isReady()).thenReturn(true);
+        when(roomAvailabilityIndex.overlaps(anyLong(), eq(100L), eq(200L))).thenReturn(true);
+        when(roomNightAvailabilityStore.isAvailable(1L, 100L, 200L)).thenReturn(false);
+        when(roomNightAvailabilityStore.isAvailable(3L, 100L, 200L)).thenReturn(true);
+        when(rateCalendar.quoteAll(List.of(3L), 100L, 200L)).thenReturn(new double[]{120.0});
+
+        List<AvailableRoom> result = roomService.searchAvailableRooms(null, "location", null, 2, 100L, 200L, 10);
+
+        assertEquals(List.of(freedRoom), result);
+    }
+
+    @Test
+    public void testSearchAvailableRooms_RefillsPageShortenedByIndex() {
+        ReflectionTestUtils.setField(roomService, "maxSearchLimit", 100);
+        ReflectionTestUtils.setField(roomService, "maxSearchRefills", 3);
+        AvailableRoom heldRoom = new AvailableRoom(1L, 2L, "name", "location", "DELUXE", 2, 50.0);
+        AvailableRoom firstRoom = new AvailableRoom(3L, 2L, "name", "location", "DELUXE", 2, 60.0);
+        AvailableRoom secondRoom = new AvailableRoom(4L, 2L, "name", "location", "DELUXE", 2, 70.0);
+        AvailableRoom thirdRoom = new AvailableRoom(5L, 2L, "name", "location", "DELUXE", 2, 80.0);
+        when(roomRepo.searchAvailableRooms(null, "location", null, 2, 100L, 200L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(heldRoom, firstRoom));
+        when(roomRepo.searchAvailableRooms(null, "location", null, 2, 100L, 200L, PageRequest.of(1, 2)))
+                .thenReturn(List.of(secondRoom, thirdRoom));
+        when(roomAvailabilityIndex.isReady()).thenReturn(true);
+        when(roomAvailabilityIndex.overlaps(anyLong(), eq(100L), eq(200L))).thenAnswer(invocation -> invocation.getArgument(0).equals(1L));
+        when(roomNightAvailabilityStore.isAvailable(1L, 100L, 200L)).thenReturn(false);
+        when(rateCalendar.quoteAll(List.of(3L, 4L), 100L, 200L)).thenReturn(new double[]{120.0, 140.0});
+
+        List<AvailableRoom> result = roomService.searchAvailableRooms(null, "location", null, 2, 100L, 200L, 2);
+
+        assertEquals(List.of(firstRoom, secondRoom), result);
+        verify(roomRepo, never()).searchAvailableRooms(null, "location", null, 2, 100L, 200L, PageRequest.of(2, 2));
+    }
+
+    @Test
+    public void testSearchAvailableRooms_InvalidDates() {
+        CustomException exception = assertThrows(CustomException.class,
+                () -> roomService.searchAvailableRooms(1L, null, null, 1, 200L, 100L, 10));
+        assertEquals(400, exception.getCode());
+        verifyNoInteractions(roomRepo, rateCalendar);
+    }
+
+    @Test
+    public void testSetRates() {
+        Room room = new Room();
+        room.setId(1L);
+        CreateRoomRate roomRate = rate(LocalDate.of(2026, 12, 20), LocalDate.of(2026, 12, 31));
+        when(entityCache.findRoom(1L)).thenReturn(Optional.of(room));
+        when(rateCalendar.lastNight(room)).thenReturn(LocalDate.of(2027, 12, 31));
+        when(roomRateRepo.upsertRange(1L, roomRate.getFrom(), roomRate.getTo(), 180.0)).thenReturn(12);
+
+        assertEquals("Rates set for 12 nights", roomService.setRates(1L, roomRate));
+        verify(entityCache).invalidate(EntityCache.ROOMS, 1L);
+    }
+
+    @Test
+    public void testSetRates_BeyondCalendar() {
+        Room room = new Room();
+        room.setId(1L);
+        when(entityCache.findRoom(1L)).thenReturn(Optional.of(room));
+        when(rateCalendar.lastNight(room)).thenReturn(LocalDate.of(2026, 12, 25));
+
+        CustomException exception = assertThrows(CustomException.class,
+                () -> roomService.setRates(1L, rate(LocalDate.of(2026, 12, 20), LocalDate.of(2026, 12, 31))));
+        assertEquals(400, exception.getCode());
+        verifyNoInteractions(roomRateRepo);
+    }
+
+    private static CreateRoomRate rate(LocalDate from, LocalDate to) {
+        CreateRoomRate roomRate = new CreateRoomRate();
+        roomRate.setFrom(from);
+        roomRate.setTo(to);
+        roomRate.setPrice(180.0);
+        return roomRate;
+    }
+
+    @Test
+    public void testSearchAvailableRooms_WithoutHotelOrLocation() {
+        assertThrows(CustomException.class, () -> roomService.searchAvailableRooms(null, null, null, 1, 100L, 200L, 10));
+        verifyNoInteractions(roomRepo);
+    }
 }
@@ -1,17 +1,24 @@
 package com.hotel.booking.service;
 
 import com.hotel.booking.entity.Booking;
+import com.hotel.booking.enums.BookingStatus;
 import com.hotel.booking.repository.BookingRepo;
+import com.hotel.booking.service.CheckoutDueQueue.DueCheckout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,21 +28,82 @@ public class SchedulerServiceTest {
     private BookingRepo bookingRepo;
 
     @Mock
-    private RedisTemplate<String, String> redisTemplate;
+    private RoomAvailabilityIndex roomAvailabilityIndex;
+
+    @Mock
+    private RoomNightAvailabilityStore roomNightAvailabilityStore;
+
+    @Mock
+    private CheckoutDueQueue checkoutDueQueue;
+
+    @Mock
+    private LeaderElection leaderElection;
+
+    @Mock
+    private UserBookingHistory userBookingHistory;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private SchedulerService schedulerService;
 
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(schedulerService, "chunkSize", 2);
+        ReflectionTestUtils.setField(schedulerService, "maxChunksPerTick", 3);
+        ReflectionTestUtils.setField(schedulerService, "leaderTtl", Duration.ofMinutes(3));
+        ReflectionTestUtils.setField(schedulerService, "holdSweepLimit", 10);
+    }
+
+    @Test
+    public void testUpdateCheckOutBooking_NotLeader() {
+        when(leaderElection.tryAcquire(eq(SchedulerService.CHECKOUT_JOB), any())).thenReturn(false);
+
+        schedulerService.updateCheckOutBooking();
+        verify(roomAvailabilityIndex).removeEndedBefore(anyLong());
+        verifyNoInteractions(checkoutDueQueue, bookingRepo, roomNightAvailabilityStore);
+    }
+
     @Test
     public void testUpdateCheckOutBooking() {
-        List<Booking> bookings = new ArrayList<>();
-        List<String> redisKeys = new ArrayList<>();
-        when(bookingRepo.findAllCheckOutExpire(anyLong())).thenReturn(bookings);
+        List<DueCheckout> first = List.of(new DueCheckout(1L, 10L, 100L, 200L), new DueCheckout(2L, 11L, 100L, 300L));
+        List<DueCheckout> second = List.of(new DueCheckout(3L, 10L, 300L, 400L));
+        when(leaderElection.tryAcquire(eq(SchedulerService.CHECKOUT_JOB), any())).thenReturn(true);
+        when(checkoutDueQueue.due(anyLong(), eq(2))).thenReturn(first, second);
+        when(bookingRepo.markVacant(anyList())).thenReturn(2, 1);
 
         schedulerService.updateCheckOutBooking();
-        verify(bookingRepo).findAllCheckOutExpire(anyLong());
-        verify(bookingRepo).saveAll(bookings);
-        verify(redisTemplate).delete(redisKeys);
+        verify(checkoutDueQueue).seedIfNeeded();
+        verify(bookingRepo).markVacant(List.of(1L, 2L));
+        verify(bookingRepo).markVacant(List.of(3L));
+        verify(userBookingHistory).updateStatus(List.of(1L, 2L), BookingStatus.VACANT);
+        verify(userBookingHistory).updateStatus(List.of(3L), BookingStatus.VACANT);
+        verify(roomNightAvailabilityStore, times(2)).releaseAll(anyList());
+        verify(checkoutDueQueue).removeAll(first);
+        verify(checkoutDueQueue).removeAll(second);
+        verify(checkoutDueQueue, times(2)).due(anyLong(), eq(2));
+        assertEquals(3, meterRegistry.counter(SchedulerService.ROWS_COUNTER, "job", SchedulerService.CHECKOUT_JOB).count());
+        assertEquals(1, meterRegistry.timer(SchedulerService.RUN_TIMER, "job", SchedulerService.CHECKOUT_JOB).count());
     }
-}
 
+    @Test
+    public void testUpdateCheckOutBooking_BoundedChunks() {
+        List<DueCheckout> full = List.of(new DueCheckout(1L, 10L, 100L, 200L), new DueCheckout(2L, 11L, 100L, 300L));
+        when(leaderElection.tryAcquire(eq(SchedulerService.CHECKOUT_JOB), any())).thenReturn(true);
+        when(checkoutDueQueue.due(anyLong(), eq(2))).thenReturn(full);
+
+        schedulerService.updateCheckOutBooking();
+        verify(checkoutDueQueue, times(3)).due(anyLong(), eq(2));
+        verify(bookingRepo, times(3)).markVacant(List.of(1L, 2L));
+    }
+
+    @Test
+    public void testExpireHolds() {
+        Booking released = new DueCheckout(0L, 10L, 100L, 200L).toBooking();
+        when(roomNightAvailabilityStore.expireHolds(anyLong(), eq(10))).thenReturn(List.of(released));
+
+        schedulerService.expireHolds();
+        verify(roomAvailabilityIndex).remove(10L, 100L, 200L);
+    }
+}
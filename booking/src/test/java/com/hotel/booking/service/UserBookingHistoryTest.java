@@ -0,0 +1,247 @@
+package com.hotel.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.constants.ApplicationConstants;
+import com.hotel.booking.dtos.projection.BookingOwner;
+import com.hotel.booking.dtos.response.BookingView;
+import com.hotel.booking.dtos.response.CursorPage;
+import com.hotel.booking.entity.Booking;
+import com.hotel.booking.entity.Hotel;
+import com.hotel.booking.entity.Room;
+import com.hotel.booking.entity.User;
+import com.hotel.booking.enums.BookingStatus;
+import com.hotel.booking.exception.CustomException;
+import com.hotel.booking.repository.BookingRepo;
+import com.hotel.booking.service.UserBookingHistory.HistoryCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserBookingHistoryTest {
+
+    private static final List<String> KEYS = List.of(ApplicationConstants.USER_BOOKINGS + 5, "user_bookings:5:views");
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private RedisOperations<String, String> pipelineOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisScriptingCommands scriptingCommands;
+
+    @Mock
+    private BookingRepo bookingRepo;
+
+    @Mock
+    private EntityCache entityCache;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private UserBookingHistory userBookingHistory;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(userBookingHistory, "enabled", true);
+        ReflectionTestUtils.setField(userBookingHistory, "seedChunkSize", 2);
+        ReflectionTestUtils.setField(userBookingHistory, "maxEntries", 3);
+        ReflectionTestUtils.setField(userBookingHistory, "ttl", Duration.ofDays(30));
+    }
+
+    @Test
+    public void testHistoryCursor() {
+        HistoryCursor cursor = new HistoryCursor(1735689600000L, 42L);
+
+        assertEquals("0000001735689600000:0000000000000000042", cursor.member());
+        assertEquals(cursor, HistoryCursor.decode(cursor.encode()));
+        assertNull(HistoryCursor.decode(null));
+        CustomException exception = assertThrows(CustomException.class, () -> HistoryCursor.decode("bm90LWEtY3Vyc29y"));
+        assertEquals(400, exception.getCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPage() throws Exception {
+        BookingView latest = view(3L, 300L);
+        BookingView cancelled = view(2L, 200L);
+        BookingView oldest = view(1L, 100L);
+        when(redisTemplate.hasKey(ApplicationConstants.USER_BOOKINGS_SEEDED + 5)).thenReturn(true);
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEYS), eq("+"), eq("3"), eq(":s"))).thenReturn(List.of(
+                HistoryCursor.of(latest).member(), objectMapper.writeValueAsString(latest), "BOOKED",
+                HistoryCursor.of(cancelled).member(), objectMapper.writeValueAsString(cancelled), "VACANT",
+                HistoryCursor.of(oldest).member(), objectMapper.writeValueAsString(oldest), "BOOKED"));
+
+        CursorPage<BookingView> page = userBookingHistory.page(5L, null, 2);
+
+        cancelled.setStatus(BookingStatus.VACANT);
+        assertEquals(List.of(latest, cancelled), page.getItems());
+        assertEquals(HistoryCursor.of(cancelled), HistoryCursor.decode(page.getNextCursor()));
+        verifyNoInteractions(bookingRepo);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPage_SeedsFromDatabase() {
+        BookingView latest = view(3L, 300L);
+        BookingView middle = view(2L, 200L);
+        BookingView oldest = view(1L, 100L);
+        when(redisTemplate.hasKey(ApplicationConstants.USER_BOOKINGS_SEEDED + 5)).thenReturn(false);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(bookingRepo.findUserViewsBefore(5L, Long.MAX_VALUE, Long.MAX_VALUE, Pageable.ofSize(2))).thenReturn(List.of(latest, middle));
+        when(bookingRepo.findUserViewsBefore(5L, 200L, 2L, Pageable.ofSize(2))).thenReturn(List.of(oldest));
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEYS), eq("+"), eq("11"), eq(":s"))).thenReturn(List.of());
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.zCard(ApplicationConstants.USER_BOOKINGS + 5)).thenReturn(0L);
+
+        CursorPage<BookingView> page = userBookingHistory.page(5L, "", 10);
+
+        assertEquals(List.of(), page.getItems());
+        assertNull(page.getNextCursor());
+        verify(redisTemplate, times(2)).executePipelined(any(SessionCallback.class));
+        verify(valueOperations).set(ApplicationConstants.USER_BOOKINGS_SEEDED + 5, "1", Duration.ofDays(30));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPage_ReadsTrimmedBookingsFromDatabase() throws Exception {
+        BookingView latest = view(4L, 400L);
+        BookingView kept = view(3L, 300L);
+        BookingView trimmed = view(2L, 200L);
+        BookingView oldest = view(1L, 100L);
+        when(redisTemplate.hasKey(ApplicationConstants.USER_BOOKINGS_SEEDED + 5)).thenReturn(true);
+        when(redisTemplate.execute(any(RedisScript.class), eq(KEYS), eq("+"), eq("4"), eq(":s"))).thenReturn(List.of(
+                HistoryCursor.of(latest).member(), objectMapper.writeValueAsString(latest), "BOOKED",
+                HistoryCursor.of(kept).member(), objectMapper.writeValueAsString(kept), "BOOKED"));
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.zCard(ApplicationConstants.USER_BOOKINGS + 5)).thenReturn(3L);
+        when(bookingRepo.findUserViewsBefore(5L, 300L, 3L, Pageable.ofSize(2))).thenReturn(List.of(trimmed, oldest));
+
+        CursorPage<BookingView> page = userBookingHistory.page(5L, null, 3);
+
+        assertEquals(List.of(latest, kept, trimmed), page.getItems());
+        assertEquals(HistoryCursor.of(trimmed), HistoryCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpdateStatus_WritesToTheHistoryOfEachUser() {
+        when(bookingRepo.findOwnersByIdIn(List.of(1L, 2L))).thenReturn(List.of(owner(1L, 5L), owner(2L, 6L)));
+
+        userBookingHistory.updateStatus(List.of(1L, 2L), BookingStatus.VACANT);
+
+        verify(redisTemplate).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAddAll_TrimsOnEmptyScriptCache() {
+        Hotel hotel = new Hotel(20L);
+        Room room = new Room();
+        room.setId(10L);
+        room.setHotel(hotel);
+        User user = new User();
+        user.setId(5L);
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setRoom(room);
+        booking.setUser(user);
+        booking.setStatus(BookingStatus.BOOKED);
+        when(entityCache.findRoom(10L)).thenReturn(Optional.of(room));
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<Object>>getArgument(0).execute(pipelineOperations);
+            return List.of();
+        });
+        when(pipelineOperations.opsForZSet()).thenReturn(zSetOperations);
+        when(pipelineOperations.opsForHash()).thenReturn(hashOperations);
+        when(pipelineOperations.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection));
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        // a server that never loaded the script, EVALSHA fails with NOSCRIPT
+        lenient().when(scriptingCommands.evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class)))
+                .thenThrow(new RedisSystemException("NOSCRIPT No matching script", null));
+
+        userBookingHistory.addAll(List.of(booking));
+
+        verify(scriptingCommands).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(2), any(byte[][].class));
+        verify(scriptingCommands, never()).evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class));
+        verify(pipelineOperations).expire("user_bookings:5:views", Duration.ofDays(30));
+    }
+
+    @Test
+    public void testDisabled() {
+        ReflectionTestUtils.setField(userBookingHistory, "enabled", false);
+
+        userBookingHistory.addAll(List.of(new Booking()));
+        userBookingHistory.updateStatus(List.of(1L), BookingStatus.VACANT);
+        verifyNoInteractions(redisTemplate, entityCache);
+    }
+
+    private static BookingOwner owner(Long id, Long userId) {
+        return new BookingOwner() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+
+    private static BookingView view(Long id, long checkInDate) {
+        return new BookingView(id, 10L, 20L, 5L, checkInDate, checkInDate + 50, 99.0, BookingStatus.BOOKED);
+    }
+}